@@ -0,0 +1,254 @@
+/* See LICENSE file for copyright and license details. */
+#ifndef LIBGAMMA_JAVA_COMMON_H
+#define LIBGAMMA_JAVA_COMMON_H
+
+#include <stdint.h>
+#include <string.h>
+
+#include <jni.h>
+
+
+/**
+ * Define functions that convert between the stops of an
+ * integer gamma ramp and values in [0, 1]
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ * @param  MAX     The maximum value of a stop
+ */
+#define DEFINE_INTEGER_CODEC(SUFFIX, TYPE, MAX)\
+	static inline double\
+	decode##SUFFIX(TYPE value)\
+	{\
+		return (double)value / (double)(MAX);\
+	}\
+	\
+	static inline TYPE\
+	encode##SUFFIX(double value)\
+	{\
+		if (!(value > 0))\
+			return 0;\
+		value = value * (double)(MAX) + 0.5;\
+		return value >= (double)(MAX) ? (TYPE)(MAX) : (TYPE)value;\
+	}
+
+/**
+ * Define functions that convert between the stops of a
+ * floating point gamma ramp and values in [0, 1]
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_FLOAT_CODEC(SUFFIX, TYPE)\
+	static inline double\
+	decode##SUFFIX(TYPE value)\
+	{\
+		return (double)value;\
+	}\
+	\
+	static inline TYPE\
+	encode##SUFFIX(double value)\
+	{\
+		if (!(value > 0))\
+			return 0;\
+		return value >= 1 ? (TYPE)1 : (TYPE)value;\
+	}
+
+DEFINE_INTEGER_CODEC(8,  uint8_t,  UINT8_MAX)
+DEFINE_INTEGER_CODEC(16, uint16_t, UINT16_MAX)
+DEFINE_INTEGER_CODEC(32, uint32_t, UINT32_MAX)
+DEFINE_INTEGER_CODEC(64, uint64_t, UINT64_MAX)
+DEFINE_FLOAT_CODEC(f, float)
+DEFINE_FLOAT_CODEC(d, double)
+
+#undef DEFINE_INTEGER_CODEC
+#undef DEFINE_FLOAT_CODEC
+
+
+/**
+ * Look up a value in a table that samples a
+ * function uniformly over [0, 1], with linear
+ * interpolation between the samples
+ * 
+ * @param   table   The table
+ * @param   length  The number of elements in `table`, at least 1
+ * @param   value   The value to look up, clamped to [0, 1]
+ * @return          The interpolated value of the function
+ */
+static inline double
+lookup(const jdouble *table, jsize length, double value)
+{
+	double position;
+	jsize i;
+	if (!(value > 0))
+		return table[0];
+	if (value >= 1)
+		return table[length - 1];
+	position = value * (double)(length - 1);
+	i = (jsize)position;
+	if (i >= length - 1)
+		return table[length - 1];
+	return table[i] + (table[i + 1] - table[i]) * (position - (double)i);
+}
+
+
+/**
+ * xxHash64 prime number 1
+ */
+#define HASH_PRIME1 UINT64_C(0x9E3779B185EBCA87)
+
+/**
+ * xxHash64 prime number 2
+ */
+#define HASH_PRIME2 UINT64_C(0xC2B2AE3D27D4EB4F)
+
+/**
+ * xxHash64 prime number 3
+ */
+#define HASH_PRIME3 UINT64_C(0x165667B19E3779F9)
+
+/**
+ * xxHash64 prime number 4
+ */
+#define HASH_PRIME4 UINT64_C(0x85EBCA77C2B2AE63)
+
+/**
+ * xxHash64 prime number 5
+ */
+#define HASH_PRIME5 UINT64_C(0x27D4EB2F165667C5)
+
+/**
+ * Rotate a 64-bit integer to the left
+ * 
+ * @param   value  The integer
+ * @param   bits   The number of bits to rotate by, 1 to 63
+ * @return         The rotated integer
+ */
+static inline uint64_t
+rotl64(uint64_t value, int bits)
+{
+	return (value << bits) | (value >> (64 - bits));
+}
+
+/**
+ * Read a 64-bit integer, in native byte order, from
+ * memory that is not necessarily aligned
+ * 
+ * @param   p  The memory
+ * @return     The integer
+ */
+static inline uint64_t
+read64(const unsigned char *p)
+{
+	uint64_t value;
+	memcpy(&value, p, sizeof(value));
+	return value;
+}
+
+/**
+ * Read a 32-bit integer, in native byte order, from
+ * memory that is not necessarily aligned
+ * 
+ * @param   p  The memory
+ * @return     The integer
+ */
+static inline uint32_t
+read32(const unsigned char *p)
+{
+	uint32_t value;
+	memcpy(&value, p, sizeof(value));
+	return value;
+}
+
+/**
+ * Mix an 8-byte lane into an xxHash64 accumulator
+ * 
+ * @param   acc    The accumulator
+ * @param   input  The lane
+ * @return         The new value of the accumulator
+ */
+static inline uint64_t
+hash_round(uint64_t acc, uint64_t input)
+{
+	acc += input * HASH_PRIME2;
+	acc = rotl64(acc, 31);
+	return acc * HASH_PRIME1;
+}
+
+/**
+ * Merge an xxHash64 accumulator into the hash
+ * 
+ * @param   hash  The hash
+ * @param   acc   The accumulator
+ * @return        The new hash
+ */
+static inline uint64_t
+hash_merge(uint64_t hash, uint64_t acc)
+{
+	hash ^= hash_round(0, acc);
+	return hash * HASH_PRIME1 + HASH_PRIME4;
+}
+
+/**
+ * Calculate the xxHash64 hash of a block of memory
+ * 
+ * Ramps can be hashed one after another by passing
+ * the hash of the previous ramp as the seed
+ * 
+ * @param   data    The memory
+ * @param   length  The number of bytes in `data`
+ * @param   seed    The seed
+ * @return          The hash
+ */
+static inline uint64_t
+hash64(const void *data, size_t length, uint64_t seed)
+{
+	const unsigned char *p = data;
+	const unsigned char *end = p + length;
+	uint64_t hash, v1, v2, v3, v4;
+
+	if (length >= 32) {
+		v1 = seed + HASH_PRIME1 + HASH_PRIME2;
+		v2 = seed + HASH_PRIME2;
+		v3 = seed;
+		v4 = seed - HASH_PRIME1;
+		for (; end - p >= 32; p += 32) {
+			v1 = hash_round(v1, read64(p + 0));
+			v2 = hash_round(v2, read64(p + 8));
+			v3 = hash_round(v3, read64(p + 16));
+			v4 = hash_round(v4, read64(p + 24));
+		}
+		hash = rotl64(v1, 1) + rotl64(v2, 7) + rotl64(v3, 12) + rotl64(v4, 18);
+		hash = hash_merge(hash, v1);
+		hash = hash_merge(hash, v2);
+		hash = hash_merge(hash, v3);
+		hash = hash_merge(hash, v4);
+	} else {
+		hash = seed + HASH_PRIME5;
+	}
+	hash += (uint64_t)length;
+
+	for (; end - p >= 8; p += 8) {
+		hash ^= hash_round(0, read64(p));
+		hash = rotl64(hash, 27) * HASH_PRIME1 + HASH_PRIME4;
+	}
+	if (end - p >= 4) {
+		hash ^= (uint64_t)read32(p) * HASH_PRIME1;
+		hash = rotl64(hash, 23) * HASH_PRIME2 + HASH_PRIME3;
+		p += 4;
+	}
+	for (; p < end; p++) {
+		hash ^= (uint64_t)*p * HASH_PRIME5;
+		hash = rotl64(hash, 11) * HASH_PRIME1;
+	}
+
+	hash ^= hash >> 33;
+	hash *= HASH_PRIME2;
+	hash ^= hash >> 29;
+	hash *= HASH_PRIME3;
+	hash ^= hash >> 32;
+	return hash;
+}
+
+
+#endif
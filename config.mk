@@ -12,8 +12,19 @@ JAR      = jar
 JAVAH    = javah
 # The Makefile will check whether $(JAVAH) exists, otherwise it will use $(JAVAC) with -h
 
+# The Foreign Function & Memory backend is optional, because it requires
+# $(JAVAC) to support Java 22; to include it in the jar, set this to
+# META-INF/versions/22/libgamma/ForeignBackend.class
+FFM_CLASS =
+
+# The Vector API kernels are optional, because they require $(JAVAC)
+# to support Java 22 and the module jdk.incubator.vector; to include
+# them in the jar, set this to
+# META-INF/versions/22/libgamma/VectorKernels.class
+VECTOR_CLASS =
+
 CPPFLAGS = -D_DEFAULT_SOURCE -D_BSD_SOURCE -D_XOPEN_SOURCE=700 -D_GNU_SOURCE\
            -isystem "$(INSTALLED_JAVAPATH)/include"\
            -isystem "$(INSTALLED_JAVAPATH)/include/$$(uname | tr '[A-Z]' '[a-z]')"
 CFLAGS   = -Wall -O2 $(OS_CFLAGS) $(CPPFLAGS)
-LDFLAGS  = -lgamma $(OS_LDFLAGS)
+LDFLAGS  = -lgamma -lm $(OS_LDFLAGS)
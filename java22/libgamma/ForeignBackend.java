@@ -0,0 +1,1091 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static java.lang.foreign.MemoryLayout.PathElement.groupElement;
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_FLOAT;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.lang.foreign.ValueLayout.JAVA_SHORT;
+
+
+/**
+ * The calls into <tt>libgamma</tt>, made directly with the
+ * Foreign Function &amp; Memory API
+ * <p>
+ * This class is only compiled for, and only loaded on, Java 22
+ * and newer. Pointers and <tt>size_t</tt>:s are passed as
+ * {@code long}:s, so no {@link MemorySegment} is allocated per
+ * call; this requires a 64-bit platform, on other platforms the
+ * constructor fails and {@link JNIBackend} is used instead.
+ * Ramp stops are accessed with plain memory accesses, which
+ * the JIT compiles to raw loads and stores.
+ */
+final class ForeignBackend extends Backend
+{
+	/**
+	 * All of the process's memory, ramps are accessed through this segment
+	 */
+	private static final MemorySegment MEMORY = MemorySegment.NULL.reinterpret(Long.MAX_VALUE);
+
+	/**
+	 * The layout of <tt>struct libgamma_site_state</tt>
+	 */
+	private static final StructLayout SITE = MemoryLayout.structLayout(ADDRESS.withName("data"),
+	                                                                   JAVA_INT.withName("method"),
+	                                                                   MemoryLayout.paddingLayout(4),
+	                                                                   ADDRESS.withName("site"),
+	                                                                   JAVA_LONG.withName("partitions_available"));
+
+	/**
+	 * The layout of <tt>struct libgamma_partition_state</tt>
+	 */
+	private static final StructLayout PARTITION = MemoryLayout.structLayout(ADDRESS.withName("data"),
+	                                                                        ADDRESS.withName("site"),
+	                                                                        JAVA_LONG.withName("partition"),
+	                                                                        JAVA_LONG.withName("crtcs_available"));
+
+	/**
+	 * The layout of <tt>struct libgamma_crtc_state</tt>
+	 */
+	private static final StructLayout CRTC = MemoryLayout.structLayout(ADDRESS.withName("data"),
+	                                                                   ADDRESS.withName("partition"),
+	                                                                   JAVA_LONG.withName("crtc"));
+
+	/**
+	 * The layout of <tt>struct libgamma_gamma_ramps*</tt>, which
+	 * is the same for all depths
+	 */
+	private static final StructLayout GAMMA_RAMPS = MemoryLayout.structLayout(JAVA_LONG.withName("red_size"),
+	                                                                          JAVA_LONG.withName("green_size"),
+	                                                                          JAVA_LONG.withName("blue_size"),
+	                                                                          ADDRESS.withName("red"),
+	                                                                          ADDRESS.withName("green"),
+	                                                                          ADDRESS.withName("blue"));
+
+	/**
+	 * The offset of <tt>partitions_available</tt> in {@link #SITE}
+	 */
+	private static final long SITE_PARTITIONS_AVAILABLE = SITE.byteOffset(groupElement("partitions_available"));
+
+	/**
+	 * The offset of <tt>crtcs_available</tt> in {@link #PARTITION}
+	 */
+	private static final long PARTITION_CRTCS_AVAILABLE = PARTITION.byteOffset(groupElement("crtcs_available"));
+
+	/**
+	 * The offset of <tt>red_size</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_RED_SIZE = GAMMA_RAMPS.byteOffset(groupElement("red_size"));
+
+	/**
+	 * The offset of <tt>green_size</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_GREEN_SIZE = GAMMA_RAMPS.byteOffset(groupElement("green_size"));
+
+	/**
+	 * The offset of <tt>blue_size</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_BLUE_SIZE = GAMMA_RAMPS.byteOffset(groupElement("blue_size"));
+
+	/**
+	 * The offset of <tt>red</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_RED = GAMMA_RAMPS.byteOffset(groupElement("red"));
+
+	/**
+	 * The offset of <tt>green</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_GREEN = GAMMA_RAMPS.byteOffset(groupElement("green"));
+
+	/**
+	 * The offset of <tt>blue</tt> in {@link #GAMMA_RAMPS}
+	 */
+	private static final long GAMMA_RAMPS_BLUE = GAMMA_RAMPS.byteOffset(groupElement("blue"));
+
+	/**
+	 * The layout of the state captured after calls into <tt>libgamma</tt>
+	 */
+	private static final StructLayout CALL_STATE = Linker.Option.captureStateLayout();
+
+	/**
+	 * The offset of <tt>errno</tt> in {@link #CALL_STATE}
+	 */
+	private static final long CALL_STATE_ERRNO = CALL_STATE.byteOffset(groupElement("errno"));
+
+	/**
+	 * Per-thread memory for {@link #CALL_STATE}
+	 */
+	private static final ThreadLocal<MemorySegment> call_state =
+		ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(CALL_STATE));
+
+
+	/**
+	 * <tt>malloc</tt> from the C standard library
+	 */
+	private static final MethodHandle MALLOC;
+
+	/**
+	 * <tt>free</tt> from the C standard library
+	 */
+	private static final MethodHandle FREE;
+
+	/**
+	 * <tt>libgamma_site_initialise</tt>
+	 */
+	private static final MethodHandle SITE_INITIALISE;
+
+	/**
+	 * <tt>libgamma_site_free</tt>
+	 */
+	private static final MethodHandle SITE_FREE;
+
+	/**
+	 * <tt>libgamma_site_restore</tt>
+	 */
+	private static final MethodHandle SITE_RESTORE;
+
+	/**
+	 * <tt>libgamma_partition_initialise</tt>
+	 */
+	private static final MethodHandle PARTITION_INITIALISE;
+
+	/**
+	 * <tt>libgamma_partition_free</tt>
+	 */
+	private static final MethodHandle PARTITION_FREE;
+
+	/**
+	 * <tt>libgamma_partition_restore</tt>
+	 */
+	private static final MethodHandle PARTITION_RESTORE;
+
+	/**
+	 * <tt>libgamma_crtc_initialise</tt>
+	 */
+	private static final MethodHandle CRTC_INITIALISE;
+
+	/**
+	 * <tt>libgamma_crtc_free</tt>
+	 */
+	private static final MethodHandle CRTC_FREE;
+
+	/**
+	 * <tt>libgamma_crtc_restore</tt>
+	 */
+	private static final MethodHandle CRTC_RESTORE;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_ramps8</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPS8;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_ramps8</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPS8;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_ramps16</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPS16;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_ramps16</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPS16;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_ramps32</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPS32;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_ramps32</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPS32;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_ramps64</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPS64;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_ramps64</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPS64;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_rampsf</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPSF;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_rampsf</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPSF;
+
+	/**
+	 * <tt>libgamma_crtc_get_gamma_rampsd</tt>
+	 */
+	private static final MethodHandle CRTC_GET_GAMMA_RAMPSD;
+
+	/**
+	 * <tt>libgamma_crtc_set_gamma_rampsd</tt>
+	 */
+	private static final MethodHandle CRTC_SET_GAMMA_RAMPSD;
+
+	/**
+	 * <tt>libgamma_gamma_ramps8_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS8_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps8_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS8_FREE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps16_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS16_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps16_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS16_FREE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps32_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS32_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps32_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS32_FREE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps64_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS64_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_ramps64_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPS64_FREE;
+
+	/**
+	 * <tt>libgamma_gamma_rampsf_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPSF_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_rampsf_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPSF_FREE;
+
+	/**
+	 * <tt>libgamma_gamma_rampsd_initialise</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPSD_INITIALISE;
+
+	/**
+	 * <tt>libgamma_gamma_rampsd_free</tt>
+	 */
+	private static final MethodHandle GAMMA_RAMPSD_FREE;
+
+
+	/**
+	 * Type initialiser
+	 * 
+	 * @throws  UnsupportedOperationException     If the platform is not 64-bit
+	 * @throws  java.util.NoSuchElementException  If a function is missing from <tt>libgamma</tt>
+	 */
+	static
+	{
+		if (ADDRESS.byteSize() != 8)
+			throw new UnsupportedOperationException("only 64-bit platforms are supported");
+
+		/* libgamma-java, which Backend has loaded, links to libgamma */
+		SymbolLookup libgamma = SymbolLookup.loaderLookup();
+		SymbolLookup libc = Linker.nativeLinker().defaultLookup();
+
+		MALLOC = downcall(libc, "malloc", true,  FunctionDescriptor.of(JAVA_LONG, JAVA_LONG));
+		FREE   = downcall(libc, "free",   false, FunctionDescriptor.ofVoid(JAVA_LONG));
+
+		SITE_INITIALISE          = downcall(libgamma, "libgamma_site_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_INT, JAVA_LONG));
+		SITE_FREE                = downcall(libgamma, "libgamma_site_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		SITE_RESTORE             = downcall(libgamma, "libgamma_site_restore", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		PARTITION_INITIALISE     = downcall(libgamma, "libgamma_partition_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG, JAVA_LONG));
+		PARTITION_FREE           = downcall(libgamma, "libgamma_partition_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		PARTITION_RESTORE        = downcall(libgamma, "libgamma_partition_restore", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		CRTC_INITIALISE          = downcall(libgamma, "libgamma_crtc_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG, JAVA_LONG));
+		CRTC_FREE                = downcall(libgamma, "libgamma_crtc_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		CRTC_RESTORE             = downcall(libgamma, "libgamma_crtc_restore", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPS8    = downcall(libgamma, "libgamma_crtc_get_gamma_ramps8", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPS8    = downcall(libgamma, "libgamma_crtc_set_gamma_ramps8", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPS16   = downcall(libgamma, "libgamma_crtc_get_gamma_ramps16", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPS16   = downcall(libgamma, "libgamma_crtc_set_gamma_ramps16", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPS32   = downcall(libgamma, "libgamma_crtc_get_gamma_ramps32", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPS32   = downcall(libgamma, "libgamma_crtc_set_gamma_ramps32", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPS64   = downcall(libgamma, "libgamma_crtc_get_gamma_ramps64", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPS64   = downcall(libgamma, "libgamma_crtc_set_gamma_ramps64", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPSF    = downcall(libgamma, "libgamma_crtc_get_gamma_rampsf", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPSF    = downcall(libgamma, "libgamma_crtc_set_gamma_rampsf", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_GET_GAMMA_RAMPSD    = downcall(libgamma, "libgamma_crtc_get_gamma_rampsd", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		CRTC_SET_GAMMA_RAMPSD    = downcall(libgamma, "libgamma_crtc_set_gamma_rampsd", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG, JAVA_LONG));
+		GAMMA_RAMPS8_INITIALISE  = downcall(libgamma, "libgamma_gamma_ramps8_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPS8_FREE        = downcall(libgamma, "libgamma_gamma_ramps8_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		GAMMA_RAMPS16_INITIALISE = downcall(libgamma, "libgamma_gamma_ramps16_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPS16_FREE       = downcall(libgamma, "libgamma_gamma_ramps16_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		GAMMA_RAMPS32_INITIALISE = downcall(libgamma, "libgamma_gamma_ramps32_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPS32_FREE       = downcall(libgamma, "libgamma_gamma_ramps32_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		GAMMA_RAMPS64_INITIALISE = downcall(libgamma, "libgamma_gamma_ramps64_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPS64_FREE       = downcall(libgamma, "libgamma_gamma_ramps64_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		GAMMA_RAMPSF_INITIALISE  = downcall(libgamma, "libgamma_gamma_rampsf_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPSF_FREE        = downcall(libgamma, "libgamma_gamma_rampsf_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+		GAMMA_RAMPSD_INITIALISE  = downcall(libgamma, "libgamma_gamma_rampsd_initialise", true, FunctionDescriptor.of(JAVA_INT, JAVA_LONG));
+		GAMMA_RAMPSD_FREE        = downcall(libgamma, "libgamma_gamma_rampsd_free", false, FunctionDescriptor.ofVoid(JAVA_LONG));
+	}
+
+
+	/**
+	 * Constructor
+	 */
+	ForeignBackend()
+	{
+	}
+
+
+	/**
+	 * Look up a function and create a downcall handle for it
+	 * 
+	 * @param   lookup      The library to look in
+	 * @param   name        The name of the function
+	 * @param   keep_errno  Whether <tt>errno</tt> shall be captured, if so
+	 *                      the handle takes the memory for {@link #CALL_STATE}
+	 *                      as its first argument
+	 * @param   function    The signature of the function
+	 * @return              The downcall handle
+	 */
+	private static MethodHandle downcall(SymbolLookup lookup, String name, boolean keep_errno, FunctionDescriptor function)
+	{
+		MemorySegment symbol = lookup.find(name).orElseThrow();
+		if (keep_errno)
+			return Linker.nativeLinker().downcallHandle(symbol, function, Linker.Option.captureCallState("errno"));
+		return Linker.nativeLinker().downcallHandle(symbol, function);
+	}
+
+	/**
+	 * Get the calling thread's memory for {@link #CALL_STATE}
+	 * 
+	 * @return  The memory to capture <tt>errno</tt> into
+	 */
+	private static MemorySegment call_state()
+	{
+		return call_state.get();
+	}
+
+	/**
+	 * Translate a return value from <tt>libgamma</tt> to an error code
+	 * 
+	 * @param   error_code  The error code returned from the failing function or zero to read <tt>errno</tt>
+	 * @return              The error code
+	 */
+	private static int errno(int error_code)
+	{
+		if ((error_code == LibgammaException.LIBGAMMA_ERRNO_SET) || (error_code == 0))
+			return call_state().get(JAVA_INT, CALL_STATE_ERRNO);
+		return error_code;
+	}
+
+	/**
+	 * Invoke a function that takes one pointer and returns an error code
+	 * 
+	 * @param   function  The function, created with <tt>keep_errno</tt> set
+	 * @param   address   The argument
+	 * @return            Zero on success, an error code on failure
+	 */
+	private static int invoke(MethodHandle function, long address)
+	{
+		int r;
+		try {
+			r = (int)(function.invokeExact(call_state(), address));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+		return r == 0 ? 0 : errno(r);
+	}
+
+	/**
+	 * Invoke a function that takes two pointers and returns an error code
+	 * 
+	 * @param   function  The function, created with <tt>keep_errno</tt> set
+	 * @param   address   The first argument
+	 * @param   ramps     The second argument
+	 * @return            Zero on success, an error code on failure
+	 */
+	private static int invoke(MethodHandle function, long address, long ramps)
+	{
+		int r;
+		try {
+			r = (int)(function.invokeExact(call_state(), address, ramps));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+		return r == 0 ? 0 : errno(r);
+	}
+
+	/**
+	 * Invoke a function that takes one pointer and returns nothing
+	 * 
+	 * @param  function  The function, created without <tt>keep_errno</tt>
+	 * @param  address   The argument
+	 */
+	private static void invoke_void(MethodHandle function, long address)
+	{
+		try {
+			function.invokeExact(address);
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+	}
+
+	/**
+	 * Allocate memory with <tt>malloc</tt>
+	 * 
+	 * @param   size  The number of bytes to allocate
+	 * @return        The address of the memory, zero on failure
+	 */
+	private static long malloc(long size)
+	{
+		try {
+			return (long)(MALLOC.invokeExact(call_state(), size));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+	}
+
+	/**
+	 * Free memory allocated with {@link #malloc}
+	 * 
+	 * @param  address  The address of the memory
+	 */
+	private static void free(long address)
+	{
+		invoke_void(FREE, address);
+	}
+
+	/**
+	 * Report failure to create an object
+	 * 
+	 * @param  out    The output array of the create function
+	 * @param  index  The index of the error code in <tt>out</tt>,
+	 *                all elements before it are set to zero
+	 * @param  error  The error code
+	 */
+	private static void fail(long[] out, int index, long error)
+	{
+		for (int i = 0; i < index; i++)
+			out[i] = 0;
+		out[index] = error;
+	}
+
+	/**
+	 * Create and initialise a gamma ramp
+	 * 
+	 * @param   initialise  <tt>libgamma_gamma_ramps*_initialise</tt> for the depth
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         See {@link Backend#libgamma_gamma_ramps8_create}
+	 */
+	private static void ramps_create(MethodHandle initialise, int red_size, int green_size, int blue_size, long[] out)
+	{
+		long ramps = malloc(GAMMA_RAMPS.byteSize());
+		int r;
+		if (ramps == 0) {
+			fail(out, 4, errno(0));
+			return;
+		}
+		MEMORY.set(JAVA_LONG, ramps + GAMMA_RAMPS_RED_SIZE, (long)red_size);
+		MEMORY.set(JAVA_LONG, ramps + GAMMA_RAMPS_GREEN_SIZE, (long)green_size);
+		MEMORY.set(JAVA_LONG, ramps + GAMMA_RAMPS_BLUE_SIZE, (long)blue_size);
+		r = invoke(initialise, ramps);
+		if (r != 0) {
+			free(ramps);
+			fail(out, 4, r);
+			return;
+		}
+		out[0] = ramps;
+		out[1] = MEMORY.get(JAVA_LONG, ramps + GAMMA_RAMPS_RED);
+		out[2] = MEMORY.get(JAVA_LONG, ramps + GAMMA_RAMPS_GREEN);
+		out[3] = MEMORY.get(JAVA_LONG, ramps + GAMMA_RAMPS_BLUE);
+		out[4] = 0;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_site_create(int method, String site, long[] out)
+	{
+		long state = malloc(SITE.byteSize());
+		long site_ = 0;
+		int r;
+		if (site != null) {
+			byte[] bytes = site.getBytes(StandardCharsets.UTF_8);
+			site_ = malloc(bytes.length + 1);
+			if (site_ == 0) {
+				free(state);
+				fail(out, 2, errno(0));
+				return;
+			}
+			MemorySegment.copy(bytes, 0, MEMORY, JAVA_BYTE, site_, bytes.length);
+			MEMORY.set(JAVA_BYTE, site_ + bytes.length, (byte)0);
+		}
+		if (state == 0) {
+			fail(out, 2, errno(0));
+			return;
+		}
+		try {
+			r = (int)(SITE_INITIALISE.invokeExact(call_state(), state, method, site_));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+		if (r != 0) {
+			free(state);
+			fail(out, 2, errno(r));
+			return;
+		}
+		out[0] = state;
+		out[1] = MEMORY.get(JAVA_LONG, state + SITE_PARTITIONS_AVAILABLE);
+		out[2] = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_site_free(long address)
+	{
+		invoke_void(SITE_FREE, address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_site_restore(long address)
+	{
+		return invoke(SITE_RESTORE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_partition_create(long site, int partition, long[] out)
+	{
+		long state = malloc(PARTITION.byteSize());
+		int r;
+		if (state == 0) {
+			fail(out, 2, errno(0));
+			return;
+		}
+		try {
+			r = (int)(PARTITION_INITIALISE.invokeExact(call_state(), state, site, (long)partition));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+		if (r != 0) {
+			free(state);
+			fail(out, 2, errno(r));
+			return;
+		}
+		out[0] = state;
+		out[1] = MEMORY.get(JAVA_LONG, state + PARTITION_CRTCS_AVAILABLE);
+		out[2] = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_partition_free(long address)
+	{
+		invoke_void(PARTITION_FREE, address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_partition_restore(long address)
+	{
+		return invoke(PARTITION_RESTORE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_crtc_create(long partition, int crtc, long[] out)
+	{
+		long state = malloc(CRTC.byteSize());
+		int r;
+		if (state == 0) {
+			fail(out, 1, errno(0));
+			return;
+		}
+		try {
+			r = (int)(CRTC_INITIALISE.invokeExact(call_state(), state, partition, (long)crtc));
+		} catch (Throwable err) {
+			throw new Error(err);
+		}
+		if (r != 0) {
+			free(state);
+			fail(out, 1, errno(r));
+			return;
+		}
+		out[0] = state;
+		out[1] = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_crtc_free(long address)
+	{
+		invoke_void(CRTC_FREE, address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_restore(long address)
+	{
+		return invoke(CRTC_RESTORE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps8(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPS8, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps8(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPS8, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps16(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPS16, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps16(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPS16, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps32(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPS32, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps32(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPS32, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps64(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPS64, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps64(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPS64, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_rampsf(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPSF, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_rampsf(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPSF, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_rampsd(long address, long ramps)
+	{
+		return invoke(CRTC_GET_GAMMA_RAMPSD, address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_rampsd(long address, long ramps)
+	{
+		return invoke(CRTC_SET_GAMMA_RAMPSD, address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPS8_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_free(long address)
+	{
+		invoke_void(GAMMA_RAMPS8_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPS16_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_free(long address)
+	{
+		invoke_void(GAMMA_RAMPS16_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPS32_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_free(long address)
+	{
+		invoke_void(GAMMA_RAMPS32_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPS64_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_free(long address)
+	{
+		invoke_void(GAMMA_RAMPS64_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPSF_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_free(long address)
+	{
+		invoke_void(GAMMA_RAMPSF_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		ramps_create(GAMMA_RAMPSD_INITIALISE, red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_free(long address)
+	{
+		invoke_void(GAMMA_RAMPSD_FREE, address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	short libgamma_gamma_ramps8_get(long address, int stop)
+	{
+		return (short)(MEMORY.get(JAVA_BYTE, address + stop) & 0xFF);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_set(long address, int stop, short value)
+	{
+		MEMORY.set(JAVA_BYTE, address + stop, (byte)value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_get_region(long address, int from, byte[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_BYTE, address + from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_set_region(long address, int from, byte[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_BYTE, address + from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_gamma_ramps16_get(long address, int stop)
+	{
+		return MEMORY.get(JAVA_SHORT, address + 2L * stop) & 0xFFFF;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_set(long address, int stop, int value)
+	{
+		MEMORY.set(JAVA_SHORT, address + 2L * stop, (short)value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_get_region(long address, int from, short[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_SHORT, address + 2L * from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_set_region(long address, int from, short[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_SHORT, address + 2L * from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	long libgamma_gamma_ramps32_get(long address, int stop)
+	{
+		return MEMORY.get(JAVA_INT, address + 4L * stop) & 0xFFFFFFFFL;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_set(long address, int stop, long value)
+	{
+		MEMORY.set(JAVA_INT, address + 4L * stop, (int)value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_get_region(long address, int from, int[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_INT, address + 4L * from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_set_region(long address, int from, int[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_INT, address + 4L * from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	long libgamma_gamma_ramps64_get(long address, int stop)
+	{
+		return MEMORY.get(JAVA_LONG, address + 8L * stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_set(long address, int stop, long value)
+	{
+		MEMORY.set(JAVA_LONG, address + 8L * stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_get_region(long address, int from, long[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_LONG, address + 8L * from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_set_region(long address, int from, long[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_LONG, address + 8L * from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	float libgamma_gamma_rampsf_get(long address, int stop)
+	{
+		return MEMORY.get(JAVA_FLOAT, address + 4L * stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_set(long address, int stop, float value)
+	{
+		MEMORY.set(JAVA_FLOAT, address + 4L * stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_get_region(long address, int from, float[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_FLOAT, address + 4L * from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_set_region(long address, int from, float[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_FLOAT, address + 4L * from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	double libgamma_gamma_rampsd_get(long address, int stop)
+	{
+		return MEMORY.get(JAVA_DOUBLE, address + 8L * stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_set(long address, int stop, double value)
+	{
+		MEMORY.set(JAVA_DOUBLE, address + 8L * stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_get_region(long address, int from, double[] dst, int off, int len)
+	{
+		MemorySegment.copy(MEMORY, JAVA_DOUBLE, address + 8L * from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_set_region(long address, int from, double[] src, int off, int len)
+	{
+		MemorySegment.copy(src, off, MEMORY, JAVA_DOUBLE, address + 8L * from, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	ByteBuffer libgamma_gamma_ramp_buffer(long address, long capacity)
+	{
+		return MEMORY.asSlice(address, capacity).asByteBuffer();
+	}
+}
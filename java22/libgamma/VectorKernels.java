@@ -0,0 +1,465 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * The kernels of {@link RampKernels}, implemented
+ * with the incubating Vector API
+ * <p>
+ * This class is only compiled for, and only loaded on, Java 22
+ * and newer, and only if the module <tt>jdk.incubator.vector</tt>
+ * has been added, see {@link Kernels}. All arithmetic is done on
+ * vectors of the preferred species of doubles, in the same order
+ * as in {@link RampKernels}, and the stops are loaded and stored
+ * with vectors of the same number of lanes, so that each lane is
+ * converted on its own.
+ */
+final class VectorKernels extends Kernels
+{
+	/**
+	 * The species of the vectors the arithmetic is done on
+	 */
+	private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+
+	/**
+	 * The species for 16-bit stops, with as many lanes as {@link #D};
+	 * vectors of fewer than 4 doubles have no such species, and the
+	 * class then fails to initialise, so that it is not used
+	 */
+	private static final VectorSpecies<Short> S = VectorSpecies.of(short.class, VectorShape.forBitSize(16 * D.length()));
+
+	/**
+	 * The species for 32-bit stops, with as many lanes as {@link #D}
+	 */
+	private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, VectorShape.forBitSize(32 * D.length()));
+
+	/**
+	 * The species for single precision floating point stops, with as many lanes as {@link #D}
+	 */
+	private static final VectorSpecies<Float> F = VectorSpecies.of(float.class, VectorShape.forBitSize(32 * D.length()));
+
+	/**
+	 * The species that 32-bit stops are converted through, with as many lanes as {@link #D}
+	 */
+	private static final VectorSpecies<Long> L = VectorSpecies.of(long.class, D.vectorShape());
+
+	/**
+	 * The index of each lane
+	 */
+	private static final DoubleVector IOTA = DoubleVector.zero(D).addIndex(1);
+
+	/**
+	 * The byte order of the memory of the ramps
+	 */
+	private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+
+	/**
+	 * Constructor
+	 */
+	VectorKernels()
+	{
+	}
+
+
+	/**
+	 * Clamp values to [0, 1]
+	 * 
+	 * @param   x  The values
+	 * @return     The values clamped to [0, 1], 0 where they are NaN
+	 */
+	private static DoubleVector clamp(DoubleVector x)
+	{
+		return DoubleVector.zero(D).blend(x.min(1.), x.compare(VectorOperators.GT, 0.));
+	}
+
+	/**
+	 * Apply the curve of the kernels to values
+	 * 
+	 * @param   x         The values
+	 * @param   gain      The multiplier
+	 * @param   offset    The value to add after the multiplication
+	 * @param   exponent  The exponent, 1 for none
+	 * @return            <tt>x<sup>exponent</sup> × gain + offset</tt>
+	 */
+	private static DoubleVector curve(DoubleVector x, double gain, double offset, double exponent)
+	{
+		if (exponent != 1)
+			x = x.lanewise(VectorOperators.POW, exponent);
+		return x.mul(gain).add(offset);
+	}
+
+	/**
+	 * Get the positions of the stops in a generated curve
+	 * 
+	 * @param   i     The index, relative to the first stop, of the first lane
+	 * @param   step  The distance between two stops
+	 * @return        The position of each stop, in [0, 1]
+	 */
+	private static DoubleVector position(int i, double step)
+	{
+		return IOTA.add(i).mul(step);
+	}
+
+	/**
+	 * Get the distance between the stops in a generated curve
+	 * 
+	 * @param   len  The number of stops
+	 * @return       The distance between two stops
+	 */
+	private static double step(int len)
+	{
+		return len > 1 ? 1. / (len - 1) : 0;
+	}
+
+	/**
+	 * Get the memory of a buffer, if the vectors can load from and store to it
+	 * 
+	 * @param   buffer  The buffer
+	 * @param   order   The byte order of the buffer
+	 * @return          The memory of the whole buffer, from index 0 to its
+	 *                  capacity, {@code null} if the buffer is not direct,
+	 *                  not writable, or not in native byte order
+	 */
+	private static MemorySegment memory(Buffer buffer, ByteOrder order)
+	{
+		if (!buffer.isDirect() || buffer.isReadOnly() || (order != ORDER))
+			return null;
+		return MemorySegment.ofBuffer(buffer.duplicate().clear());
+	}
+
+
+	/**
+	 * Convert 16-bit stops to [0, 1]
+	 * 
+	 * @param   v  The stops
+	 * @return     The values of the stops in [0, 1]
+	 */
+	private static DoubleVector decode(ShortVector v)
+	{
+		DoubleVector x = (DoubleVector)v.convertShape(VectorOperators.S2D, D, 0);
+		return x.add(0x10000, x.compare(VectorOperators.LT, 0.)).mul(1. / 0xFFFF);
+	}
+
+	/**
+	 * Convert 32-bit stops to [0, 1]
+	 * 
+	 * @param   v  The stops
+	 * @return     The values of the stops in [0, 1]
+	 */
+	private static DoubleVector decode(IntVector v)
+	{
+		DoubleVector x = (DoubleVector)v.convertShape(VectorOperators.I2D, D, 0);
+		return x.add(0x1p32, x.compare(VectorOperators.LT, 0.)).mul(1. / 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Convert single precision floating point stops to doubles
+	 * 
+	 * @param   v  The stops
+	 * @return     The values of the stops
+	 */
+	private static DoubleVector decode(FloatVector v)
+	{
+		return (DoubleVector)v.convertShape(VectorOperators.F2D, D, 0);
+	}
+
+	/**
+	 * Convert values in [0, 1] to 16-bit stops
+	 * 
+	 * @param   x  The values, will be clamped
+	 * @return     The stops
+	 */
+	private static ShortVector encode16(DoubleVector x)
+	{
+		return (ShortVector)clamp(x).mul(0xFFFF).add(0.5).convertShape(VectorOperators.D2S, S, 0);
+	}
+
+	/**
+	 * Convert values in [0, 1] to 32-bit stops
+	 * 
+	 * @param   x  The values, will be clamped
+	 * @return     The stops
+	 */
+	private static IntVector encode32(DoubleVector x)
+	{
+		/* Through longs, as a conversion to int saturates at 2^31 - 1. */
+		return (IntVector)clamp(x).mul(0xFFFFFFFFL).add(0.5).convertShape(VectorOperators.D2L, L, 0)
+		                                                    .convertShape(VectorOperators.L2I, I, 0);
+	}
+
+	/**
+	 * Convert values in [0, 1] to single precision floating point stops
+	 * 
+	 * @param   x  The values, will be clamped
+	 * @return     The stops
+	 */
+	private static FloatVector encodef(DoubleVector x)
+	{
+		return (FloatVector)clamp(x).convertShape(VectorOperators.D2F, F, 0);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(short[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		int n = D.loopBound(len);
+		for (int i = off, end = off + n; i < end; i += D.length())
+			encode16(curve(decode(ShortVector.fromArray(S, channel, i)), gain, offset, exponent)).intoArray(channel, i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(short[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode16(curve(position(i, step), gain, offset, exponent)).intoArray(channel, off + i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(int[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		int n = D.loopBound(len);
+		for (int i = off, end = off + n; i < end; i += D.length())
+			encode32(curve(decode(IntVector.fromArray(I, channel, i)), gain, offset, exponent)).intoArray(channel, i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(int[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode32(curve(position(i, step), gain, offset, exponent)).intoArray(channel, off + i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(float[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		int n = D.loopBound(len);
+		for (int i = off, end = off + n; i < end; i += D.length())
+			encodef(curve(decode(FloatVector.fromArray(F, channel, i)), gain, offset, exponent)).intoArray(channel, i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(float[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encodef(curve(position(i, step), gain, offset, exponent)).intoArray(channel, off + i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(double[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		int n = D.loopBound(len);
+		for (int i = off, end = off + n; i < end; i += D.length())
+			clamp(curve(DoubleVector.fromArray(D, channel, i), gain, offset, exponent)).intoArray(channel, i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(double[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			clamp(curve(position(i, step), gain, offset, exponent)).intoArray(channel, off + i);
+		return n;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(ShortBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		int n = D.loopBound(len);
+		for (long i = off, end = off + n; i < end; i += D.length())
+			encode16(curve(decode(ShortVector.fromMemorySegment(S, memory, i * 2, ORDER)), gain, offset, exponent))
+				.intoMemorySegment(memory, i * 2, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(ShortBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode16(curve(position(i, step), gain, offset, exponent)).intoMemorySegment(memory, (long)(off + i) * 2, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(IntBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		int n = D.loopBound(len);
+		for (long i = off, end = off + n; i < end; i += D.length())
+			encode32(curve(decode(IntVector.fromMemorySegment(I, memory, i * 4, ORDER)), gain, offset, exponent))
+				.intoMemorySegment(memory, i * 4, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(IntBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode32(curve(position(i, step), gain, offset, exponent)).intoMemorySegment(memory, (long)(off + i) * 4, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(FloatBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		int n = D.loopBound(len);
+		for (long i = off, end = off + n; i < end; i += D.length())
+			encodef(curve(decode(FloatVector.fromMemorySegment(F, memory, i * 4, ORDER)), gain, offset, exponent))
+				.intoMemorySegment(memory, i * 4, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(FloatBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encodef(curve(position(i, step), gain, offset, exponent)).intoMemorySegment(memory, (long)(off + i) * 4, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int transform(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		int n = D.loopBound(len);
+		for (long i = off, end = off + n; i < end; i += D.length())
+			clamp(curve(DoubleVector.fromMemorySegment(D, memory, i * 8, ORDER), gain, offset, exponent))
+				.intoMemorySegment(memory, i * 8, ORDER);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int generate(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		MemorySegment memory = memory(channel, channel.order());
+		if (memory == null)
+			return 0;
+		double step = step(len);
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			clamp(curve(position(i, step), gain, offset, exponent)).intoMemorySegment(memory, (long)(off + i) * 8, ORDER);
+		return n;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int quantise(double[] src, int src_off, short[] dst, int dst_off, int len)
+	{
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode16(DoubleVector.fromArray(D, src, src_off + i)).intoArray(dst, dst_off + i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int quantise(double[] src, int src_off, int[] dst, int dst_off, int len)
+	{
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encode32(DoubleVector.fromArray(D, src, src_off + i)).intoArray(dst, dst_off + i);
+		return n;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int quantise(double[] src, int src_off, float[] dst, int dst_off, int len)
+	{
+		int n = D.loopBound(len);
+		for (int i = 0; i < n; i += D.length())
+			encodef(DoubleVector.fromArray(D, src, src_off + i)).intoArray(dst, dst_off + i);
+		return n;
+	}
+}
@@ -0,0 +1,245 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * A transition of the gamma ramps of a CRTC, run by a {@link GammaAnimator}
+ */
+public final class Animation
+{
+	/**
+	 * Constructor for an animation between two gamma ramps
+	 * 
+	 * @param  crtc      The CRTC
+	 * @param  from      The gamma ramps to start with, owned by the animation
+	 * @param  to        The gamma ramps to end with, owned by the animation
+	 * @param  output    The gamma ramps to apply, owned by the animation
+	 * @param  start     The value of {@link System#nanoTime} at the start of the animation
+	 * @param  duration  The duration of the animation, in nanoseconds
+	 * @param  easing    The easing curve, see {@link GammaAnimator#ease}
+	 */
+	Animation(CRTC crtc, GammaRamps<? extends Ramp> from, GammaRamps<? extends Ramp> to,
+	          GammaRamps<? extends Ramp> output, long start, long duration, int easing)
+	{
+		this(crtc, from, to, output, null, null, null, null, start, duration, easing);
+	}
+
+	/**
+	 * Constructor for an animation between two parameter sets
+	 * 
+	 * @param  crtc       The CRTC
+	 * @param  output     The gamma ramps to apply, owned by the caller
+	 * @param  from       The parameters to start with
+	 * @param  to         The parameters to end with
+	 * @param  generator  The function that fills the gamma ramps from the parameters
+	 * @param  start      The value of {@link System#nanoTime} at the start of the animation
+	 * @param  duration   The duration of the animation, in nanoseconds
+	 * @param  easing     The easing curve, see {@link GammaAnimator#ease}
+	 */
+	Animation(CRTC crtc, GammaRamps<? extends Ramp> output, double[] from, double[] to,
+	          GammaRampsGenerator generator, long start, long duration, int easing)
+	{
+		this(crtc, null, null, output, from.clone(), to.clone(), new double[from.length], generator, start, duration, easing);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  crtc         The CRTC
+	 * @param  from_ramps   The gamma ramps to start with, {@code null} for parameter sets
+	 * @param  to_ramps     The gamma ramps to end with, {@code null} for parameter sets
+	 * @param  output       The gamma ramps to apply
+	 * @param  from_params  The parameters to start with, {@code null} for gamma ramps
+	 * @param  to_params    The parameters to end with, {@code null} for gamma ramps
+	 * @param  params       Buffer for the interpolated parameters, {@code null} for gamma ramps
+	 * @param  generator    The function that fills the gamma ramps, {@code null} for gamma ramps
+	 * @param  start        The value of {@link System#nanoTime} at the start of the animation
+	 * @param  duration     The duration of the animation, in nanoseconds
+	 * @param  easing       The easing curve, see {@link GammaAnimator#ease}
+	 */
+	private Animation(CRTC crtc, GammaRamps<? extends Ramp> from_ramps, GammaRamps<? extends Ramp> to_ramps,
+	                  GammaRamps<? extends Ramp> output, double[] from_params, double[] to_params, double[] params,
+	                  GammaRampsGenerator generator, long start, long duration, int easing)
+	{
+		this.crtc = crtc;
+		this.from_ramps = from_ramps;
+		this.to_ramps = to_ramps;
+		this.output = output;
+		this.from_params = from_params;
+		this.to_params = to_params;
+		this.params = params;
+		this.generator = generator;
+		this.start = start;
+		this.duration = duration;
+		this.easing = easing;
+	}
+
+
+	/**
+	 * The CRTC whose gamma ramps are animated
+	 */
+	public final CRTC crtc;
+
+	/**
+	 * The duration of the animation, in nanoseconds
+	 */
+	public final long duration;
+
+	/**
+	 * The easing curve, see {@link GammaAnimator#ease}
+	 */
+	public final int easing;
+
+	/**
+	 * The value of {@link System#nanoTime} at the start of the animation
+	 */
+	private final long start;
+
+	/**
+	 * The gamma ramps to start with, {@code null} for parameter sets
+	 */
+	private final GammaRamps<? extends Ramp> from_ramps;
+
+	/**
+	 * The gamma ramps to end with, {@code null} for parameter sets
+	 */
+	private final GammaRamps<? extends Ramp> to_ramps;
+
+	/**
+	 * The gamma ramps to apply
+	 */
+	private final GammaRamps<? extends Ramp> output;
+
+	/**
+	 * The parameters to start with, {@code null} for gamma ramps
+	 */
+	private final double[] from_params;
+
+	/**
+	 * The parameters to end with, {@code null} for gamma ramps
+	 */
+	private final double[] to_params;
+
+	/**
+	 * Buffer for the interpolated parameters, {@code null} for gamma ramps
+	 */
+	private final double[] params;
+
+	/**
+	 * The function that fills the gamma ramps, {@code null} for gamma ramps
+	 */
+	private final GammaRampsGenerator generator;
+
+	/**
+	 * Completes when the animation has finished
+	 */
+	private final CompletableFuture<Void> finished = new CompletableFuture<Void>();
+
+	/**
+	 * The unclamped progress of the animation at the last frame
+	 */
+	private volatile double progress = 0;
+
+
+	/**
+	 * Get the completion of the animation
+	 * 
+	 * @return  Completes with {@code null} when the last frame has been applied,
+	 *          exceptionally with the error if gamma ramps could not be applied,
+	 *          or as cancelled if the animation was cancelled or replaced
+	 */
+	public CompletableFuture<Void> finished()
+	{
+		return this.finished;
+	}
+
+	/**
+	 * Stop the animation, leaving the gamma ramps of
+	 * the CRTC as they were at the last frame
+	 * <p>
+	 * The animation is removed at the next frame.
+	 */
+	public void cancel()
+	{
+		this.finished.cancel(false);
+	}
+
+	/**
+	 * Get how far the animation has come
+	 * 
+	 * @return  The time at the last frame, between 0 at the start and 1 at the end
+	 */
+	public double progress()
+	{
+		return Math.min(this.progress, 1);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<Animation: crtc = " + this.crtc.toString() + ", " +
+		       "duration = " + Long.toString(this.duration) + ", " +
+		       "easing = " + Integer.toString(this.easing) + ", " +
+		       "progress = " + Double.toString(this.progress()) + ">";
+	}
+
+
+	/**
+	 * Apply a frame of the animation, and complete the animation if
+	 * it was the last frame or if the gamma ramps could not be applied;
+	 * called only by the timer thread of the animator
+	 * 
+	 * @param   now  The value of {@link System#nanoTime} at the frame
+	 * @return       Whether the animation has finished
+	 */
+	boolean render(long now)
+	{
+		if (this.finished.isDone())
+			return true;
+		double t = this.duration > 0 ? (double)(now - this.start) / (double)(this.duration) : 1;
+		double e = GammaAnimator.ease(this.easing, t < 0 ? 0 : t > 1 ? 1 : t);
+		try {
+			if (this.generator == null) {
+				if (t >= 1)
+					this.to_ramps.convert_into(this.output);
+				else
+					this.output.mix_from(this.from_ramps, this.to_ramps, e);
+			} else {
+				for (int i = 0; i < this.params.length; i++)
+					this.params[i] = t >= 1 ? this.to_params[i] : this.from_params[i] + (this.to_params[i] - this.from_params[i]) * e;
+				this.generator.generate(this.output, this.params);
+			}
+			this.crtc.set_gamma(this.output);
+		} catch (LibgammaException err) {
+			this.finished.completeExceptionally(err);
+			return true;
+		} catch (RuntimeException err) {
+			this.finished.completeExceptionally(err);
+			return true;
+		}
+		this.progress = t;
+		if (t < 1)
+			return false;
+		this.finished.complete(null);
+		return true;
+	}
+
+	/**
+	 * Cancel the animation if it has not finished, and release the
+	 * gamma ramps it owns; called only by the timer thread of the animator
+	 */
+	void release()
+	{
+		this.finished.cancel(false);
+		if (this.generator == null) {
+			this.from_ramps.close();
+			this.to_ramps.close();
+			this.output.close();
+		}
+	}
+}
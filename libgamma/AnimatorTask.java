@@ -0,0 +1,34 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+
+/**
+ * The timer thread of a {@link GammaAnimator}
+ */
+final class AnimatorTask implements Runnable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  animator  The animator
+	 */
+	AnimatorTask(GammaAnimator animator)
+	{
+		this.animator = animator;
+	}
+
+
+	/**
+	 * The animator
+	 */
+	private final GammaAnimator animator;
+
+
+	/**
+	 * Run the animations of the animator, see {@link GammaAnimator#loop}
+	 */
+	public void run()
+	{
+		this.animator.loop();
+	}
+}
@@ -0,0 +1,123 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * The work of one worker of a {@link ParallelApplier} for one call to
+ * {@link ParallelApplier#apply}: applying gamma ramps to a group of CRTC:s
+ */
+final class ApplierTask implements Runnable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  crtcs      All CRTC:s passed to {@link ParallelApplier#apply}
+	 * @param  ramps      All gamma ramps passed to {@link ParallelApplier#apply}
+	 * @param  indices    The indices, in <tt>crtcs</tt> and <tt>ramps</tt>, of the group
+	 * @param  errors     The error codes of all CRTC:s
+	 * @param  remaining  The number of groups that have not been completed
+	 * @param  result     The completion of all groups
+	 */
+	ApplierTask(CRTC[] crtcs, GammaRamps<?>[] ramps, int[] indices, int[] errors,
+	            AtomicInteger remaining, CompletableFuture<int[]> result)
+	{
+		this.crtcs = crtcs;
+		this.ramps = ramps;
+		this.indices = indices;
+		this.errors = errors;
+		this.remaining = remaining;
+		this.result = result;
+	}
+
+
+	/**
+	 * All CRTC:s passed to {@link ParallelApplier#apply}
+	 */
+	private final CRTC[] crtcs;
+
+	/**
+	 * All gamma ramps passed to {@link ParallelApplier#apply}
+	 */
+	private final GammaRamps<?>[] ramps;
+
+	/**
+	 * The indices, in {@link #crtcs} and {@link #ramps}, of the group
+	 */
+	private final int[] indices;
+
+	/**
+	 * The error codes of all CRTC:s
+	 */
+	private final int[] errors;
+
+	/**
+	 * The number of groups that have not been completed
+	 */
+	private final AtomicInteger remaining;
+
+	/**
+	 * The completion of all groups
+	 */
+	private final CompletableFuture<int[]> result;
+
+
+	/**
+	 * Apply the gamma ramps of the group, one partition at a time
+	 */
+	public void run()
+	{
+		try {
+			int n = this.indices.length;
+			boolean[] done = new boolean[n];
+			CRTC[] crtcs = new CRTC[n];
+			GammaRamps<?>[] ramps = new GammaRamps<?>[n];
+			int[] indices = new int[n];
+			int[] errors = new int[n];
+			for (int first = 0; first < n; first++) {
+				if (done[first])
+					continue;
+				Partition partition = this.crtcs[this.indices[first]].partition;
+				int count = 0;
+				for (int i = first; i < n; i++) {
+					int index = this.indices[i];
+					if (!done[i] && (this.crtcs[index].partition == partition)) {
+						done[i] = true;
+						crtcs[count] = this.crtcs[index];
+						ramps[count] = this.ramps[index];
+						indices[count++] = index;
+					}
+				}
+				partition.set_gamma_all(Arrays.copyOf(crtcs, count), Arrays.copyOf(ramps, count), errors);
+				for (int i = 0; i < count; i++)
+					this.errors[indices[i]] = errors[i];
+			}
+		} catch (RuntimeException err) {
+			this.result.completeExceptionally(err);
+			return;
+		} catch (Error err) {
+			this.result.completeExceptionally(err);
+			throw err;
+		}
+		/* The errors written by this thread are visible to the thread
+		 * that completes the result, as decrementAndGet is a volatile
+		 * read and write. */
+		if (this.remaining.decrementAndGet() == 0)
+			this.result.complete(this.errors);
+	}
+
+	/**
+	 * Complete {@link #result} exceptionally, with a
+	 * {@link CancellationException}, without applying the
+	 * gamma ramps, because the site was closed before the
+	 * group was started
+	 */
+	void cancel()
+	{
+		this.result.completeExceptionally(new CancellationException("the site has been closed"));
+	}
+}
@@ -0,0 +1,670 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * The calls into <tt>libgamma</tt>
+ * <p>
+ * By default the calls go through the JNI library <tt>libgamma-java</tt>,
+ * see {@link JNIBackend}. On Java 22 and newer, the multi-release jar
+ * also contains an implementation that uses the Foreign Function &amp;
+ * Memory API to call <tt>libgamma</tt> directly; it is used when it can
+ * be loaded, unless the system property <tt>libgamma.backend</tt> is
+ * set to <tt>jni</tt>. Only the selected implementation is ever loaded,
+ * so calls through {@link #INSTANCE} are monomorphic.
+ * <p>
+ * The Foreign Function &amp; Memory implementation is only in the jar
+ * if it was built with <tt>FFM_CLASS</tt> set, see <tt>config.mk</tt>.
+ * It uses restricted methods, so unless the JVM is started with
+ * <tt>--enable-native-access=ALL-UNNAMED</tt> (the jar is normally on
+ * the class path, and thus in the unnamed module), Java prints a
+ * warning about restricted methods the first time it is loaded, and
+ * future Java releases may refuse to run it; in that case the JNI
+ * implementation is used instead.
+ */
+abstract class Backend
+{
+	/**
+	 * Type initialiser
+	 */
+	static
+	{
+		Libgamma.initialise();
+	}
+
+
+	/**
+	 * The implementation in use
+	 */
+	static final Backend INSTANCE = Backend.select();
+
+	/**
+	 * Per-thread array that the create functions write their results to
+	 */
+	private static final ThreadLocal<long[]> results = new ThreadLocal<long[]>();
+
+
+	/**
+	 * Get the calling thread's array for the results of a create function
+	 * <p>
+	 * The array is reused by every create call on the thread, so its
+	 * elements must be read before the next create call is made
+	 * 
+	 * @return  An array large enough for the results of any create function
+	 */
+	static long[] results()
+	{
+		long[] r = Backend.results.get();
+		if (r == null)
+			Backend.results.set(r = new long[5]);
+		return r;
+	}
+
+
+	/**
+	 * Select the implementation to use
+	 * 
+	 * @return  The Foreign Function &amp; Memory implementation if it
+	 *          is available and not disabled, the JNI implementation
+	 *          otherwise
+	 */
+	private static Backend select()
+	{
+		if (!"jni".equals(System.getProperty("libgamma.backend")))
+			try {
+				Class<?> foreign = Class.forName("libgamma.ForeignBackend");
+				return (Backend)(foreign.getDeclaredConstructor().newInstance());
+			} catch (Throwable err) {
+				/* Not running on Java 22 or newer, or libgamma could not be linked. */
+			}
+		return new JNIBackend();
+	}
+
+
+	/**
+	 * Create a site state
+	 * 
+	 * @param   method  The adjustment method (display server and protocol)
+	 * @param   site    The site identifier
+	 * @param   out     Element 0: The address of the site state<br>
+	 *                  Element 1: The number of partitions on the site<br>
+	 *                  Element 2: Error code, zero on success
+	 */
+	abstract void libgamma_site_create(int method, String site, long[] out);
+
+	/**
+	 * Release all resources held by a site state
+	 * and free the site state pointer
+	 * 
+	 * @param  address  The site state
+	 */
+	abstract void libgamma_site_free(long address);
+
+	/**
+	 * Restore the gamma ramps all CRTC:s within a site to the system settings
+	 * 
+	 * @param   address  The site state
+	 * @return           Zero on success, and error code on failure
+	 */
+	abstract int libgamma_site_restore(long address);
+
+
+	/**
+	 * Create a partition state
+	 * 
+	 * @param   site       The site state for the site that the partition belongs to
+	 * @param   partition  The index of the partition within the site
+	 * @param   out        Element 0: The address of the partition state<br>
+	 *                     Element 1: The number of CRTC:s in the partition<br>
+	 *                     Element 2: Error code, zero on success
+	 */
+	abstract void libgamma_partition_create(long site, int partition, long[] out);
+
+	/**
+	 * Release all resources held by a partition state
+	 * and free the partition state pointer
+	 * 
+	 * @param  address  The partition state
+	 */
+	abstract void libgamma_partition_free(long address);
+
+	/**
+	 * Restore the gamma ramps all CRTC:s within a partition to the system settings
+	 * 
+	 * @param   address  The partition state
+	 * @return           Zero on success, and error code on failure
+	 */
+	abstract int libgamma_partition_restore(long address);
+
+
+	/**
+	 * Create a CRTC state
+	 * 
+	 * @param   partition  The partition state for the partition that the CRTC belongs to
+	 * @param   crtc       The index of the CRTC within the partition
+	 * @param   out        Element 0: The address of the CRTC state<br>
+	 *                     Element 1: Error code, zero on success
+	 */
+	abstract void libgamma_crtc_create(long partition, int crtc, long[] out);
+
+	/**
+	 * Release all resources held by a CRTC state
+	 * and free the CRTC state pointer
+	 * 
+	 * @param  address  The CRTC state
+	 */
+	abstract void libgamma_crtc_free(long address);
+
+	/**
+	 * Restore the gamma ramps for a CRTC to the system settings for that CRTC
+	 * 
+	 * @param   address  The CRTC state
+	 * @return           Zero on success, and error code on failure
+	 */
+	abstract int libgamma_crtc_restore(long address);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, 8-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_ramps8(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, 8-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_ramps8(long address, long ramps);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, 16-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_ramps16(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, 16-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_ramps16(long address, long ramps);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, 32-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_ramps32(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, 32-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_ramps32(long address, long ramps);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, 64-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_ramps64(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, 64-bit gamma-depth version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_ramps64(long address, long ramps);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, single precision floating point version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_rampsf(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, single precision floating point version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_rampsf(long address, long ramps);
+
+
+	/**
+	 * Get the current gamma ramps for a CRTC, double precision floating point version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to fill with the current values
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_get_gamma_rampsd(long address, long ramps);
+
+	/**
+	 * Set the gamma ramps for a CRTC, double precision floating point version
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps to apply
+	 * @return           Zero on success, an error code on failure
+	 */
+	abstract int libgamma_crtc_set_gamma_rampsd(long address, long ramps);
+
+
+	/**
+	 * Create and initialise a gamma ramp, 8-bit gamma-depth version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_ramps8_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, 8-bit gamma-depth version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_ramps8_free(long address);
+
+
+	/**
+	 * Create and initialise a gamma ramp, 16-bit gamma-depth version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_ramps16_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, 16-bit gamma-depth version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_ramps16_free(long address);
+
+
+	/**
+	 * Create and initialise a gamma ramp, 32-bit gamma-depth version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_ramps32_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, 32-bit gamma-depth version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_ramps32_free(long address);
+
+
+	/**
+	 * Create and initialise a gamma ramp, 64-bit gamma-depth version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_ramps64_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, 64-bit gamma-depth version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_ramps64_free(long address);
+
+
+	/**
+	 * Create and initialise a gamma ramp, single precision floating point version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_rampsf_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, single precision floating point version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_rampsf_free(long address);
+
+
+	/**
+	 * Create and initialise a gamma ramp, double precision floating point version
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   out         Element 0: The address of the native object<br>
+	 *                      Element 1: The address of the red gamma ramp<br>
+	 *                      Element 2: The address of the green gamma ramp<br>
+	 *                      Element 3: The address of the blue gamma ramp<br>
+	 *                      Element 4: Zero on success, an error code on error
+	 */
+	abstract void libgamma_gamma_rampsd_create(int red_size, int green_size, int blue_size, long[] out);
+
+	/**
+	 * Release a gamma ramp structure, double precision floating point version
+	 * 
+	 * @param  address  The gamma ramps
+	 */
+	abstract void libgamma_gamma_rampsd_free(long address);
+
+
+	/**
+	 * Read the value of a stop in an 8-bit ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract short libgamma_gamma_ramps8_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in an 8-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_ramps8_set(long address, int stop, short value);
+
+	/**
+	 * Read the values of a range of stops in an 8-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps8_get_region(long address, int from, byte[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in an 8-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps8_set_region(long address, int from, byte[] src, int off, int len);
+
+
+	/**
+	 * Read the value of a stop in a 16-bit ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract int libgamma_gamma_ramps16_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in a 16-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_ramps16_set(long address, int stop, int value);
+
+	/**
+	 * Read the values of a range of stops in a 16-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps16_get_region(long address, int from, short[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 16-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps16_set_region(long address, int from, short[] src, int off, int len);
+
+
+	/**
+	 * Read the value of a stop in a 32-bit ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract long libgamma_gamma_ramps32_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in a 32-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_ramps32_set(long address, int stop, long value);
+
+	/**
+	 * Read the values of a range of stops in a 32-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps32_get_region(long address, int from, int[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 32-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps32_set_region(long address, int from, int[] src, int off, int len);
+
+
+	/**
+	 * Read the value of a stop in a 64-bit ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract long libgamma_gamma_ramps64_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in a 64-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_ramps64_set(long address, int stop, long value);
+
+	/**
+	 * Read the values of a range of stops in a 64-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps64_get_region(long address, int from, long[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 64-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_ramps64_set_region(long address, int from, long[] src, int off, int len);
+
+
+	/**
+	 * Read the value of a stop in a single precision floating point ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract float libgamma_gamma_rampsf_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in a single precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_rampsf_set(long address, int stop, float value);
+
+	/**
+	 * Read the values of a range of stops in a single precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_rampsf_get_region(long address, int from, float[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a single precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_rampsf_set_region(long address, int from, float[] src, int off, int len);
+
+
+	/**
+	 * Read the value of a stop in a double precision floating point ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   stop     The index of the stop
+	 * @return           The value of the stop
+	 */
+	abstract double libgamma_gamma_rampsd_get(long address, int stop);
+
+	/**
+	 * Set the value of a stop in a double precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  stop     The index of the stop
+	 * @param  value    The value of the stop
+	 */
+	abstract void libgamma_gamma_rampsd_set(long address, int stop, double value);
+
+	/**
+	 * Read the values of a range of stops in a double precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_rampsd_get_region(long address, int from, double[] dst, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a double precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	abstract void libgamma_gamma_rampsd_set_region(long address, int from, double[] src, int off, int len);
+
+
+	/**
+	 * Create a direct byte buffer over the memory of a ramp
+	 * 
+	 * @param   address   The address of the ramp
+	 * @param   capacity  The size of the ramp, in bytes
+	 * @return            The buffer, {@code null} if direct
+	 *                    buffer access is not supported
+	 */
+	abstract ByteBuffer libgamma_gamma_ramp_buffer(long address, long capacity);
+}
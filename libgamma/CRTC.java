@@ -1,6 +1,10 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  * Cathode ray tube controller state
@@ -9,7 +13,7 @@ package libgamma;
  * monitor that is plugged in to the connector
  * that the CRTC belongs to
  */
-public class CRTC
+public class CRTC implements AutoCloseable
 {
 	/**
 	 * Type initialiser
@@ -26,14 +30,17 @@ public class CRTC
 	 * @param  partition  The partition this CRTC belongs to
 	 * @param  crtc       The index of the CRTC within its partition
 	 */
+	@SuppressWarnings("this-escape")
 	public CRTC(Partition partition, int crtc) throws LibgammaException
 	{
 		this.partition = partition;
 		this.crtc = crtc;
-		long[] r = libgamma_crtc_create(partition.address, crtc);
+		long[] r = Backend.results();
+		Backend.INSTANCE.libgamma_crtc_create(partition.address, crtc, r);
 		this.address = r[0];
 		if (r[1] != 0)
 			throw new LibgammaException((int)(r[1]));
+		this.cleanable = NativeHandle.register(this, NativeHandle.CRTC, this.address, partition);
 	}
 
 
@@ -52,13 +59,44 @@ public class CRTC
 	 */
 	final long address;
 
+	/**
+	 * Releases the native object
+	 */
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * The gamma ramps that were last applied, {@code null} if unknown
+	 */
+	private GammaRamps<? extends Ramp> applied = null;
+
+	/**
+	 * The value of {@link GammaRamps#generation} of {@link #applied}
+	 * when it was applied
+	 */
+	private long applied_generation = 0;
+
+	/**
+	 * The value of {@link #restores} when {@link #applied} was applied
+	 */
+	private int applied_restores = 0;
+
+	/**
+	 * The number of times the gamma ramps of the CRTC have been
+	 * restored by {@link #restore}
+	 */
+	private volatile int restores = 0;
+
 
 	/**
 	 * Release resources
+	 * <p>
+	 * Calling this method more than once has no effect. If it is
+	 * never called, the resources are released some time after the
+	 * object has become unreachable.
 	 */
 	public void close()
 	{
-		libgamma_crtc_free(this.address);
+		this.cleanable.clean();
 	}
 
 	/**
@@ -66,9 +104,14 @@ public class CRTC
 	 */
 	public void restore() throws LibgammaException
 	{
-		int r = libgamma_crtc_restore(this.address);
-		if (r != 0)
-			throw new LibgammaException(r);
+		try {
+			this.restores++;
+			int r = Backend.INSTANCE.libgamma_crtc_restore(this.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
@@ -79,12 +122,11 @@ public class CRTC
 	 */
 	public CRTCInformation get_information(int fields)
 	{
-		Object[] r = libgamma_get_crtc_information(this.address, fields);
-		byte[] edid = (byte[])(r[0]);
-		String connector_name = (String)(r[1]);
-		float[] gamma = (float[])(r[2]);
-		int[] ints = (int[])(r[3]);
-		return new CRTCInformation(edid, connector_name, gamma, ints);
+		try {
+			return libgamma_get_crtc_information(this.address, fields);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
@@ -94,33 +136,460 @@ public class CRTC
 	 */
 	public <T extends Ramp> void get_gamma(GammaRamps<T> output) throws LibgammaException
 	{
-		int r = 0;
-		if      (output.depth ==  8)  r = libgamma_crtc_get_gamma_ramps8(this.address, output.address);
-		else if (output.depth == 16)  r = libgamma_crtc_get_gamma_ramps16(this.address, output.address);
-		else if (output.depth == 32)  r = libgamma_crtc_get_gamma_ramps32(this.address, output.address);
-		else if (output.depth == 64)  r = libgamma_crtc_get_gamma_ramps64(this.address, output.address);
-		else if (output.depth == -1)  r = libgamma_crtc_get_gamma_rampsf(this.address, output.address);
-		else if (output.depth == -2)  r = libgamma_crtc_get_gamma_rampsd(this.address, output.address);
-		if (r != 0)
-			throw new LibgammaException(r);
+		try {
+			output.modified();
+			int r = output.read_from(this.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
 	 * Set the gamma ramps for the CRTC
+	 * <p>
+	 * Nothing is done if the same gamma ramps were the last to be
+	 * applied to the CRTC and have not been modified since, see
+	 * {@link GammaRamps#generation}. Use {@link #force_set_gamma}
+	 * if the gamma ramps of the CRTC may have been changed by
+	 * another program.
 	 * 
 	 * @param  values  The gamma ramps to apply
 	 */
 	public <T extends Ramp> void set_gamma(GammaRamps<T> values) throws LibgammaException
 	{
-		int r = 0;
-		if      (values.depth ==  8)  r = libgamma_crtc_set_gamma_ramps8(this.address, values.address);
-		else if (values.depth == 16)  r = libgamma_crtc_set_gamma_ramps16(this.address, values.address);
-		else if (values.depth == 32)  r = libgamma_crtc_set_gamma_ramps32(this.address, values.address);
-		else if (values.depth == 64)  r = libgamma_crtc_set_gamma_ramps64(this.address, values.address);
-		else if (values.depth == -1)  r = libgamma_crtc_set_gamma_rampsf(this.address, values.address);
-		else if (values.depth == -2)  r = libgamma_crtc_set_gamma_rampsd(this.address, values.address);
-		if (r != 0)
-			throw new LibgammaException(r);
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, values.apply_to(this.address));
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, even if they
+	 * are already applied and have not been modified since
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public <T extends Ramp> void force_set_gamma(GammaRamps<T> values) throws LibgammaException
+	{
+		try {
+			this.set_applied(values, values.generation(), values.apply_to(this.address));
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, 8-bit gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRamps8 output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_ramps8(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, 8-bit gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRamps8 values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_ramps8(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, 16-bit gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRamps16 output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_ramps16(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, 16-bit gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRamps16 values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_ramps16(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, 32-bit gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRamps32 output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_ramps32(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, 32-bit gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRamps32 values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_ramps32(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, 64-bit gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRamps64 output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_ramps64(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, 64-bit gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRamps64 values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_ramps64(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, single precision floating point gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRampsf output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_rampsf(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, single precision floating point gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRampsf values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_rampsf(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC, double precision floating point gamma-depth version
+	 * 
+	 * @param  output  The gamma ramp structure to fill
+	 */
+	public void get_gamma(GammaRampsd output) throws LibgammaException
+	{
+		try {
+			output.modified();
+			int r = Backend.INSTANCE.libgamma_crtc_get_gamma_rampsd(this.address, output.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(output);
+		}
+	}
+
+	/**
+	 * Set the gamma ramps for the CRTC, double precision floating point gamma-depth version
+	 * 
+	 * @param  values  The gamma ramps to apply
+	 */
+	public void set_gamma(GammaRampsd values) throws LibgammaException
+	{
+		try {
+			values.check_open();
+			long generation = values.generation();
+			if (!this.is_applied(values, generation))
+				this.set_applied(values, generation, Backend.INSTANCE.libgamma_crtc_set_gamma_rampsd(this.address, values.address));
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(values);
+		}
+	}
+
+
+	/**
+	 * Read the current gamma ramps of the CRTC, transform each stop
+	 * with the function <tt>value ↦ value<sup>exponent</sup> × multiplier + offset</tt>,
+	 * where the values are normalised to [0, 1], and apply the result,
+	 * all in one native call
+	 * 
+	 * @param  ramps       Gamma ramps with the sizes of the CRTC's gamma ramps, used
+	 *                     as working memory; on return they hold the applied values
+	 * @param  multiplier  The multiplier for all channels
+	 * @param  offset      The offset for all channels
+	 * @param  exponent    The exponent for all channels
+	 */
+	public <T extends Ramp> void transform_gamma(GammaRamps<T> ramps, double multiplier,
+	                                             double offset, double exponent) throws LibgammaException
+	{
+		this.transform_gamma(ramps, multiplier, offset, exponent,
+		                            multiplier, offset, exponent,
+		                            multiplier, offset, exponent);
+	}
+
+	/**
+	 * Read the current gamma ramps of the CRTC, transform each stop
+	 * with the function <tt>value ↦ value<sup>exponent</sup> × multiplier + offset</tt>,
+	 * where the values are normalised to [0, 1], and apply the result,
+	 * all in one native call
+	 * 
+	 * @param  ramps             Gamma ramps with the sizes of the CRTC's gamma ramps, used
+	 *                           as working memory; on return they hold the applied values
+	 * @param  red_multiplier    The multiplier for the red channel
+	 * @param  red_offset        The offset for the red channel
+	 * @param  red_exponent      The exponent for the red channel
+	 * @param  green_multiplier  The multiplier for the green channel
+	 * @param  green_offset      The offset for the green channel
+	 * @param  green_exponent    The exponent for the green channel
+	 * @param  blue_multiplier   The multiplier for the blue channel
+	 * @param  blue_offset       The offset for the blue channel
+	 * @param  blue_exponent     The exponent for the blue channel
+	 */
+	public <T extends Ramp> void transform_gamma(GammaRamps<T> ramps,
+	                                             double red_multiplier,   double red_offset,   double red_exponent,
+	                                             double green_multiplier, double green_offset, double green_exponent,
+	                                             double blue_multiplier,  double blue_offset,  double blue_exponent)
+		throws LibgammaException
+	{
+		try {
+			ramps.modified();
+			int r = libgamma_crtc_transform_gamma(this.address, ramps.address, ramps.depth,
+			                                      red_multiplier,   red_offset,   red_exponent,
+			                                      green_multiplier, green_offset, green_exponent,
+			                                      blue_multiplier,  blue_offset,  blue_exponent);
+			this.set_applied(ramps, ramps.generation(), r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(ramps);
+		}
+	}
+
+	/**
+	 * Read the current gamma ramps of the CRTC, map each stop through
+	 * a lookup table, and apply the result, all in one native call
+	 * <p>
+	 * A lookup table samples a function over [0, 1] at evenly spaced
+	 * points, the first element is the output for 0 and the last element
+	 * is the output for 1; values between the points are interpolated
+	 * linearly. The stop values are normalised to [0, 1] before the
+	 * lookup, and the outputs are clamped to [0, 1].
+	 * 
+	 * @param  ramps  Gamma ramps with the sizes of the CRTC's gamma ramps, used
+	 *                as working memory; on return they hold the applied values
+	 * @param  red    The lookup table for the red channel, {@code null} to leave it unchanged
+	 * @param  green  The lookup table for the green channel, {@code null} to leave it unchanged
+	 * @param  blue   The lookup table for the blue channel, {@code null} to leave it unchanged
+	 */
+	public <T extends Ramp> void transform_gamma(GammaRamps<T> ramps, double[] red,
+	                                             double[] green, double[] blue) throws LibgammaException
+	{
+		try {
+			if (((red != null) && (red.length == 0)) || ((green != null) && (green.length == 0)) || ((blue != null) && (blue.length == 0)))
+				throw new IllegalArgumentException("lookup tables must not be empty");
+			ramps.modified();
+			int r = libgamma_crtc_transform_gamma_table(this.address, ramps.address, ramps.depth, red, green, blue);
+			this.set_applied(ramps, ramps.generation(), r);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(ramps);
+		}
+	}
+
+
+	/**
+	 * Set the gamma ramps for the CRTC asynchronously, on the thread of its site
+	 * <p>
+	 * All asynchronous operations on CRTC:s of the same site are run
+	 * one at a time, in the order they were submitted, on one thread
+	 * per site, so they may be submitted from any number of threads.
+	 * Synchronous operations on the site, its partitions, and their
+	 * CRTC:s must not be made concurrently with asynchronous ones.
+	 * <tt>values</tt> must not be modified, and the CRTC must not be
+	 * closed, until the returned future has completed.
+	 * 
+	 * @param   values  The gamma ramps to apply
+	 * @return          Completes with {@code null} when the gamma ramps have been
+	 *                  applied, or exceptionally with a {@link LibgammaException}
+	 * @throws  IllegalStateException  If the site has been closed
+	 */
+	public <T extends Ramp> CompletableFuture<Void> set_gamma_async(GammaRamps<T> values)
+	{
+		CompletableFuture<Void> result = new CompletableFuture<Void>();
+		this.partition.site.submit(new CRTCTask<Void>(this, CRTCTask.SET_GAMMA, values, 0, result));
+		return result;
+	}
+
+	/**
+	 * Get the current gamma ramps for the CRTC asynchronously, on the
+	 * thread of its site, see {@link #set_gamma_async}
+	 * 
+	 * @param   output  The gamma ramp structure to fill
+	 * @return          Completes with <tt>output</tt> when it has been filled,
+	 *                  or exceptionally with a {@link LibgammaException}
+	 * @throws  IllegalStateException  If the site has been closed
+	 */
+	public <T extends Ramp> CompletableFuture<GammaRamps<T>> get_gamma_async(GammaRamps<T> output)
+	{
+		CompletableFuture<GammaRamps<T>> result = new CompletableFuture<GammaRamps<T>>();
+		this.partition.site.submit(new CRTCTask<GammaRamps<T>>(this, CRTCTask.GET_GAMMA, output, 0, result));
+		return result;
+	}
+
+	/**
+	 * Read information about the CRTC asynchronously, on the
+	 * thread of its site, see {@link #set_gamma_async}
+	 * 
+	 * @param   fields  OR:ed identifiers for the information about the CRTC that should be read
+	 * @return          Completes with the information about the CRTC
+	 * @throws  IllegalStateException  If the site has been closed
+	 */
+	public CompletableFuture<CRTCInformation> get_information_async(int fields)
+	{
+		CompletableFuture<CRTCInformation> result = new CompletableFuture<CRTCInformation>();
+		this.partition.site.submit(new CRTCTask<CRTCInformation>(this, CRTCTask.GET_INFORMATION, null, fields, result));
+		return result;
+	}
+
+
+	/**
+	 * Check whether gamma ramps are known to be applied to the CRTC
+	 * 
+	 * @param   values      The gamma ramps
+	 * @param   generation  The value of {@link GammaRamps#generation} for <tt>values</tt>
+	 * @return              Whether <tt>values</tt> was the last gamma ramps to be applied,
+	 *                      it has not been modified since, and the CRTC has not been restored
+	 */
+	boolean is_applied(GammaRamps<? extends Ramp> values, long generation)
+	{
+		return (this.applied == values) && (this.applied_generation == generation)
+		    && (this.applied_restores == this.restores + this.partition.restores + this.partition.site.restores);
+	}
+
+	/**
+	 * Record the result of applying gamma ramps to the CRTC
+	 * 
+	 * @param   values      The gamma ramps
+	 * @param   generation  The value of {@link GammaRamps#generation} for <tt>values</tt>
+	 * @param   error       Zero on success, an error code on failure
+	 * @throws  LibgammaException  If <tt>error</tt> is non-zero
+	 */
+	private void set_applied(GammaRamps<? extends Ramp> values, long generation, int error) throws LibgammaException
+	{
+		this.record_applied(values, generation, error);
+		if (error != 0)
+			throw new LibgammaException(error);
+	}
+
+	/**
+	 * Record the result of applying gamma ramps to the CRTC
+	 * 
+	 * @param  values      The gamma ramps
+	 * @param  generation  The value of {@link GammaRamps#generation} for <tt>values</tt>
+	 * @param  error       Zero on success, an error code on failure
+	 */
+	void record_applied(GammaRamps<? extends Ramp> values, long generation, int error)
+	{
+		if (error != 0) {
+			this.applied = null;
+			return;
+		}
+		this.applied = values;
+		this.applied_generation = generation;
+		this.applied_restores = this.restores + this.partition.restores + this.partition.site.restores;
 	}
 
 
@@ -139,10 +608,10 @@ public class CRTC
 	 * 
 	 * @param   partition  The partition state for the partition that the CRTC belongs to
 	 * @param   crtc       The index of the CRTC within the partition
-	 * @return             Element 0: The value for {@link #address}<br>
+	 * @param   out        Element 0: The value for {@link #address}<br>
 	 *                     Element 1: Error code, zero on success
 	 */
-	private static native long[] libgamma_crtc_create(long partition, int crtc);
+	static native void libgamma_crtc_create(long partition, int crtc, long[] out);
 
 	/**
 	 * Release all resources held by a CRTC state
@@ -150,7 +619,7 @@ public class CRTC
 	 * 
 	 * @param  address  The CRTC state
 	 */
-	private static native void libgamma_crtc_free(long address);
+	static native void libgamma_crtc_free(long address);
 
 	/**
 	 * Restore the gamma ramps for a CRTC to the system settings for that CRTC
@@ -158,16 +627,53 @@ public class CRTC
 	 * @param   address  The CRTC state
 	 * @return           Zero on success, and error code on failure
 	 */
-	private static native int libgamma_crtc_restore(long address);
+	static native int libgamma_crtc_restore(long address);
 
 	/**
 	 * Read information about a CRTC
 	 * 
 	 * @param   crtc    The state of the CRTC whose information should be read
 	 * @param   fields  OR:ed identifiers for the information about the CRTC that should be read
-	 * @return          Input parameters for the constructor of {@link CRTCInformation}
+	 * @return          Information about the CRTC
+	 */
+	private static native CRTCInformation libgamma_get_crtc_information(long crtc, int fields);
+
+	/**
+	 * Read the gamma ramps of a CRTC, transform each stop with the function
+	 * <tt>value ↦ value<sup>exponent</sup> × multiplier + offset</tt>, and apply them
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps, used as working memory
+	 * @param   depth    The depth of the gamma ramps
+	 * @param   rm       The multiplier for the red channel
+	 * @param   ro       The offset for the red channel
+	 * @param   re       The exponent for the red channel
+	 * @param   gm       The multiplier for the green channel
+	 * @param   go       The offset for the green channel
+	 * @param   ge       The exponent for the green channel
+	 * @param   bm       The multiplier for the blue channel
+	 * @param   bo       The offset for the blue channel
+	 * @param   be       The exponent for the blue channel
+	 * @return           Zero on success, an error code on failure
+	 */
+	private static native int libgamma_crtc_transform_gamma(long address, long ramps, int depth,
+	                                                        double rm, double ro, double re,
+	                                                        double gm, double go, double ge,
+	                                                        double bm, double bo, double be);
+
+	/**
+	 * Read the gamma ramps of a CRTC, map each stop through a lookup table, and apply them
+	 * 
+	 * @param   address  The CRTC state
+	 * @param   ramps    The gamma ramps, used as working memory
+	 * @param   depth    The depth of the gamma ramps
+	 * @param   red      The lookup table for the red channel, {@code null} to leave it unchanged
+	 * @param   green    The lookup table for the green channel, {@code null} to leave it unchanged
+	 * @param   blue     The lookup table for the blue channel, {@code null} to leave it unchanged
+	 * @return           Zero on success, an error code on failure
 	 */
-	private static native Object[] libgamma_get_crtc_information(long crtc, int fields);
+	private static native int libgamma_crtc_transform_gamma_table(long address, long ramps, int depth,
+	                                                              double[] red, double[] green, double[] blue);
 
 
 	/**
@@ -177,7 +683,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_ramps8(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_ramps8(long address, long ramps);
 
 	/**
 	 * Set the gamma ramps for a CRTC, 8-bit gamma-depth version
@@ -186,7 +692,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_ramps8(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_ramps8(long address, long ramps);
 
 
 	/**
@@ -196,7 +702,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_ramps16(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_ramps16(long address, long ramps);
 
 	/**
 	 * Set the gamma ramps for a CRTC, 16-bit gamma-depth version
@@ -205,7 +711,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_ramps16(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_ramps16(long address, long ramps);
 
 
 	/**
@@ -215,7 +721,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_ramps32(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_ramps32(long address, long ramps);
 
 	/**
 	 * Set the gamma ramps for a CRTC, 32-bit gamma-depth version
@@ -224,7 +730,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_ramps32(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_ramps32(long address, long ramps);
 
 
 	/**
@@ -234,7 +740,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_ramps64(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_ramps64(long address, long ramps);
 
 	/**
 	 * Set the gamma ramps for a CRTC, 64-bit gamma-depth version
@@ -243,7 +749,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_ramps64(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_ramps64(long address, long ramps);
 
 
 	/**
@@ -253,7 +759,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_rampsf(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_rampsf(long address, long ramps);
 
 	/**
 	 * Get the current gamma ramps for a CRTC, single precision floating point version
@@ -262,7 +768,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_rampsf(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_rampsf(long address, long ramps);
 
 
 	/**
@@ -272,7 +778,7 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to fill with the current values
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_get_gamma_rampsd(long address, long ramps);
+	static native int libgamma_crtc_get_gamma_rampsd(long address, long ramps);
 
 	/**
 	 * Set the gamma ramps for a CRTC, double precision floating point version
@@ -281,5 +787,5 @@ public class CRTC
 	 * @param   ramps    The gamma ramps to apply
 	 * @return           Zero on success, an error code on failure
 	 */
-	private static native int libgamma_crtc_set_gamma_rampsd(long address, long ramps);
+	static native int libgamma_crtc_set_gamma_rampsd(long address, long ramps);
 }
@@ -0,0 +1,200 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Lock-free buffering of gamma ramps between a thread that
+ * computes gamma ramps for a CRTC and a thread that applies them
+ * <p>
+ * The producer fills the back buffer, returned by {@link #back},
+ * and publishes it with {@link #publish}; the applier calls
+ * {@link #apply}, which applies the most recently published gamma
+ * ramps, if they have not already been applied. Publishing and
+ * applying swap buffers with a single atomic operation each, and
+ * a spare buffer sits between the back and front buffers, so the
+ * producer never writes to gamma ramps that are being applied,
+ * and neither thread waits for the other. Gamma ramps published
+ * while the applier is busy are replaced by the next ones
+ * published, so the applier always applies the latest completed
+ * gamma ramps.
+ * <p>
+ * {@link #back} and {@link #publish} must only be called by one
+ * thread at a time, and {@link #apply} must only be called by one
+ * thread at a time, which must be the only thread that uses the CRTC.
+ */
+public final class CRTCBuffer implements AutoCloseable
+{
+	/**
+	 * Flag in {@link #spare}: the spare buffer has been
+	 * published but not yet applied
+	 */
+	private static final int FRESH = 4;
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  crtc        The CRTC to apply the gamma ramps to
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param  depth       The bit-depth of the value axes of gamma ramps,
+	 *                     -1 for single precision floating point, and -2 for
+	 *                     double precision floating point
+	 */
+	public CRTCBuffer(CRTC crtc, int red_size, int green_size, int blue_size, int depth) throws LibgammaException
+	{
+		this.crtc = crtc;
+		this.buffers = new GammaRamps<?>[3];
+		try {
+			for (int i = 0; i < 3; i++)
+				this.buffers[i] = GammaRamps.create(red_size, green_size, blue_size, depth);
+		} catch (LibgammaException err) {
+			this.close();
+			throw err;
+		}
+	}
+
+
+	/**
+	 * The CRTC the gamma ramps are applied to
+	 */
+	public final CRTC crtc;
+
+	/**
+	 * The three buffers
+	 */
+	private final GammaRamps<?>[] buffers;
+
+	/**
+	 * The index of the back buffer, used only by the producer
+	 */
+	private int back = 0;
+
+	/**
+	 * The index of the spare buffer, ORed with
+	 * {@link #FRESH} if it has been published
+	 * but not yet applied
+	 */
+	private final AtomicInteger spare = new AtomicInteger(1);
+
+	/**
+	 * The index of the front buffer, used only by the applier
+	 */
+	private int front = 2;
+
+	/**
+	 * The number of times {@link #publish} has been called
+	 */
+	private volatile long published = 0;
+
+	/**
+	 * The number of times {@link #publish} replaced gamma
+	 * ramps that had not yet been applied
+	 */
+	private volatile long replaced = 0;
+
+
+	/**
+	 * Get the back buffer, for the producer to fill
+	 * <p>
+	 * The contents of the back buffer are undefined,
+	 * so all stops must be written before it is published.
+	 * 
+	 * @return  The back buffer
+	 */
+	public GammaRamps<? extends Ramp> back()
+	{
+		return this.buffers[this.back];
+	}
+
+	/**
+	 * Publish the back buffer, and get a new back buffer
+	 * 
+	 * @return  The new back buffer
+	 */
+	public GammaRamps<? extends Ramp> publish()
+	{
+		int spare = this.spare.getAndSet(this.back | FRESH);
+		if ((spare & FRESH) != 0)
+			this.replaced++;
+		this.published++;
+		this.back = spare & ~FRESH;
+		return this.buffers[this.back];
+	}
+
+	/**
+	 * Check whether there are published gamma ramps
+	 * that have not yet been applied
+	 * 
+	 * @return  Whether {@link #apply} would apply gamma ramps
+	 */
+	public boolean pending()
+	{
+		return (this.spare.get() & FRESH) != 0;
+	}
+
+	/**
+	 * Apply the most recently published gamma ramps to the CRTC,
+	 * unless they have already been applied
+	 * <p>
+	 * The gamma ramps are applied with {@link CRTC#force_set_gamma},
+	 * as the producer may have written them through buffers, which
+	 * does not change their generation, see {@link GammaRamps#generation},
+	 * so {@link CRTC#set_gamma} could skip them as already applied.
+	 * 
+	 * @return  Whether gamma ramps were applied
+	 */
+	public boolean apply() throws LibgammaException
+	{
+		if ((this.spare.get() & FRESH) == 0)
+			return false;
+		this.front = this.spare.getAndSet(this.front) & ~FRESH;
+		this.crtc.force_set_gamma(this.buffers[this.front]);
+		return true;
+	}
+
+	/**
+	 * Get the number of times gamma ramps have been published
+	 * 
+	 * @return  The number of calls to {@link #publish}
+	 */
+	public long published()
+	{
+		return this.published;
+	}
+
+	/**
+	 * Get the number of times published gamma ramps were replaced
+	 * by newer ones before they were applied
+	 * 
+	 * @return  The number of calls to {@link #publish} that discarded
+	 *          gamma ramps that had not been applied
+	 */
+	public long replaced()
+	{
+		return this.replaced;
+	}
+
+	/**
+	 * Release the buffers, but not the CRTC
+	 */
+	public void close()
+	{
+		for (GammaRamps<?> buffer : this.buffers)
+			if (buffer != null)
+				buffer.close();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<CRTCBuffer: crtc = " + this.crtc.toString() + ", " +
+		       "pending = " + Boolean.toString(this.pending()) + ">";
+	}
+}
@@ -163,38 +163,92 @@ public class CRTCInformation
 	 * @param  ints            Values for the rest of the variables
 	 */
 	public CRTCInformation(byte[] edid, String connector_name, float[] gamma, int[] ints)
+	{
+		this(edid, connector_name, gamma[0], gamma[1], gamma[2],
+		     ints[0],  ints[1],  ints[2],  ints[3],  ints[4],
+		     ints[5],  ints[6],  ints[7],  ints[8],  ints[9],
+		     ints[10], ints[11], ints[12], ints[13], ints[14],
+		     ints[15], ints[16], ints[17], ints[18], ints[19],
+		     ints[20], ints[21], ints[22], ints[23], ints[24]);
+	}
+
+	/**
+	 * Constructor, used by the native code of {@link CRTC#get_information}
+	 * to create the object without intermediate arrays
+	 * 
+	 * @param  edid                  The value for {@link #edid}
+	 * @param  connector_name        The value for {@link #connector_name}
+	 * @param  gamma_red             The value for {@link #gamma_red}
+	 * @param  gamma_green           The value for {@link #gamma_green}
+	 * @param  gamma_blue            The value for {@link #gamma_blue}
+	 * @param  edid_error            The error code for {@link #edid_error}, zero on success
+	 * @param  width_mm              The value for {@link #width_mm}
+	 * @param  width_mm_error        The error code for {@link #width_mm_error}, zero on success
+	 * @param  height_mm             The value for {@link #height_mm}
+	 * @param  height_mm_error       The error code for {@link #height_mm_error}, zero on success
+	 * @param  width_mm_edid         The value for {@link #width_mm_edid}
+	 * @param  width_mm_edid_error   The error code for {@link #width_mm_edid_error}, zero on success
+	 * @param  height_mm_edid        The value for {@link #height_mm_edid}
+	 * @param  height_mm_edid_error  The error code for {@link #height_mm_edid_error}, zero on success
+	 * @param  red_gamma_size        The value for {@link #red_gamma_size}
+	 * @param  green_gamma_size      The value for {@link #green_gamma_size}
+	 * @param  blue_gamma_size       The value for {@link #blue_gamma_size}
+	 * @param  gamma_size_error      The error code for {@link #gamma_size_error}, zero on success
+	 * @param  gamma_depth           The value for {@link #gamma_depth}
+	 * @param  gamma_depth_error     The error code for {@link #gamma_depth_error}, zero on success
+	 * @param  gamma_support         The value for {@link #gamma_support}
+	 * @param  gamma_support_error   The error code for {@link #gamma_support_error}, zero on success
+	 * @param  subpixel_order        The value for {@link #subpixel_order}
+	 * @param  subpixel_order_error  The error code for {@link #subpixel_order_error}, zero on success
+	 * @param  active                The value for {@link #active}
+	 * @param  active_error          The error code for {@link #active_error}, zero on success
+	 * @param  connector_name_error  The error code for {@link #connector_name_error}, zero on success
+	 * @param  connector_type        The value for {@link #connector_type}
+	 * @param  connector_type_error  The error code for {@link #connector_type_error}, zero on success
+	 * @param  gamma_error           The error code for {@link #gamma_error}, zero on success
+	 */
+	CRTCInformation(byte[] edid, String connector_name, float gamma_red,
+	                float gamma_green, float gamma_blue, int edid_error,
+	                int width_mm, int width_mm_error, int height_mm,
+	                int height_mm_error, int width_mm_edid, int width_mm_edid_error,
+	                int height_mm_edid, int height_mm_edid_error, int red_gamma_size,
+	                int green_gamma_size, int blue_gamma_size, int gamma_size_error,
+	                int gamma_depth, int gamma_depth_error, int gamma_support,
+	                int gamma_support_error, int subpixel_order, int subpixel_order_error,
+	                int active, int active_error, int connector_name_error,
+	                int connector_type, int connector_type_error, int gamma_error)
 	{
 		this.edid = edid;
 		this.connector_name = connector_name;
-		this.gamma_red   = gamma[0];
-		this.gamma_green = gamma[1];
-		this.gamma_blue  = gamma[2];
-
-		this.edid_error           = make_error(ints[0]);
-		this.width_mm             = ints[1];
-		this.width_mm_error       = make_error(ints[2]);
-		this.height_mm            = ints[3];
-		this.height_mm_error      = make_error(ints[4]);
-		this.width_mm_edid        = ints[5];
-		this.width_mm_edid_error  = make_error(ints[6]);
-		this.height_mm_edid       = ints[7];
-		this.height_mm_edid_error = make_error(ints[8]);
-		this.red_gamma_size       = ints[9];
-		this.green_gamma_size     = ints[10];
-		this.blue_gamma_size      = ints[11];
-		this.gamma_size_error     = make_error(ints[12]);
-		this.gamma_depth          = (short)(ints[13]);
-		this.gamma_depth_error    = make_error(ints[14]);
-		this.gamma_support        = ints[15] != 0;
-		this.gamma_support_error  = make_error(ints[16]);
-		this.subpixel_order       = SubpixelOrder.VALUES[ints[17]];
-		this.subpixel_order_error = make_error(ints[18]);
-		this.active               = ints[19] != 0;
-		this.active_error         = make_error(ints[20]);
-		this.connector_name_error = make_error(ints[21]);
-		this.connector_type       = ConnectorType.VALUES[ints[22]];
-		this.connector_type_error = make_error(ints[23]);
-		this.gamma_error          = make_error(ints[24]);
+		this.gamma_red   = gamma_red;
+		this.gamma_green = gamma_green;
+		this.gamma_blue  = gamma_blue;
+
+		this.edid_error           = make_error(edid_error);
+		this.width_mm             = width_mm;
+		this.width_mm_error       = make_error(width_mm_error);
+		this.height_mm            = height_mm;
+		this.height_mm_error      = make_error(height_mm_error);
+		this.width_mm_edid        = width_mm_edid;
+		this.width_mm_edid_error  = make_error(width_mm_edid_error);
+		this.height_mm_edid       = height_mm_edid;
+		this.height_mm_edid_error = make_error(height_mm_edid_error);
+		this.red_gamma_size       = red_gamma_size;
+		this.green_gamma_size     = green_gamma_size;
+		this.blue_gamma_size      = blue_gamma_size;
+		this.gamma_size_error     = make_error(gamma_size_error);
+		this.gamma_depth          = (short)(gamma_depth);
+		this.gamma_depth_error    = make_error(gamma_depth_error);
+		this.gamma_support        = gamma_support != 0;
+		this.gamma_support_error  = make_error(gamma_support_error);
+		this.subpixel_order       = SubpixelOrder.VALUES[subpixel_order];
+		this.subpixel_order_error = make_error(subpixel_order_error);
+		this.active               = active != 0;
+		this.active_error         = make_error(active_error);
+		this.connector_name_error = make_error(connector_name_error);
+		this.connector_type       = ConnectorType.VALUES[connector_type];
+		this.connector_type_error = make_error(connector_type_error);
+		this.gamma_error          = make_error(gamma_error);
 
 		this.has_error = (this.edid_error           != null)
 		              || (this.width_mm_error       != null)
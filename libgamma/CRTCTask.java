@@ -0,0 +1,124 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * An asynchronous operation on a CRTC, run on the
+ * thread of its site, see {@link SiteExecutor}
+ * 
+ * @param  <R>  The type of the result of the operation
+ */
+final class CRTCTask<R> implements Runnable
+{
+	/**
+	 * Operation: {@link CRTC#set_gamma}
+	 */
+	static final int SET_GAMMA = 0;
+
+	/**
+	 * Operation: {@link CRTC#get_gamma}
+	 */
+	static final int GET_GAMMA = 1;
+
+	/**
+	 * Operation: {@link CRTC#get_information}
+	 */
+	static final int GET_INFORMATION = 2;
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  crtc       The CRTC
+	 * @param  operation  The operation, {@link #SET_GAMMA}, {@link #GET_GAMMA}
+	 *                    or {@link #GET_INFORMATION}
+	 * @param  ramps      The gamma ramps to apply or fill, {@code null} for {@link #GET_INFORMATION}
+	 * @param  fields     The fields to read, for {@link #GET_INFORMATION}
+	 * @param  result     The completion of the operation
+	 */
+	CRTCTask(CRTC crtc, int operation, GammaRamps<? extends Ramp> ramps, int fields, CompletableFuture<R> result)
+	{
+		this.crtc = crtc;
+		this.operation = operation;
+		this.ramps = ramps;
+		this.fields = fields;
+		this.result = result;
+	}
+
+
+	/**
+	 * The CRTC
+	 */
+	private final CRTC crtc;
+
+	/**
+	 * The operation
+	 */
+	private final int operation;
+
+	/**
+	 * The gamma ramps to apply or fill
+	 */
+	private final GammaRamps<? extends Ramp> ramps;
+
+	/**
+	 * The fields to read
+	 */
+	private final int fields;
+
+	/**
+	 * The completion of the operation
+	 */
+	private final CompletableFuture<R> result;
+
+
+	/**
+	 * Run the operation, and complete {@link #result} with
+	 * its result, or exceptionally with what it threw
+	 * <p>
+	 * The result of {@link #SET_GAMMA} is {@code null}, the result
+	 * of {@link #GET_GAMMA} is the filled gamma ramps, and the result
+	 * of {@link #GET_INFORMATION} is the {@link CRTCInformation}.
+	 */
+	@SuppressWarnings("unchecked")
+	public void run()
+	{
+		if (this.result.isDone())
+			return;
+		Object value;
+		try {
+			if (this.operation == SET_GAMMA) {
+				this.crtc.set_gamma(this.ramps);
+				value = null;
+			} else if (this.operation == GET_GAMMA) {
+				this.crtc.get_gamma(this.ramps);
+				value = this.ramps;
+			} else {
+				value = this.crtc.get_information(this.fields);
+			}
+		} catch (LibgammaException err) {
+			this.result.completeExceptionally(err);
+			return;
+		} catch (RuntimeException err) {
+			this.result.completeExceptionally(err);
+			return;
+		} catch (Error err) {
+			this.result.completeExceptionally(err);
+			throw err;
+		}
+		this.result.complete((R)value);
+	}
+
+	/**
+	 * Complete {@link #result} exceptionally, with a
+	 * {@link CancellationException}, without running the operation,
+	 * because the site was closed before the operation was started
+	 */
+	void cancel()
+	{
+		this.result.completeExceptionally(new CancellationException("the site has been closed"));
+	}
+}
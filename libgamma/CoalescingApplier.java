@@ -0,0 +1,296 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Applies gamma ramps to a CRTC as fast as allowed, but no faster,
+ * discarding gamma ramps that are replaced before they are applied
+ * <p>
+ * This is meant for sources that update the gamma ramps more
+ * often than they can be displayed, such as brightness sliders and
+ * ambient light sensors. The producer fills the gamma ramps returned
+ * by {@link #back} and calls {@link #publish}, without waiting; the
+ * gamma ramps are applied asynchronously on the thread of the site
+ * of the CRTC, see {@link CRTC#set_gamma_async}. At most one
+ * application is queued or in progress at any time, and when it is
+ * run it applies the most recently published gamma ramps, so
+ * gamma ramps published in the meantime are coalesced, see
+ * {@link CRTCBuffer}. Optionally, applications are also spaced
+ * out to a maximum rate, such as the refresh rate of the monitor.
+ * <p>
+ * {@link #back} and {@link #publish} must only be called by one
+ * thread at a time; the other methods may be called by any thread.
+ */
+public final class CoalescingApplier implements AutoCloseable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  crtc        The CRTC to apply the gamma ramps to
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param  depth       The bit-depth of the value axes of gamma ramps,
+	 *                     -1 for single precision floating point, and -2 for
+	 *                     double precision floating point
+	 * @param  max_rate    The maximum number of times per second to apply
+	 *                     gamma ramps, zero for no limit
+	 */
+	public CoalescingApplier(CRTC crtc, int red_size, int green_size, int blue_size, int depth,
+	                         double max_rate) throws LibgammaException
+	{
+		if (!(max_rate >= 0))
+			throw new IllegalArgumentException("max_rate must not be negative");
+		this.buffer = new CRTCBuffer(crtc, red_size, green_size, blue_size, depth);
+		this.crtc = crtc;
+		this.max_rate = max_rate;
+		this.interval = max_rate > 0 ? (long)(1000000000.0 / max_rate) : 0;
+		this.drain_task = new CoalescingTask(this, false);
+		this.delay_task = new CoalescingTask(this, true);
+	}
+
+
+	/**
+	 * The CRTC the gamma ramps are applied to
+	 */
+	public final CRTC crtc;
+
+	/**
+	 * The maximum number of times per second to apply gamma ramps, zero for no limit
+	 */
+	public final double max_rate;
+
+	/**
+	 * The minimum number of nanoseconds between applications
+	 */
+	private final long interval;
+
+	/**
+	 * The buffers of the gamma ramps
+	 */
+	private final CRTCBuffer buffer;
+
+	/**
+	 * Run on the thread of the site to apply the latest gamma ramps
+	 */
+	private final CoalescingTask drain_task;
+
+	/**
+	 * Run after a delay to submit {@link #drain_task}
+	 */
+	private final CoalescingTask delay_task;
+
+	/**
+	 * Whether {@link #drain_task} has been submitted and has not yet finished
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+	/**
+	 * The value of {@link System#nanoTime} before which gamma
+	 * ramps may not be applied again, used only by {@link #drain}
+	 */
+	private long next = 0;
+
+	/**
+	 * Whether {@link #close} has been called
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * The number of times gamma ramps have been applied
+	 */
+	private volatile long applied = 0;
+
+	/**
+	 * The number of times gamma ramps could not be applied
+	 */
+	private volatile long failed = 0;
+
+	/**
+	 * The error of the last application that failed, {@code null} if none
+	 */
+	private volatile LibgammaException last_error = null;
+
+
+	/**
+	 * Get the gamma ramps for the producer to fill, see {@link CRTCBuffer#back}
+	 * 
+	 * @return  The gamma ramps to fill, and then publish
+	 * @throws  IllegalStateException  If the applier has been closed
+	 */
+	public GammaRamps<? extends Ramp> back()
+	{
+		if (this.closed)
+			throw new IllegalStateException("the applier has been closed");
+		return this.buffer.back();
+	}
+
+	/**
+	 * Publish the gamma ramps returned by {@link #back}, replacing
+	 * any gamma ramps that have been published but not yet applied,
+	 * and schedule their application unless it is already scheduled
+	 * 
+	 * @return  The gamma ramps to fill next
+	 * @throws  IllegalStateException  If the applier, or the site of the CRTC, has been closed
+	 */
+	public GammaRamps<? extends Ramp> publish()
+	{
+		if (this.closed)
+			throw new IllegalStateException("the applier has been closed");
+		GammaRamps<? extends Ramp> back = this.buffer.publish();
+		if (this.scheduled.compareAndSet(false, true)) {
+			try {
+				this.crtc.partition.site.submit(this.drain_task);
+			} catch (IllegalStateException err) {
+				this.scheduled.set(false);
+				throw err;
+			}
+		}
+		return back;
+	}
+
+	/**
+	 * Stop applying gamma ramps, and release the buffers, but not the CRTC
+	 * <p>
+	 * If gamma ramps are being applied, this method waits until
+	 * they have been applied. Gamma ramps that have been published
+	 * but not yet applied are discarded. Gamma ramps returned by
+	 * {@link #back} or {@link #publish} must not be used after
+	 * this method has been called, as their memory is released.
+	 */
+	public void close()
+	{
+		synchronized (this) {
+			this.closed = true;
+		}
+		this.buffer.close();
+	}
+
+
+	/**
+	 * Get the number of times gamma ramps have been published
+	 * 
+	 * @return  The number of calls to {@link #publish}
+	 */
+	public long submitted()
+	{
+		return this.buffer.published();
+	}
+
+	/**
+	 * Get the number of times published gamma ramps were replaced
+	 * by newer ones before they were applied
+	 * 
+	 * @return  The number of published gamma ramps that were never applied
+	 */
+	public long coalesced()
+	{
+		return this.buffer.replaced();
+	}
+
+	/**
+	 * Get the number of times gamma ramps have been applied
+	 * 
+	 * @return  The number of calls to {@link CRTC#set_gamma} that succeeded
+	 */
+	public long applied()
+	{
+		return this.applied;
+	}
+
+	/**
+	 * Get the number of times gamma ramps could not be applied
+	 * 
+	 * @return  The number of calls to {@link CRTC#set_gamma} that failed
+	 */
+	public long failed()
+	{
+		return this.failed;
+	}
+
+	/**
+	 * Get the error of the last application of gamma ramps that failed
+	 * 
+	 * @return  The error, {@code null} if no application has failed
+	 */
+	public LibgammaException last_error()
+	{
+		return this.last_error;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<CoalescingApplier: crtc = " + this.crtc.toString() + ", " +
+		       "max_rate = " + Double.toString(this.max_rate) + ", " +
+		       "submitted = " + Long.toString(this.submitted()) + ", " +
+		       "coalesced = " + Long.toString(this.coalesced()) + ", " +
+		       "applied = " + Long.toString(this.applied) + ", " +
+		       "failed = " + Long.toString(this.failed) + ">";
+	}
+
+
+	/**
+	 * Apply the latest gamma ramps, or, if it is too early,
+	 * try again later; run on the thread of the site
+	 */
+	void drain()
+	{
+		if (this.interval > 0) {
+			long wait = this.next - System.nanoTime();
+			if (wait > 0) {
+				CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(this.delay_task);
+				return;
+			}
+		}
+		synchronized (this) {
+			if (this.closed)
+				return;
+			this.next = System.nanoTime() + this.interval;
+			try {
+				if (this.buffer.apply())
+					this.applied++;
+			} catch (LibgammaException err) {
+				this.failed++;
+				this.last_error = err;
+			}
+		}
+		this.scheduled.set(false);
+		/* Gamma ramps published after they were applied, but before
+		 * `scheduled` was cleared, did not schedule an application. */
+		if (this.buffer.pending() && this.scheduled.compareAndSet(false, true))
+			this.resubmit();
+	}
+
+	/**
+	 * Submit {@link #drain_task} to the thread of the site, after
+	 * a delay or after gamma ramps were published late
+	 */
+	void resubmit()
+	{
+		try {
+			this.crtc.partition.site.submit(this.drain_task);
+		} catch (IllegalStateException err) {
+			/* The site has been closed, nothing more can be applied;
+			 * the next call to publish will report it. */
+			this.scheduled.set(false);
+		}
+	}
+
+	/**
+	 * Forget that {@link #drain_task} has been submitted, because
+	 * the site was closed before it was started, so that the next
+	 * call to {@link #publish} reports that the site has been closed
+	 */
+	void unschedule()
+	{
+		this.scheduled.set(false);
+	}
+}
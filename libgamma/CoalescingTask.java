@@ -0,0 +1,57 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+
+/**
+ * Work of a {@link CoalescingApplier}
+ */
+final class CoalescingTask implements Runnable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  applier  The applier
+	 * @param  delayed  {@code true} to submit the applier's work to the thread
+	 *                  of the site, {@code false} to do the work
+	 */
+	CoalescingTask(CoalescingApplier applier, boolean delayed)
+	{
+		this.applier = applier;
+		this.delayed = delayed;
+	}
+
+
+	/**
+	 * The applier
+	 */
+	private final CoalescingApplier applier;
+
+	/**
+	 * Whether the task submits the applier's work,
+	 * rather than does it
+	 */
+	private final boolean delayed;
+
+
+	/**
+	 * Apply the latest gamma ramps, see {@link CoalescingApplier#drain},
+	 * or submit that to the thread of the site, see {@link CoalescingApplier#resubmit}
+	 */
+	public void run()
+	{
+		if (this.delayed)
+			this.applier.resubmit();
+		else
+			this.applier.drain();
+	}
+
+	/**
+	 * Tell the applier that the task will not be run, because
+	 * the site was closed before it was started, see
+	 * {@link CoalescingApplier#unschedule}
+	 */
+	void cancel()
+	{
+		this.applier.unschedule();
+	}
+}
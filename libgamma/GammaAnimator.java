@@ -0,0 +1,408 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Frame-paced animation of the gamma ramps of CRTC:s, such
+ * as fades between day and night or dimming on idle
+ * <p>
+ * All animations of an animator are run by one timer thread,
+ * which renders and applies a frame of every running animation
+ * at a fixed rate. The thread sleeps until shortly before each
+ * frame and then spins until its deadline, so frames are evenly
+ * spaced; the lateness of each frame is recorded, see
+ * {@link #mean_jitter} and {@link #max_jitter}. Frames are timed
+ * from the start of the animator, not from the previous frame, and
+ * the progress of each animation is calculated from the time of the
+ * frame, so if a frame is late, the frames that should have been
+ * applied in the meantime are dropped, see {@link #dropped_frames},
+ * rather than delaying the rest of the animation. Typical use is
+ * <pre>
+ * try (GammaAnimator animator = new GammaAnimator(60)) {
+ *     animator.animate(crtc, day, night, 2000, GammaAnimator.EASE_IN_OUT).finished().join();
+ * }
+ * </pre>
+ * While a CRTC is animated, it must not be used by any other
+ * thread. Instances are thread-safe.
+ */
+public final class GammaAnimator implements AutoCloseable
+{
+	/**
+	 * Easing curve: constant speed
+	 */
+	public static final int EASE_LINEAR = 0;
+
+	/**
+	 * Easing curve: start slowly, quadratically
+	 */
+	public static final int EASE_IN = 1;
+
+	/**
+	 * Easing curve: end slowly, quadratically
+	 */
+	public static final int EASE_OUT = 2;
+
+	/**
+	 * Easing curve: start and end slowly, cubically (smoothstep)
+	 */
+	public static final int EASE_IN_OUT = 3;
+
+	/**
+	 * The number of nanoseconds before a frame at which
+	 * the timer thread stops sleeping and starts spinning
+	 */
+	private static final long SPIN = 200000;
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  frame_rate  The number of frames per second, typically
+	 *                     the refresh rate of the monitors
+	 */
+	public GammaAnimator(double frame_rate)
+	{
+		if (!(frame_rate > 0))
+			throw new IllegalArgumentException("frame_rate must be positive");
+		this.frame_rate = frame_rate;
+		this.interval = Math.max((long)(1000000000.0 / frame_rate), 1);
+		this.thread = new Thread(new AnimatorTask(this), "libgamma animator");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+
+	/**
+	 * The number of frames per second
+	 */
+	public final double frame_rate;
+
+	/**
+	 * The number of nanoseconds between frames
+	 */
+	private final long interval;
+
+	/**
+	 * The timer thread
+	 */
+	private final Thread thread;
+
+	/**
+	 * Animations that have been added but not yet seen by the timer thread
+	 */
+	private final ConcurrentLinkedQueue<Animation> added = new ConcurrentLinkedQueue<Animation>();
+
+	/**
+	 * Whether {@link #close} has been called
+	 */
+	private volatile boolean closed = false;
+
+	/**
+	 * The number of running animations
+	 */
+	private volatile int running = 0;
+
+	/**
+	 * The number of frames that have been applied
+	 */
+	private volatile long frames = 0;
+
+	/**
+	 * The number of frames that were dropped because the timer thread fell behind
+	 */
+	private volatile long dropped = 0;
+
+	/**
+	 * The sum of the lateness, in nanoseconds, of all frames
+	 */
+	private volatile long jitter_sum = 0;
+
+	/**
+	 * The largest lateness, in nanoseconds, of any frame
+	 */
+	private volatile long jitter_max = 0;
+
+
+	/**
+	 * Animate the gamma ramps of a CRTC from one set of gamma ramps to another
+	 * <p>
+	 * The gamma ramps are copied, so they may be modified or closed
+	 * once this method returns. The stops are interpolated linearly,
+	 * see {@link GammaRamps#mix_from}, with the depth of <tt>to</tt>.
+	 * Any running animation of the CRTC is cancelled.
+	 * 
+	 * @param   crtc      The CRTC
+	 * @param   from      The gamma ramps at the start of the animation
+	 * @param   to        The gamma ramps at the end of the animation, with the same sizes as <tt>from</tt>
+	 * @param   duration  The duration of the animation, in milliseconds
+	 * @param   easing    The easing curve: {@link #EASE_LINEAR}, {@link #EASE_IN},
+	 *                    {@link #EASE_OUT} or {@link #EASE_IN_OUT}
+	 * @return            The animation
+	 * @throws  IllegalStateException  If the animator has been closed
+	 */
+	public Animation animate(CRTC crtc, GammaRamps<? extends Ramp> from, GammaRamps<? extends Ramp> to,
+	                         long duration, int easing) throws LibgammaException
+	{
+		long start = System.nanoTime();
+		check(duration, easing);
+		if ((from.red.size != to.red.size) || (from.green.size != to.green.size) || (from.blue.size != to.blue.size))
+			throw new IllegalArgumentException("gamma ramps must have the same sizes, use resample_from to change the sizes");
+		GammaRamps<? extends Ramp> a = null, b = null, output = null;
+		try {
+			a = GammaRamps.create(to.red.size, to.green.size, to.blue.size, to.depth);
+			b = GammaRamps.create(to.red.size, to.green.size, to.blue.size, to.depth);
+			output = GammaRamps.create(to.red.size, to.green.size, to.blue.size, to.depth);
+		} catch (LibgammaException err) {
+			if (a != null)
+				a.close();
+			if (b != null)
+				b.close();
+			throw err;
+		}
+		from.convert_into(a);
+		to.convert_into(b);
+		return this.add(new Animation(crtc, a, b, output, start, duration * 1000000L, easing));
+	}
+
+	/**
+	 * Animate the gamma ramps of a CRTC from one set of parameters to another
+	 * <p>
+	 * At each frame, the parameters are interpolated linearly, with
+	 * easing, and passed to <tt>generator</tt>, which fills <tt>output</tt>,
+	 * which is then applied to the CRTC. <tt>generator</tt> is called on
+	 * the timer thread, and <tt>output</tt> must not be used by the caller
+	 * until the animation has finished. Any running animation of the CRTC
+	 * is cancelled.
+	 * 
+	 * @param   crtc       The CRTC
+	 * @param   output     The gamma ramps to fill and apply
+	 * @param   from       The parameters at the start of the animation
+	 * @param   to         The parameters at the end of the animation, as many as in <tt>from</tt>
+	 * @param   duration   The duration of the animation, in milliseconds
+	 * @param   easing     The easing curve: {@link #EASE_LINEAR}, {@link #EASE_IN},
+	 *                     {@link #EASE_OUT} or {@link #EASE_IN_OUT}
+	 * @param   generator  The function that fills the gamma ramps from the parameters
+	 * @return             The animation
+	 * @throws  IllegalStateException  If the animator has been closed
+	 */
+	public Animation animate(CRTC crtc, GammaRamps<? extends Ramp> output, double[] from, double[] to,
+	                         long duration, int easing, GammaRampsGenerator generator)
+	{
+		long start = System.nanoTime();
+		check(duration, easing);
+		if (from.length != to.length)
+			throw new IllegalArgumentException("the parameter sets must have the same length");
+		return this.add(new Animation(crtc, output, from, to, generator, start, duration * 1000000L, easing));
+	}
+
+	/**
+	 * Cancel all animations and stop the timer thread
+	 * <p>
+	 * Unless called from the timer thread, this method waits
+	 * until the timer thread has stopped. Calling this method
+	 * more than once has no effect.
+	 */
+	public void close()
+	{
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+		if (Thread.currentThread() == this.thread)
+			return;
+		boolean interrupted = false;
+		for (;;) {
+			try {
+				this.thread.join();
+				break;
+			} catch (InterruptedException err) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+
+	/**
+	 * Get the number of running animations
+	 * 
+	 * @return  The number of animations the timer thread is running
+	 */
+	public int animations()
+	{
+		return this.running;
+	}
+
+	/**
+	 * Get the number of frames that have been applied
+	 * 
+	 * @return  The number of frames
+	 */
+	public long frames()
+	{
+		return this.frames;
+	}
+
+	/**
+	 * Get the number of frames that were dropped
+	 * because the timer thread fell behind
+	 * 
+	 * @return  The number of dropped frames
+	 */
+	public long dropped_frames()
+	{
+		return this.dropped;
+	}
+
+	/**
+	 * Get the mean lateness of the frames
+	 * 
+	 * @return  The mean number of nanoseconds by which frames were started after their deadlines
+	 */
+	public double mean_jitter()
+	{
+		long frames = this.frames;
+		return frames == 0 ? 0 : (double)(this.jitter_sum) / (double)frames;
+	}
+
+	/**
+	 * Get the largest lateness of any frame
+	 * 
+	 * @return  The largest number of nanoseconds by which a frame was started after its deadline
+	 */
+	public long max_jitter()
+	{
+		return this.jitter_max;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<GammaAnimator: frame_rate = " + Double.toString(this.frame_rate) + ", " +
+		       "animations = " + Integer.toString(this.running) + ", " +
+		       "frames = " + Long.toString(this.frames) + ", " +
+		       "dropped_frames = " + Long.toString(this.dropped) + ", " +
+		       "mean_jitter = " + Double.toString(this.mean_jitter()) + ", " +
+		       "max_jitter = " + Long.toString(this.jitter_max) + ">";
+	}
+
+
+	/**
+	 * Apply an easing curve
+	 * 
+	 * @param   easing  The easing curve: {@link #EASE_LINEAR}, {@link #EASE_IN},
+	 *                  {@link #EASE_OUT} or {@link #EASE_IN_OUT}
+	 * @param   t       The time, in [0, 1]
+	 * @return          The progress, in [0, 1]
+	 */
+	public static double ease(int easing, double t)
+	{
+		if      (easing == EASE_IN)      return t * t;
+		else if (easing == EASE_OUT)     return t * (2 - t);
+		else if (easing == EASE_IN_OUT)  return t * t * (3 - 2 * t);
+		else                             return t;
+	}
+
+
+	/**
+	 * Run the animations until the animator is closed; called only by the timer thread
+	 */
+	void loop()
+	{
+		ArrayList<Animation> animations = new ArrayList<Animation>();
+		long next = 0;
+		while (!this.closed) {
+			Animation animation;
+			while ((animation = this.added.poll()) != null) {
+				for (int i = animations.size(); i-- > 0;) {
+					if (animations.get(i).crtc == animation.crtc) {
+						animations.remove(i).release();
+						break;
+					}
+				}
+				animations.add(animation);
+			}
+			this.running = animations.size();
+			if (animations.isEmpty()) {
+				next = 0;
+				LockSupport.park(this);
+				continue;
+			}
+
+			long now = System.nanoTime();
+			if (next == 0)
+				next = now;
+			if (next - now > SPIN) {
+				LockSupport.parkNanos(this, next - now - SPIN);
+				continue;
+			}
+			while ((now = System.nanoTime()) - next < 0)
+				Thread.onSpinWait();
+
+			long late = now - next;
+			this.jitter_sum += late;
+			if (late > this.jitter_max)
+				this.jitter_max = late;
+			for (int i = 0; i < animations.size(); i++)
+				if (animations.get(i).render(now))
+					animations.remove(i--).release();
+			this.running = animations.size();
+			this.frames++;
+
+			next += this.interval;
+			now = System.nanoTime();
+			if (now - next >= 0) {
+				long missed = (now - next) / this.interval + 1;
+				this.dropped += missed;
+				next += missed * this.interval;
+			}
+		}
+		for (Animation animation : animations)
+			animation.release();
+		Animation animation;
+		while ((animation = this.added.poll()) != null)
+			animation.release();
+		this.running = 0;
+	}
+
+
+	/**
+	 * Add an animation to be run by the timer thread
+	 * 
+	 * @param   animation  The animation
+	 * @return             <tt>animation</tt>
+	 * @throws  IllegalStateException  If the animator has been closed
+	 */
+	private Animation add(Animation animation)
+	{
+		this.added.add(animation);
+		if (this.closed) {
+			/* If the animation is no longer queued, the timer thread has taken it and will release it. */
+			if (this.added.remove(animation))
+				animation.release();
+			throw new IllegalStateException("the animator has been closed");
+		}
+		LockSupport.unpark(this.thread);
+		return animation;
+	}
+
+	/**
+	 * Check the duration and easing curve of an animation
+	 * 
+	 * @param  duration  The duration of the animation, in milliseconds
+	 * @param  easing    The easing curve
+	 */
+	private static void check(long duration, int easing)
+	{
+		if (duration < 0)
+			throw new IllegalArgumentException("duration must not be negative");
+		if ((easing < EASE_LINEAR) || (easing > EASE_IN_OUT))
+			throw new IllegalArgumentException("easing must be either of: EASE_LINEAR, EASE_IN, EASE_OUT, EASE_IN_OUT.");
+	}
+}
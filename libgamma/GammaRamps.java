@@ -1,6 +1,9 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+
 
 /**
  * Gamma ramp structure
@@ -14,8 +17,14 @@ package libgamma;
  *              64: Ramp64<br>
  *              -1: Rampf<br>
  *              -2: Rampd<br>
+ *              <p>
+ *              Prefer the subclasses {@link GammaRamps8}, {@link GammaRamps16},
+ *              {@link GammaRamps32}, {@link GammaRamps64}, {@link GammaRampsf}
+ *              and {@link GammaRampsd}, or {@link #create}, over the
+ *              constructors of this class; operations on them do not
+ *              have to select the function to call by the depth
  */
-public class GammaRamps<T extends Ramp>
+public class GammaRamps<T extends Ramp> implements AutoCloseable
 {
 	/**
 	 * Type initialiser
@@ -51,16 +60,16 @@ public class GammaRamps<T extends Ramp>
 	 *                     -1 for single precision floating point, and -2 for
 	 *                     double precision floating point
 	 */
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "this-escape"})
 	public GammaRamps(int red_size, int green_size, int blue_size, short depth) throws LibgammaException
 	{
-		long[] r;
-		if      (depth ==  8)  r = libgamma_gamma_ramps8_create (red_size, green_size, blue_size);
-		else if (depth == 16)  r = libgamma_gamma_ramps16_create(red_size, green_size, blue_size);
-		else if (depth == 32)  r = libgamma_gamma_ramps32_create(red_size, green_size, blue_size);
-		else if (depth == 64)  r = libgamma_gamma_ramps64_create(red_size, green_size, blue_size);
-		else if (depth == -1)  r = libgamma_gamma_rampsf_create (red_size, green_size, blue_size);
-		else if (depth == -2)  r = libgamma_gamma_rampsd_create (red_size, green_size, blue_size);
+		long[] r = Backend.results();
+		if      (depth ==  8)  Backend.INSTANCE.libgamma_gamma_ramps8_create (red_size, green_size, blue_size, r);
+		else if (depth == 16)  Backend.INSTANCE.libgamma_gamma_ramps16_create(red_size, green_size, blue_size, r);
+		else if (depth == 32)  Backend.INSTANCE.libgamma_gamma_ramps32_create(red_size, green_size, blue_size, r);
+		else if (depth == 64)  Backend.INSTANCE.libgamma_gamma_ramps64_create(red_size, green_size, blue_size, r);
+		else if (depth == -1)  Backend.INSTANCE.libgamma_gamma_rampsf_create (red_size, green_size, blue_size, r);
+		else if (depth == -2)  Backend.INSTANCE.libgamma_gamma_rampsd_create (red_size, green_size, blue_size, r);
 		else
 			throw new IllegalArgumentException("depth must be either of: 8, 16, 32, 64, -1, -2.");
 
@@ -98,6 +107,81 @@ public class GammaRamps<T extends Ramp>
 		this.red   = (T)red;
 		this.green = (T)green;
 		this.blue  = (T)blue;
+
+		this.arena = null;
+		this.cleanable = this.register();
+		this.red.owner = this;
+		this.green.owner = this;
+		this.blue.owner = this;
+	}
+
+	/**
+	 * Constructor for the depth-specific subclasses
+	 * 
+	 * @param  address  The address of the native object
+	 * @param  red      The gamma ramp for the red channel
+	 * @param  green    The gamma ramp for the green channel
+	 * @param  blue     The gamma ramp for the blue channel
+	 * @param  depth    The bit-depth of the value axes of gamma ramps,
+	 *                  -1 for single precision floating point, and -2 for
+	 *                  double precision floating point
+	 */
+	GammaRamps(long address, T red, T green, T blue, short depth)
+	{
+		this(address, red, green, blue, depth, null);
+	}
+
+	/**
+	 * Constructor for the depth-specific subclasses
+	 * 
+	 * @param  address  The address of the native object
+	 * @param  red      The gamma ramp for the red channel
+	 * @param  green    The gamma ramp for the green channel
+	 * @param  blue     The gamma ramp for the blue channel
+	 * @param  depth    The bit-depth of the value axes of gamma ramps,
+	 *                  -1 for single precision floating point, and -2 for
+	 *                  double precision floating point
+	 * @param  arena    The arena the native object was allocated from,
+	 *                  {@code null} if it was allocated by itself
+	 */
+	GammaRamps(long address, T red, T green, T blue, short depth, GammaRampsArena arena)
+	{
+		this.address = address;
+		this.red     = red;
+		this.green   = green;
+		this.blue    = blue;
+		this.depth   = depth;
+
+		this.arena = arena;
+		this.cleanable = arena == null ? this.register() : null;
+		this.red.owner = this;
+		this.green.owner = this;
+		this.blue.owner = this;
+	}
+
+
+	/**
+	 * Create a gamma ramp structure of the subclass for a depth
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   depth       The bit-depth of the value axes of gamma ramps,
+	 *                      -1 for single precision floating point, and -2 for
+	 *                      double precision floating point
+	 * @return              A {@link GammaRamps8}, {@link GammaRamps16}, {@link GammaRamps32},
+	 *                      {@link GammaRamps64}, {@link GammaRampsf} or {@link GammaRampsd}
+	 */
+	public static GammaRamps<? extends Ramp> create(int red_size, int green_size, int blue_size, int depth) throws LibgammaException
+	{
+		if      (depth ==  8)  return new GammaRamps8 (red_size, green_size, blue_size);
+		else if (depth == 16)  return new GammaRamps16(red_size, green_size, blue_size);
+		else if (depth == 32)  return new GammaRamps32(red_size, green_size, blue_size);
+		else if (depth == 64)  return new GammaRamps64(red_size, green_size, blue_size);
+		else if (depth == -1)  return new GammaRampsf (red_size, green_size, blue_size);
+		else if (depth == -2)  return new GammaRampsd (red_size, green_size, blue_size);
+		else
+			throw new IllegalArgumentException("depth must be either of: 8, 16, 32, 64, -1, -2.");
 	}
 
 
@@ -128,20 +212,568 @@ public class GammaRamps<T extends Ramp>
 	 */
 	final long address;
 
+	/**
+	 * Releases the native object, {@code null} if it
+	 * was allocated from {@link #arena}
+	 */
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * The arena the native object was allocated from, referenced
+	 * so that it is not released while the gamma ramps are reachable,
+	 * {@code null} if the native object was allocated by itself
+	 */
+	private final GammaRampsArena arena;
+
+	/**
+	 * The number of times the stops have been modified through
+	 * this object, rather than through {@link #red}, {@link #green}
+	 * or {@link #blue}
+	 */
+	long modifications = 0;
+
+	/**
+	 * Whether the gamma ramps are shared by a {@link GammaRampsStore},
+	 * in which case the stops must not be modified
+	 */
+	volatile boolean interned = false;
+
+	/**
+	 * Whether {@link #close} has been called
+	 */
+	private volatile boolean closed = false;
+
+
+	/**
+	 * Curve for {@link #libgamma_gamma_ramps_fill}: <tt>min + (max - min) × x</tt>,
+	 * parameters: min, max
+	 */
+	private static final int CURVE_LINEAR = 0;
+
+	/**
+	 * Curve for {@link #libgamma_gamma_ramps_fill}: <tt>min + (max - min) × x<sup>1/gamma</sup></tt>,
+	 * parameters: min, max, gamma
+	 */
+	private static final int CURVE_POWER = 1;
+
+	/**
+	 * Curve for {@link #libgamma_gamma_ramps_fill}: <tt>((x - 0.5) × contrast + 0.5) × brightness</tt>,
+	 * parameters: brightness, contrast
+	 */
+	private static final int CURVE_BRIGHTNESS_CONTRAST = 2;
+
+	/**
+	 * Curve for {@link #libgamma_gamma_ramps_fill}: <tt>min + (max - min) × srgb(x)</tt>,
+	 * parameters: min, max
+	 */
+	private static final int CURVE_SRGB = 3;
+
 
 	/**
 	 * Release resources
+	 * <p>
+	 * Calling this method more than once has no effect. If it is
+	 * never called, the resources are released some time after the
+	 * object, and its ramps, have become unreachable. Gamma ramps
+	 * allocated from a {@link GammaRampsArena} are instead released
+	 * when the arena is closed, and this method has no effect.
+	 * <p>
+	 * Once the gamma ramps, or their arena, have been closed, methods
+	 * that access the stops throw {@link IllegalStateException}.
+	 * Buffers returned by <tt>buffer()</tt> on the ramps must not
+	 * be used after that either, but this cannot be checked.
 	 */
 	public void close()
 	{
-		if      (this.depth ==  8)  libgamma_gamma_ramps8_free(this.address);
-		else if (this.depth == 16)  libgamma_gamma_ramps16_free(this.address);
-		else if (this.depth == 32)  libgamma_gamma_ramps32_free(this.address);
-		else if (this.depth == 64)  libgamma_gamma_ramps64_free(this.address);
-		else if (this.depth == -1)  libgamma_gamma_rampsf_free(this.address);
-		else if (this.depth == -2)  libgamma_gamma_rampsd_free(this.address);
+		this.closed = true;
+		if (this.cleanable != null)
+			this.cleanable.clean();
+	}
+
+	/**
+	 * Check whether the gamma ramps may be kept for reuse, that
+	 * is, whether their native object is released by {@link #close}
+	 * rather than by an arena, they have not been closed, and
+	 * they are not shared by a {@link GammaRampsStore}
+	 * 
+	 * @return  Whether the gamma ramps may be reused
+	 */
+	boolean reusable()
+	{
+		return (this.cleanable != null) && !this.closed && !this.interned;
+	}
+
+	/**
+	 * Register the native object for release
+	 * 
+	 * @return  The value for {@link #cleanable}
+	 */
+	private Cleaner.Cleanable register()
+	{
+		int kind;
+		if      (this.depth ==  8)  kind = NativeHandle.GAMMA_RAMPS8;
+		else if (this.depth == 16)  kind = NativeHandle.GAMMA_RAMPS16;
+		else if (this.depth == 32)  kind = NativeHandle.GAMMA_RAMPS32;
+		else if (this.depth == 64)  kind = NativeHandle.GAMMA_RAMPS64;
+		else if (this.depth == -1)  kind = NativeHandle.GAMMA_RAMPSF;
+		else                        kind = NativeHandle.GAMMA_RAMPSD;
+		return NativeHandle.register(this, kind, this.address, null);
 	}
 
+	/**
+	 * Get the modification generation of the stops
+	 * <p>
+	 * The generation changes whenever the stops are modified through
+	 * this library, but not when they are written through a buffer
+	 * returned by <tt>buffer()</tt> on a ramp, unless {@link #touch}
+	 * is called afterwards. {@link CRTC#set_gamma} uses the generation
+	 * to skip applying gamma ramps that are already applied.
+	 * 
+	 * @return  The modification generation
+	 */
+	public long generation()
+	{
+		return this.modifications + this.red.modifications + this.green.modifications + this.blue.modifications;
+	}
+
+	/**
+	 * Mark the stops as modified, this is required after
+	 * writing to them through a buffer returned by <tt>buffer()</tt>
+	 * on a ramp, see {@link #generation}
+	 */
+	public void touch()
+	{
+		this.modified();
+	}
+
+	/**
+	 * Check that the native memory of the gamma ramps has not been released
+	 * 
+	 * @throws  IllegalStateException  If the gamma ramps, or the arena
+	 *                                 they were allocated from, have been closed
+	 */
+	void check_open()
+	{
+		if (this.closed || ((this.arena != null) && this.arena.closed))
+			throw new IllegalStateException("the gamma ramps have been closed");
+	}
+
+	/**
+	 * Check that the stops may be modified
+	 * 
+	 * @throws  IllegalStateException  If the gamma ramps are shared by a {@link GammaRampsStore},
+	 *                                 or if they have been closed
+	 */
+	void check_modifiable()
+	{
+		this.check_open();
+		if (this.interned)
+			throw new IllegalStateException("gamma ramps shared by a GammaRampsStore must not be modified, "
+			                                + "use GammaRampsStore.modify");
+	}
+
+	/**
+	 * Count a modification of the stops through this object
+	 * 
+	 * @throws  IllegalStateException  If the gamma ramps are shared by a {@link GammaRampsStore},
+	 *                                 or if they have been closed
+	 */
+	void modified()
+	{
+		this.check_modifiable();
+		this.modifications++;
+	}
+
+	/**
+	 * Get the current gamma ramps of a CRTC into this structure
+	 * 
+	 * @param   crtc  The CRTC state
+	 * @return        Zero on success, an error code on failure
+	 */
+	int read_from(long crtc)
+	{
+		try {
+			this.check_open();
+			if      (this.depth ==  8)  return Backend.INSTANCE.libgamma_crtc_get_gamma_ramps8(crtc, this.address);
+			else if (this.depth == 16)  return Backend.INSTANCE.libgamma_crtc_get_gamma_ramps16(crtc, this.address);
+			else if (this.depth == 32)  return Backend.INSTANCE.libgamma_crtc_get_gamma_ramps32(crtc, this.address);
+			else if (this.depth == 64)  return Backend.INSTANCE.libgamma_crtc_get_gamma_ramps64(crtc, this.address);
+			else if (this.depth == -1)  return Backend.INSTANCE.libgamma_crtc_get_gamma_rampsf(crtc, this.address);
+			else                        return Backend.INSTANCE.libgamma_crtc_get_gamma_rampsd(crtc, this.address);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Apply the gamma ramps in this structure to a CRTC
+	 * 
+	 * @param   crtc  The CRTC state
+	 * @return        Zero on success, an error code on failure
+	 */
+	int apply_to(long crtc)
+	{
+		try {
+			this.check_open();
+			if      (this.depth ==  8)  return Backend.INSTANCE.libgamma_crtc_set_gamma_ramps8(crtc, this.address);
+			else if (this.depth == 16)  return Backend.INSTANCE.libgamma_crtc_set_gamma_ramps16(crtc, this.address);
+			else if (this.depth == 32)  return Backend.INSTANCE.libgamma_crtc_set_gamma_ramps32(crtc, this.address);
+			else if (this.depth == 64)  return Backend.INSTANCE.libgamma_crtc_set_gamma_ramps64(crtc, this.address);
+			else if (this.depth == -1)  return Backend.INSTANCE.libgamma_crtc_set_gamma_rampsf(crtc, this.address);
+			else                        return Backend.INSTANCE.libgamma_crtc_set_gamma_rampsd(crtc, this.address);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+
+	/**
+	 * Set the stops of all channels from values in [0, 1], converting
+	 * them to the depth of the gamma ramps in one native call
+	 * <p>
+	 * Values outside [0, 1] are clamped
+	 * 
+	 * @param  red    The values for the red channel, at least {@code this.red.size} elements
+	 * @param  green  The values for the green channel, at least {@code this.green.size} elements
+	 * @param  blue   The values for the blue channel, at least {@code this.blue.size} elements
+	 */
+	public void set_values(double[] red, double[] green, double[] blue)
+	{
+		try {
+			if ((red.length < this.red.size) || (green.length < this.green.size) || (blue.length < this.blue.size))
+				throw new IndexOutOfBoundsException();
+			this.modified();
+			libgamma_gamma_ramps_set_values(this.address, this.depth, red, green, blue);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Set the stops of all channels by resampling other gamma ramps,
+	 * see {@link Ramp#resample_from(Ramp, int)}
+	 * 
+	 * @param  source  The gamma ramps to read from, they may differ in size and depth
+	 * @param  method  The resampling method: {@link Ramp#RESAMPLE_NEAREST},
+	 *                 {@link Ramp#RESAMPLE_LINEAR} or {@link Ramp#RESAMPLE_CUBIC}
+	 */
+	public void resample_from(GammaRamps<? extends Ramp> source, int method)
+	{
+		this.red.resample_from(source.red, method);
+		this.green.resample_from(source.green, method);
+		this.blue.resample_from(source.blue, method);
+	}
+
+	/**
+	 * Convert the stops of all channels to the depth of other
+	 * gamma ramps, of the same sizes, in one native call
+	 * <p>
+	 * Integer stops are rescaled exactly, with rounding to nearest.
+	 * Floating point stops are clamped to [0, 1] and rounded to nearest
+	 * when converted to integers. Gamma ramps of the same depth are
+	 * copied unmodified. This is typically the last step when the
+	 * gamma ramps are generated in double precision but applied
+	 * with the depth the CRTC uses.
+	 * 
+	 * @param  target  The gamma ramps to write to
+	 */
+	public void convert_into(GammaRamps<? extends Ramp> target)
+	{
+		try {
+			if ((target.red.size != this.red.size) || (target.green.size != this.green.size) || (target.blue.size != this.blue.size))
+				throw new IllegalArgumentException("gamma ramps must have the same sizes, use resample_from to change the sizes");
+			this.check_open();
+			if (target == this)
+				return;
+			target.modified();
+			libgamma_gamma_ramps_convert(this.address, this.depth, target.address, target.depth);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(target);
+		}
+	}
+
+	/**
+	 * Set the stops of all channels to the linear interpolation
+	 * between the stops of two gamma ramps, in one native call
+	 * <p>
+	 * The interpolation is done in [0, 1], with clamping and rounding
+	 * to nearest, as in {@link #convert_into}. This is typically used
+	 * to fade between two sets of gamma ramps, see {@link GammaAnimator}.
+	 * 
+	 * @param  from  The gamma ramps to interpolate from, with the same depth and sizes
+	 * @param  to    The gamma ramps to interpolate to, with the same depth and sizes
+	 * @param  t     The position between <tt>from</tt>, at 0, and <tt>to</tt>, at 1
+	 */
+	public void mix_from(GammaRamps<? extends Ramp> from, GammaRamps<? extends Ramp> to, double t)
+	{
+		try {
+			if ((from.depth != this.depth) || (to.depth != this.depth))
+				throw new IllegalArgumentException("gamma ramps must have the same depth, use convert_into to change the depth");
+			if ((from.red.size != this.red.size) || (from.green.size != this.green.size) || (from.blue.size != this.blue.size) ||
+			    (to.red.size   != this.red.size) || (to.green.size   != this.green.size) || (to.blue.size   != this.blue.size))
+				throw new IllegalArgumentException("gamma ramps must have the same sizes, use resample_from to change the sizes");
+			from.check_open();
+			to.check_open();
+			this.modified();
+			libgamma_gamma_ramps_mix(this.address, from.address, to.address, this.depth, t);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(from);
+			Reference.reachabilityFence(to);
+		}
+	}
+
+	/**
+	 * Calculate a 64-bit hash of the stops of all channels, in one native call
+	 * <p>
+	 * Gamma ramps with the same depth, sizes and stops have the same hash.
+	 * The hash is calculated over the native memory of the gamma ramps,
+	 * so it depends on the byte order of the machine. To detect whether
+	 * another program has changed the gamma ramps of a CRTC, read them
+	 * with {@link CRTC#get_gamma} and compare the hash with an earlier hash.
+	 * 
+	 * @return  The hash of the stops
+	 */
+	public long content_hash()
+	{
+		try {
+			this.check_open();
+			return libgamma_gamma_ramps_hash(this.address, this.depth);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Check whether the gamma ramps have the same stops as other gamma ramps
+	 * 
+	 * @param   other  The other gamma ramps
+	 * @return         Whether the gamma ramps have the same depth and sizes,
+	 *                 and all their stops are equal bit for bit
+	 */
+	public boolean equals_contents(GammaRamps<? extends Ramp> other)
+	{
+		try {
+			if (other == this)
+				return true;
+			if ((other == null) || (other.depth != this.depth) || (other.red.size != this.red.size)
+			    || (other.green.size != this.green.size) || (other.blue.size != this.blue.size))
+				return false;
+			this.check_open();
+			other.check_open();
+			return libgamma_gamma_ramps_equals(this.address, other.address, this.depth);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(other);
+		}
+	}
+
+	/**
+	 * Get the total size of the stops of all channels
+	 * 
+	 * @return  The size, in bytes, of the stops of all channels
+	 */
+	int byte_size()
+	{
+		int element_size = this.depth > 0 ? this.depth / 8 : this.depth == -1 ? 4 : 8;
+		return (this.red.size + this.green.size + this.blue.size) * element_size;
+	}
+
+	/**
+	 * Copy the stops of all channels to an array
+	 * 
+	 * @param  data  The array, at least {@link #byte_size} bytes,
+	 *               the channels are stored back to back
+	 */
+	void store(byte[] data)
+	{
+		try {
+			this.check_open();
+			libgamma_gamma_ramps_store(this.address, this.depth, data);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Copy the stops of all channels from an array
+	 * 
+	 * @param  data  The array, at least {@link #byte_size} bytes,
+	 *               as filled by {@link #store}
+	 */
+	void load(byte[] data)
+	{
+		try {
+			this.modified();
+			libgamma_gamma_ramps_load(this.address, this.depth, data);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Fill all channels with the identity curve
+	 */
+	public void fill_linear()
+	{
+		this.fill_linear(0, 1);
+	}
+
+	/**
+	 * Fill all channels with a straight line
+	 * 
+	 * @param  min  The value of the first stop, 0 for black
+	 * @param  max  The value of the last stop, 1 for full intensity
+	 */
+	public void fill_linear(double min, double max)
+	{
+		try {
+			this.modified();
+			libgamma_gamma_ramps_fill(this.address, this.depth, CURVE_LINEAR, min, max, 0, min, max, 0, min, max, 0);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Fill all channels with the same gamma correction curve
+	 * 
+	 * @param  gamma  The gamma correction, the curve is <tt>x<sup>1/gamma</sup></tt>
+	 */
+	public void fill_power(double gamma)
+	{
+		this.fill_power(gamma, gamma, gamma, 0, 1);
+	}
+
+	/**
+	 * Fill the channels with gamma correction curves
+	 * 
+	 * @param  red_gamma    The gamma correction for the red channel
+	 * @param  green_gamma  The gamma correction for the green channel
+	 * @param  blue_gamma   The gamma correction for the blue channel
+	 * @param  min          The value of the first stop, 0 for black
+	 * @param  max          The value of the last stop, 1 for full intensity
+	 */
+	public void fill_power(double red_gamma, double green_gamma, double blue_gamma, double min, double max)
+	{
+		try {
+			this.modified();
+			libgamma_gamma_ramps_fill(this.address, this.depth, CURVE_POWER,
+			                          min, max, red_gamma, min, max, green_gamma, min, max, blue_gamma);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Fill all channels with a brightness and contrast adjusted line,
+	 * the curve is <tt>((x - 0.5) × contrast + 0.5) × brightness</tt>
+	 * 
+	 * @param  brightness  The brightness, 1 for unadjusted
+	 * @param  contrast    The contrast, 1 for unadjusted
+	 */
+	public void fill_brightness_contrast(double brightness, double contrast)
+	{
+		try {
+			this.modified();
+			libgamma_gamma_ramps_fill(this.address, this.depth, CURVE_BRIGHTNESS_CONTRAST,
+			                          brightness, contrast, 0, brightness, contrast, 0, brightness, contrast, 0);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Fill all channels with the sRGB transfer function,
+	 * from linear values to encoded values
+	 */
+	public void fill_srgb()
+	{
+		try {
+			this.modified();
+			libgamma_gamma_ramps_fill(this.address, this.depth, CURVE_SRGB, 0, 1, 0, 0, 1, 0, 0, 1, 0);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Fill the channels with straight lines scaled to the
+	 * white point of a blackbody at a colour temperature
+	 * 
+	 * @param  kelvin  The colour temperature, in kelvins, 6500 for neutral
+	 */
+	public void fill_temperature(double kelvin)
+	{
+		this.fill_temperature(kelvin, 1);
+	}
+
+	/**
+	 * Fill the channels with straight lines scaled to the
+	 * white point of a blackbody at a colour temperature
+	 * <p>
+	 * The white point is approximated with a curve fit that is
+	 * valid between 1000 K and 40000 K, and normalised so that
+	 * the strongest channel is 1 and 6500 K is neutral
+	 * 
+	 * @param  kelvin      The colour temperature, in kelvins, 6500 for neutral
+	 * @param  brightness  The brightness, 1 for full intensity
+	 */
+	public void fill_temperature(double kelvin, double brightness)
+	{
+		try {
+			double[] rgb = new double[3];
+			GammaRamps.whitepoint(kelvin, rgb);
+			this.modified();
+			libgamma_gamma_ramps_fill(this.address, this.depth, CURVE_LINEAR,
+			                          0, rgb[0] * brightness, 0,
+			                          0, rgb[1] * brightness, 0,
+			                          0, rgb[2] * brightness, 0);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Calculate the white point of a blackbody, normalised so
+	 * that the strongest channel is 1 and 6500 K is neutral
+	 * 
+	 * @param  kelvin  The temperature, in kelvins
+	 * @param  rgb     Output array for the red, green and blue intensities
+	 */
+	static void whitepoint(double kelvin, double[] rgb)
+	{
+		double r = blackbody(kelvin, 0) / blackbody(6500, 0);
+		double g = blackbody(kelvin, 1) / blackbody(6500, 1);
+		double b = blackbody(kelvin, 2) / blackbody(6500, 2);
+		double max = Math.max(r, Math.max(g, b));
+		rgb[0] = r / max;
+		rgb[1] = g / max;
+		rgb[2] = b / max;
+	}
+
+	/**
+	 * Approximate the colour of a blackbody, using Tanner Helland's
+	 * empirical fit of the RGB colour of blackbody radiation, which
+	 * is piecewise logarithmic and power functions of kelvin / 100,
+	 * valid from 1000 K to 40000 K
+	 * 
+	 * @param   kelvin   The temperature, in kelvins
+	 * @param   channel  0 for red, 1 for green, 2 for blue
+	 * @return           The intensity of the channel, in [0, 1]
+	 */
+	private static double blackbody(double kelvin, int channel)
+	{
+		double t = Math.min(Math.max(kelvin, 1000), 40000) / 100, v;
+		if (channel == 0)
+			v = t <= 66 ? 255 : 329.698727446 * Math.pow(t - 60, -0.1332047592);
+		else if (channel == 1)
+			v = t <= 66 ? 99.4708025861 * Math.log(t) - 161.1195681661 : 288.1221695283 * Math.pow(t - 60, -0.0755148492);
+		else
+			v = t >= 66 ? 255 : t <= 19 ? 0 : 138.5177312231 * Math.log(t - 10) - 305.0447927307;
+		return Math.min(Math.max(v, 0), 255) / 255;
+	}
 
 	/**
 	 * {@inheritDoc}
@@ -150,7 +782,7 @@ public class GammaRamps<T extends Ramp>
 	{
 		String depth_str = Integer.toString(this.depth);
 		if (this.depth == -1)  depth_str = "float";
-		if (this.depth == -1)  depth_str = "double";
+		if (this.depth == -2)  depth_str = "double";
 
 		return "<GammaRamps: depth = " + depth_str + ", " +
 			"red = " + this.red.toString() +
@@ -166,13 +798,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_ramps8_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_ramps8_create(int red_size, int green_size, int blue_size, long[] out);
 
 	/**
 	 * Create and initialise a gamma ramp in the proper way that allows all adjustment
@@ -181,13 +813,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_ramps16_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_ramps16_create(int red_size, int green_size, int blue_size, long[] out);
 
 	/**
 	 * Create and initialise a gamma ramp in the proper way that allows all adjustment
@@ -196,13 +828,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_ramps32_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_ramps32_create(int red_size, int green_size, int blue_size, long[] out);
 
 	/**
 	 * Create and initialise a gamma ramp in the proper way that allows all adjustment
@@ -211,13 +843,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_ramps64_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_ramps64_create(int red_size, int green_size, int blue_size, long[] out);
 
 	/**
 	 * Create and initialise a gamma ramp in the proper way that allows all adjustment
@@ -226,13 +858,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_rampsf_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_rampsf_create(int red_size, int green_size, int blue_size, long[] out);
 
 	/**
 	 * Create and initialise a gamma ramp in the proper way that allows all adjustment
@@ -241,13 +873,13 @@ public class GammaRamps<T extends Ramp>
 	 * @param   red_size    The size of the encoding axis of the red gamma ramp
 	 * @param   green_size  The size of the encoding axis of the green gamma ramp
 	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
-	 * @return              Element 0: The address of the native object<br>
+	 * @param   out         Element 0: The address of the native object<br>
 	 *                      Element 1: The address of the red gamma ramp<br>
 	 *                      Element 2: The address of the green gamma ramp<br>
 	 *                      Element 3: The address of the blue gamma ramp<br>
 	 *                      Element 4: Zero on success, an error code on error
 	 */
-	private static native long[] libgamma_gamma_rampsd_create(int red_size, int green_size, int blue_size);
+	static native void libgamma_gamma_rampsd_create(int red_size, int green_size, int blue_size, long[] out);
 
 
 	/**
@@ -258,7 +890,7 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_ramps8_free(long address);
+	static native void libgamma_gamma_ramps8_free(long address);
 
 	/**
 	 * Release resources that are held by a gamma ramp strcuture that
@@ -268,7 +900,7 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_ramps16_free(long address);
+	static native void libgamma_gamma_ramps16_free(long address);
 
 	/**
 	 * Release resources that are held by a gamma ramp strcuture that
@@ -278,7 +910,7 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_ramps32_free(long address);
+	static native void libgamma_gamma_ramps32_free(long address);
 
 	/**
 	 * Release resources that are held by a gamma ramp strcuture that
@@ -288,7 +920,7 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_ramps64_free(long address);
+	static native void libgamma_gamma_ramps64_free(long address);
 
 	/**
 	 * Release resources that are held by a gamma ramp strcuture that
@@ -298,7 +930,7 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_rampsf_free(long address);
+	static native void libgamma_gamma_rampsf_free(long address);
 
 	/**
 	 * Release resources that are held by a gamma ramp strcuture that
@@ -308,5 +940,98 @@ public class GammaRamps<T extends Ramp>
 	 * 
 	 * @param  address  The gamma ramps
 	 */
-	private static native void libgamma_gamma_rampsd_free(long address);
+	static native void libgamma_gamma_rampsd_free(long address);
+
+
+	/**
+	 * Fill gamma ramps with a curve, all channels and all stops in one call
+	 * 
+	 * @param  address  The gamma ramps
+	 * @param  depth    The depth of the gamma ramps
+	 * @param  curve    The curve, one of the <tt>CURVE_*</tt> values
+	 * @param  r0       The first parameter of the curve for the red channel
+	 * @param  r1       The second parameter of the curve for the red channel
+	 * @param  r2       The third parameter of the curve for the red channel
+	 * @param  g0       The first parameter of the curve for the green channel
+	 * @param  g1       The second parameter of the curve for the green channel
+	 * @param  g2       The third parameter of the curve for the green channel
+	 * @param  b0       The first parameter of the curve for the blue channel
+	 * @param  b1       The second parameter of the curve for the blue channel
+	 * @param  b2       The third parameter of the curve for the blue channel
+	 */
+	private static native void libgamma_gamma_ramps_fill(long address, int depth, int curve,
+	                                                     double r0, double r1, double r2,
+	                                                     double g0, double g1, double g2,
+	                                                     double b0, double b1, double b2);
+
+	/**
+	 * Set the stops of gamma ramps from values in [0, 1]
+	 * 
+	 * @param  address  The gamma ramps
+	 * @param  depth    The depth of the gamma ramps
+	 * @param  red      The values for the red channel
+	 * @param  green    The values for the green channel
+	 * @param  blue     The values for the blue channel
+	 */
+	private static native void libgamma_gamma_ramps_set_values(long address, int depth, double[] red, double[] green, double[] blue);
+
+	/**
+	 * Copy the stops of all channels of gamma ramps to an array
+	 * 
+	 * @param  address  The gamma ramps
+	 * @param  depth    The depth of the gamma ramps
+	 * @param  data     The array, the channels are stored back to back
+	 */
+	private static native void libgamma_gamma_ramps_store(long address, int depth, byte[] data);
+
+	/**
+	 * Copy the stops of all channels of gamma ramps from an array
+	 * 
+	 * @param  address  The gamma ramps
+	 * @param  depth    The depth of the gamma ramps
+	 * @param  data     The array, the channels are stored back to back
+	 */
+	private static native void libgamma_gamma_ramps_load(long address, int depth, byte[] data);
+
+	/**
+	 * Calculate the xxHash64 hash of the stops of all channels of gamma ramps
+	 * 
+	 * @param   address  The gamma ramps
+	 * @param   depth    The depth of the gamma ramps
+	 * @return           The hash
+	 */
+	private static native long libgamma_gamma_ramps_hash(long address, int depth);
+
+	/**
+	 * Compare the stops of all channels of two gamma ramps
+	 * 
+	 * @param   address  The first gamma ramps
+	 * @param   other    The second gamma ramps, with the same depth and sizes
+	 * @param   depth    The depth of the gamma ramps
+	 * @return           Whether the stops are equal
+	 */
+	private static native boolean libgamma_gamma_ramps_equals(long address, long other, int depth);
+
+	/**
+	 * Convert the stops of all channels of gamma ramps to
+	 * gamma ramps, of the same sizes, with another depth
+	 * 
+	 * @param  address       The gamma ramps to convert from
+	 * @param  depth         The depth of the gamma ramps to convert from
+	 * @param  target        The gamma ramps to convert to
+	 * @param  target_depth  The depth of the gamma ramps to convert to
+	 */
+	private static native void libgamma_gamma_ramps_convert(long address, int depth, long target, int target_depth);
+
+	/**
+	 * Set the stops of all channels of gamma ramps to the linear
+	 * interpolation of the stops of two other gamma ramps
+	 * 
+	 * @param  address  The gamma ramps to write to
+	 * @param  from     The gamma ramps to interpolate from, with the same depth and sizes
+	 * @param  to       The gamma ramps to interpolate to, with the same depth and sizes
+	 * @param  depth    The depth of the gamma ramps
+	 * @param  t        The position between <tt>from</tt>, at 0, and <tt>to</tt>, at 1
+	 */
+	private static native void libgamma_gamma_ramps_mix(long address, long from, long to, int depth, double t);
 }
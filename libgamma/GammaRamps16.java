@@ -0,0 +1,107 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.lang.ref.Reference;
+
+
+/**
+ * Gamma ramp structure with a 16-bit value axis
+ * <p>
+ * Unlike the generic {@link GammaRamps}, operations on this
+ * class call the function for its depth directly
+ */
+public final class GammaRamps16 extends GammaRamps<Ramp16>
+{
+	/**
+	 * Type initialiser
+	 */
+	static
+	{
+		Libgamma.initialise();
+	}
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 */
+	public GammaRamps16(int red_size, int green_size, int blue_size) throws LibgammaException
+	{
+		this(GammaRamps16.create(red_size, green_size, blue_size), red_size, green_size, blue_size);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  r           The output of {@link #create}
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 */
+	private GammaRamps16(long[] r, int red_size, int green_size, int blue_size)
+	{
+		super(r[0], new Ramp16(r[1], red_size), new Ramp16(r[2], green_size), new Ramp16(r[3], blue_size), (short)16);
+	}
+
+	/**
+	 * Constructor for gamma ramps allocated from an arena
+	 * 
+	 * @param  r           The addresses of the native object and its ramps
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param  arena       The arena the native object was allocated from
+	 */
+	GammaRamps16(long[] r, int red_size, int green_size, int blue_size, GammaRampsArena arena)
+	{
+		super(r[0], new Ramp16(r[1], red_size), new Ramp16(r[2], green_size), new Ramp16(r[3], blue_size), (short)16, arena);
+	}
+
+
+	/**
+	 * Create the native object
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @return              The output of {@link Backend#libgamma_gamma_ramps16_create}
+	 */
+	private static long[] create(int red_size, int green_size, int blue_size) throws LibgammaException
+	{
+		long[] r = Backend.results();
+		Backend.INSTANCE.libgamma_gamma_ramps16_create(red_size, green_size, blue_size, r);
+		if (r[4] != 0)
+			throw new LibgammaException((int)(r[4]));
+		return r;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int read_from(long crtc)
+	{
+		try {
+			this.check_open();
+			return Backend.INSTANCE.libgamma_crtc_get_gamma_ramps16(crtc, this.address);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int apply_to(long crtc)
+	{
+		try {
+			this.check_open();
+			return Backend.INSTANCE.libgamma_crtc_set_gamma_ramps16(crtc, this.address);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+}
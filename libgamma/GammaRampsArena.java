@@ -0,0 +1,229 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+
+
+/**
+ * Scope for short-lived gamma ramps and CRTC:s
+ * <p>
+ * Gamma ramps allocated from an arena share one block of native
+ * memory, allocated when the arena is created, instead of each
+ * being allocated and released by itself, and they are all
+ * released at once when the arena is closed. CRTC:s opened
+ * through the arena are also closed when the arena is closed.
+ * Typical use is
+ * <pre>
+ * try (GammaRampsArena arena = new GammaRampsArena(1 &lt;&lt; 20)) {
+ *     for (int i = 0; i &lt; partition.crtcs_available; i++) {
+ *         CRTC crtc = arena.crtc(partition, i);
+ *         CRTCInformation info = crtc.get_information(~0);
+ *         GammaRamps&lt;? extends Ramp&gt; ramps = arena.allocate(info.red_gamma_size, info.green_gamma_size,
+ *                                                          info.blue_gamma_size, info.gamma_depth);
+ *         ...
+ *         crtc.set_gamma(ramps);
+ *     }
+ * }
+ * </pre>
+ * Gamma ramps allocated from an arena must not be used after the
+ * arena has been closed, and must not be released to a
+ * {@link GammaRampsPool}.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class GammaRampsArena implements AutoCloseable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  capacity  The size, in bytes, of the native memory of the arena;
+	 *                   each gamma ramps need the size of their stops plus at most 128 bytes
+	 */
+	public GammaRampsArena(long capacity) throws LibgammaException
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity must not be negative");
+		long[] r = Backend.results();
+		libgamma_arena_create(capacity, r);
+		if (r[4] != 0)
+			throw new LibgammaException((int)(r[4]));
+		this.capacity = capacity;
+		this.address = r[0];
+		this.cleanable = NativeHandle.register(this, NativeHandle.ARENA, this.address, null);
+	}
+
+
+	/**
+	 * The size, in bytes, of the native memory of the arena
+	 */
+	public final long capacity;
+
+	/**
+	 * The address of the native memory of the arena
+	 */
+	private final long address;
+
+	/**
+	 * Releases the native memory of the arena
+	 */
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * The number of bytes that have been allocated
+	 */
+	private long offset = 0;
+
+	/**
+	 * The CRTC:s to close when the arena is closed
+	 */
+	private final ArrayList<CRTC> crtcs = new ArrayList<CRTC>();
+
+	/**
+	 * Whether {@link #close} has been called, read by the
+	 * gamma ramps allocated from the arena
+	 */
+	volatile boolean closed = false;
+
+
+	/**
+	 * Allocate gamma ramps from the arena
+	 * <p>
+	 * The stops of the gamma ramps are not initialised.
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   depth       The bit-depth of the value axes of gamma ramps,
+	 *                      -1 for single precision floating point, and -2 for
+	 *                      double precision floating point
+	 * @return              The gamma ramps, of the subclass for the depth, see {@link GammaRamps#create}
+	 * @throws  IllegalStateException  If the arena does not have room for the gamma ramps,
+	 *                                 or if the arena has been closed
+	 */
+	public GammaRamps<? extends Ramp> allocate(int red_size, int green_size, int blue_size, int depth)
+	{
+		this.check_open();
+		try {
+			if ((depth != 8) && (depth != 16) && (depth != 32) && (depth != 64) && (depth != -1) && (depth != -2))
+				throw new IllegalArgumentException("depth must be either of: 8, 16, 32, 64, -1, -2.");
+			if ((red_size | green_size | blue_size) < 0)
+				throw new IllegalArgumentException("sizes must not be negative");
+			long[] r = Backend.results();
+			libgamma_arena_gamma_ramps(this.address, this.capacity, this.offset, depth, red_size, green_size, blue_size, r);
+			if (r[4] < 0)
+				throw new IllegalStateException("the arena is full");
+			this.offset = r[4];
+			if      (depth ==  8)  return new GammaRamps8 (r, red_size, green_size, blue_size, this);
+			else if (depth == 16)  return new GammaRamps16(r, red_size, green_size, blue_size, this);
+			else if (depth == 32)  return new GammaRamps32(r, red_size, green_size, blue_size, this);
+			else if (depth == 64)  return new GammaRamps64(r, red_size, green_size, blue_size, this);
+			else if (depth == -1)  return new GammaRampsf (r, red_size, green_size, blue_size, this);
+			else                   return new GammaRampsd (r, red_size, green_size, blue_size, this);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Open a CRTC that is closed when the arena is closed
+	 * 
+	 * @param   partition  The partition the CRTC belongs to
+	 * @param   crtc       The index of the CRTC within its partition
+	 * @return             The CRTC
+	 * @throws  IllegalStateException  If the arena has been closed
+	 */
+	public CRTC crtc(Partition partition, int crtc) throws LibgammaException
+	{
+		this.check_open();
+		CRTC object = new CRTC(partition, crtc);
+		this.crtcs.add(object);
+		return object;
+	}
+
+	/**
+	 * Get the number of bytes that have been allocated
+	 * 
+	 * @return  The number of bytes of the native memory of the arena that are in use
+	 */
+	public long used()
+	{
+		return this.offset;
+	}
+
+	/**
+	 * Close all CRTC:s opened through the arena, and
+	 * release all gamma ramps allocated from it
+	 * <p>
+	 * Calling this method more than once has no effect.
+	 */
+	public void close()
+	{
+		this.closed = true;
+		for (int i = this.crtcs.size(); i-- > 0;)
+			this.crtcs.get(i).close();
+		this.crtcs.clear();
+		this.cleanable.clean();
+	}
+
+
+	/**
+	 * Check that the arena has not been closed
+	 * 
+	 * @throws  IllegalStateException  If the arena has been closed
+	 */
+	private void check_open()
+	{
+		if (this.closed)
+			throw new IllegalStateException("the arena has been closed");
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<GammaRampsArena: capacity = " + Long.toString(this.capacity) + ", " +
+		       "used = " + Long.toString(this.offset) + ", " +
+		       "crtcs = " + Integer.toString(this.crtcs.size()) + ">";
+	}
+
+
+	/**
+	 * Allocate the native memory of an arena
+	 * 
+	 * @param  capacity  The size of the memory, in bytes
+	 * @param  out       Element 0: The address of the memory<br>
+	 *                   Element 4: Zero on success, an error code on error
+	 */
+	private static native void libgamma_arena_create(long capacity, long[] out);
+
+	/**
+	 * Release the native memory of an arena
+	 * 
+	 * @param  address  The address of the memory
+	 */
+	static native void libgamma_arena_free(long address);
+
+	/**
+	 * Allocate gamma ramps from the native memory of an arena
+	 * 
+	 * @param  address     The address of the memory
+	 * @param  capacity    The size of the memory, in bytes
+	 * @param  offset      The number of bytes that have been allocated
+	 * @param  depth       The depth of the gamma ramps
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param  out         Element 0: The address of the native object<br>
+	 *                     Element 1: The address of the red gamma ramp<br>
+	 *                     Element 2: The address of the green gamma ramp<br>
+	 *                     Element 3: The address of the blue gamma ramp<br>
+	 *                     Element 4: The new number of bytes that have been
+	 *                                allocated, -1 if the memory is too small
+	 */
+	private static native void libgamma_arena_gamma_ramps(long address, long capacity, long offset, int depth,
+	                                                      int red_size, int green_size, int blue_size, long[] out);
+}
@@ -0,0 +1,20 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+
+/**
+ * Function that fills gamma ramps from a set of parameters,
+ * used to animate between parameter sets, see
+ * {@link GammaAnimator#animate(CRTC, GammaRamps, double[], double[], long, int, GammaRampsGenerator)}
+ */
+public interface GammaRampsGenerator
+{
+	/**
+	 * Fill gamma ramps
+	 * 
+	 * @param  ramps       The gamma ramps to fill
+	 * @param  parameters  The parameters, interpolated between the
+	 *                     parameter sets of the animation
+	 */
+	public void generate(GammaRamps<? extends Ramp> ramps, double[] parameters) throws LibgammaException;
+}
@@ -0,0 +1,241 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Pool of gamma ramp structures, for reusing native memory
+ * <p>
+ * Gamma ramps are pooled by their sizes and depth. Gamma ramps that
+ * are borrowed from the pool and released back to it are reused by
+ * later borrows instead of being closed and allocated again, so code
+ * that needs new gamma ramps often, such as an animation, does not
+ * allocate native memory once the pool holds enough gamma ramps.
+ * Typical use is
+ * <pre>
+ * GammaRamps16 ramps = (GammaRamps16)pool.borrow(size, size, size, 16);
+ * try {
+ *     ...
+ * } finally {
+ *     pool.release(ramps);
+ * }
+ * </pre>
+ * <p>
+ * Instances are thread-safe; borrowing and releasing do not lock.
+ */
+public final class GammaRampsPool
+{
+	/**
+	 * The parameters of all keys
+	 */
+	private static final double[] NO_PARAMS = new double[0];
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  capacity  The maximum number of idle gamma ramps
+	 *                   kept for each combination of sizes and depth
+	 */
+	public GammaRampsPool(int capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity must not be negative");
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * The maximum number of idle gamma ramps kept
+	 * for each combination of sizes and depth
+	 */
+	public final int capacity;
+
+	/**
+	 * The idle gamma ramps, by sizes and depth; empty slots are {@code null}
+	 */
+	private final ConcurrentHashMap<RampCacheKey, AtomicReferenceArray<GammaRamps<? extends Ramp>>> idle
+		= new ConcurrentHashMap<RampCacheKey, AtomicReferenceArray<GammaRamps<? extends Ramp>>>();
+
+	/**
+	 * The number of borrows that reused idle gamma ramps
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * The number of borrows that allocated new gamma ramps
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * The number of releases that kept the gamma ramps
+	 */
+	private final AtomicLong releases = new AtomicLong();
+
+	/**
+	 * The number of releases that did not keep the gamma ramps
+	 */
+	private final AtomicLong discards = new AtomicLong();
+
+
+	/**
+	 * Borrow gamma ramps from the pool
+	 * <p>
+	 * The stops of reused gamma ramps are left as they were
+	 * when the gamma ramps were released.
+	 * 
+	 * @param   red_size    The size of the encoding axis of the red gamma ramp
+	 * @param   green_size  The size of the encoding axis of the green gamma ramp
+	 * @param   blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param   depth       The bit-depth of the value axes of gamma ramps,
+	 *                      -1 for single precision floating point, and -2 for
+	 *                      double precision floating point
+	 * @return              Idle gamma ramps, or new gamma ramps if there are none,
+	 *                      of the subclass for the depth, see {@link GammaRamps#create}
+	 */
+	public GammaRamps<? extends Ramp> borrow(int red_size, int green_size, int blue_size, int depth) throws LibgammaException
+	{
+		RampCacheKey key = new RampCacheKey(red_size, green_size, blue_size, (short)depth, NO_PARAMS);
+		AtomicReferenceArray<GammaRamps<? extends Ramp>> slots = this.idle.get(key);
+		if (slots != null) {
+			for (int i = 0, n = slots.length(); i < n; i++) {
+				if (slots.get(i) == null)
+					continue;
+				GammaRamps<? extends Ramp> ramps = slots.getAndSet(i, null);
+				if (ramps != null) {
+					this.hits.incrementAndGet();
+					return ramps;
+				}
+			}
+		}
+		this.misses.incrementAndGet();
+		return GammaRamps.create(red_size, green_size, blue_size, depth);
+	}
+
+	/**
+	 * Release borrowed gamma ramps back to the pool
+	 * <p>
+	 * The gamma ramps are closed if the pool already holds
+	 * {@link #capacity} idle gamma ramps of the same sizes and
+	 * depth. Gamma ramps that have been closed, that were allocated
+	 * from a {@link GammaRampsArena}, or that are shared by a
+	 * {@link GammaRampsStore}, are discarded without being kept
+	 * or closed, as their memory is not the pool's to reuse.
+	 * Either way, they must not be used after they have been
+	 * released, and they must not be released twice.
+	 * 
+	 * @param  ramps  The gamma ramps, they need not have been borrowed from this pool
+	 */
+	public void release(GammaRamps<? extends Ramp> ramps)
+	{
+		if (!ramps.reusable()) {
+			this.discards.incrementAndGet();
+			return;
+		}
+		RampCacheKey key = new RampCacheKey(ramps, NO_PARAMS);
+		AtomicReferenceArray<GammaRamps<? extends Ramp>> slots = this.idle.get(key);
+		if (slots == null) {
+			slots = new AtomicReferenceArray<GammaRamps<? extends Ramp>>(this.capacity);
+			AtomicReferenceArray<GammaRamps<? extends Ramp>> existing = this.idle.putIfAbsent(key, slots);
+			if (existing != null)
+				slots = existing;
+		}
+		for (int i = 0, n = slots.length(); i < n; i++) {
+			if ((slots.get(i) == null) && slots.compareAndSet(i, null, ramps)) {
+				this.releases.incrementAndGet();
+				return;
+			}
+		}
+		this.discards.incrementAndGet();
+		ramps.close();
+	}
+
+	/**
+	 * Close all idle gamma ramps, the counters are not reset
+	 */
+	public void clear()
+	{
+		for (AtomicReferenceArray<GammaRamps<? extends Ramp>> slots : this.idle.values()) {
+			for (int i = 0, n = slots.length(); i < n; i++) {
+				GammaRamps<? extends Ramp> ramps = slots.getAndSet(i, null);
+				if (ramps != null)
+					ramps.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Get the number of borrows that reused idle gamma ramps
+	 * 
+	 * @return  The number of calls to {@link #borrow} that did not allocate
+	 */
+	public long hits()
+	{
+		return this.hits.get();
+	}
+
+	/**
+	 * Get the number of borrows that allocated new gamma ramps
+	 * 
+	 * @return  The number of calls to {@link #borrow} that allocated
+	 */
+	public long misses()
+	{
+		return this.misses.get();
+	}
+
+	/**
+	 * Get the number of releases that kept the gamma ramps
+	 * 
+	 * @return  The number of calls to {@link #release} that made the gamma ramps idle
+	 */
+	public long releases()
+	{
+		return this.releases.get();
+	}
+
+	/**
+	 * Get the number of releases that did not keep the gamma ramps
+	 * 
+	 * @return  The number of calls to {@link #release} that did not keep
+	 *          the gamma ramps, because the pool was full or because
+	 *          they could not be reused
+	 */
+	public long discards()
+	{
+		return this.discards.get();
+	}
+
+	/**
+	 * Get the number of idle gamma ramps
+	 * 
+	 * @return  The number of gamma ramps held by the pool
+	 */
+	public int idle()
+	{
+		int count = 0;
+		for (AtomicReferenceArray<GammaRamps<? extends Ramp>> slots : this.idle.values())
+			for (int i = 0, n = slots.length(); i < n; i++)
+				if (slots.get(i) != null)
+					count++;
+		return count;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString()
+	{
+		return "<GammaRampsPool: capacity = " + Integer.toString(this.capacity) + ", " +
+		       "idle = " + Integer.toString(this.idle()) + ", " +
+		       "hits = " + Long.toString(this.hits.get()) + ", " +
+		       "misses = " + Long.toString(this.misses.get()) + ", " +
+		       "releases = " + Long.toString(this.releases.get()) + ", " +
+		       "discards = " + Long.toString(this.discards.get()) + ">";
+	}
+}
@@ -0,0 +1,258 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+
+/**
+ * Interning store of gamma ramps, that shares gamma ramps
+ * with identical contents
+ * <p>
+ * The store keeps one copy of each distinct combination of
+ * sizes, depth and stops, and counts the references to it, so
+ * that when many CRTC:s use the same gamma ramps, the memory
+ * used scales with the number of distinct gamma ramps rather
+ * than with the number of CRTC:s. Typical use is
+ * <pre>
+ * GammaRamps&lt;? extends Ramp&gt; shared = store.intern(ramps);
+ * crtc.set_gamma(shared);
+ * ...
+ * GammaRamps&lt;? extends Ramp&gt; own = store.modify(shared);
+ * own.fill_temperature(kelvin);
+ * crtc.set_gamma(own);
+ * </pre>
+ * Shared gamma ramps must not be modified, or closed, by their
+ * users; methods that modify their stops throw
+ * {@link IllegalStateException}, except writes through a buffer
+ * returned by <tt>buffer()</tt> on a ramp, which cannot be checked.
+ * To modify them, call {@link #modify}, which gives the caller its
+ * own gamma ramps and copies the stops only if other references
+ * remain. Lookups compare a hash of the stops, see
+ * {@link GammaRamps#content_hash}, and then the stops themselves,
+ * see {@link GammaRamps#equals_contents}.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class GammaRampsStore implements AutoCloseable
+{
+	/**
+	 * Constructor
+	 */
+	public GammaRampsStore()
+	{
+	}
+
+
+	/**
+	 * The shared gamma ramps, by the hash of their contents
+	 */
+	private final HashMap<Long, ArrayList<GammaRamps<? extends Ramp>>> contents
+		= new HashMap<Long, ArrayList<GammaRamps<? extends Ramp>>>();
+
+	/**
+	 * Element 0: the number of references to the shared gamma ramps<br>
+	 * Element 1: the hash of the contents of the shared gamma ramps
+	 */
+	private final IdentityHashMap<GammaRamps<? extends Ramp>, long[]> references
+		= new IdentityHashMap<GammaRamps<? extends Ramp>, long[]>();
+
+	/**
+	 * The total number of references
+	 */
+	private long total = 0;
+
+
+	/**
+	 * Get shared gamma ramps with the same contents as gamma ramps
+	 * <p>
+	 * A reference to the returned gamma ramps is added, which must
+	 * be removed with {@link #release} or {@link #modify}. If there
+	 * are no such gamma ramps, a copy of <tt>ramps</tt> is added to
+	 * the store; <tt>ramps</tt> itself is never kept. The stops of
+	 * the returned gamma ramps cannot be modified until they are
+	 * handed over by {@link #modify}.
+	 * 
+	 * @param   ramps  The gamma ramps, may be shared gamma ramps from this store
+	 * @return         The shared gamma ramps
+	 */
+	public synchronized GammaRamps<? extends Ramp> intern(GammaRamps<? extends Ramp> ramps) throws LibgammaException
+	{
+		long[] entry = this.references.get(ramps);
+		if (entry != null) {
+			entry[0]++;
+			this.total++;
+			return ramps;
+		}
+		long hash = ramps.content_hash();
+		ArrayList<GammaRamps<? extends Ramp>> bucket = this.contents.get(hash);
+		if (bucket != null) {
+			for (GammaRamps<? extends Ramp> shared : bucket) {
+				if (shared.equals_contents(ramps)) {
+					this.references.get(shared)[0]++;
+					this.total++;
+					return shared;
+				}
+			}
+		}
+		GammaRamps<? extends Ramp> shared = copy(ramps);
+		shared.interned = true;
+		if (bucket == null) {
+			bucket = new ArrayList<GammaRamps<? extends Ramp>>(1);
+			this.contents.put(hash, bucket);
+		}
+		bucket.add(shared);
+		this.references.put(shared, new long[] {1, hash});
+		this.total++;
+		return shared;
+	}
+
+	/**
+	 * Remove a reference to shared gamma ramps, and close them
+	 * if it was the last reference
+	 * 
+	 * @param  shared  Shared gamma ramps from this store
+	 */
+	public synchronized void release(GammaRamps<? extends Ramp> shared)
+	{
+		long[] entry = this.unreference(shared);
+		if (entry[0] == 0) {
+			this.remove(shared, entry[1]);
+			shared.close();
+		}
+	}
+
+	/**
+	 * Copy-on-write: remove a reference to shared gamma ramps, and
+	 * get gamma ramps with the same contents that the caller owns
+	 * and may modify
+	 * <p>
+	 * If it was the last reference, the shared gamma ramps themselves
+	 * are removed from the store and returned, without copying.
+	 * 
+	 * @param   shared  Shared gamma ramps from this store
+	 * @return          Gamma ramps owned by the caller, which must close them
+	 */
+	public synchronized GammaRamps<? extends Ramp> modify(GammaRamps<? extends Ramp> shared) throws LibgammaException
+	{
+		long[] entry = this.references.get(shared);
+		if (entry == null)
+			throw new IllegalArgumentException("gamma ramps are not in the store");
+		if (entry[0] == 1) {
+			this.unreference(shared);
+			this.remove(shared, entry[1]);
+			shared.interned = false;
+			return shared;
+		}
+		GammaRamps<? extends Ramp> own = copy(shared);
+		this.unreference(shared);
+		return own;
+	}
+
+	/**
+	 * Close all shared gamma ramps, even if they are still referenced
+	 */
+	public synchronized void close()
+	{
+		for (GammaRamps<? extends Ramp> shared : this.references.keySet())
+			shared.close();
+		this.references.clear();
+		this.contents.clear();
+		this.total = 0;
+	}
+
+
+	/**
+	 * Get the number of distinct shared gamma ramps
+	 * 
+	 * @return  The number of gamma ramps in the store
+	 */
+	public synchronized int distinct()
+	{
+		return this.references.size();
+	}
+
+	/**
+	 * Get the total number of references to shared gamma ramps
+	 * 
+	 * @return  The number of references to gamma ramps in the store
+	 */
+	public synchronized long references()
+	{
+		return this.total;
+	}
+
+	/**
+	 * Get the total size of the stops of the shared gamma ramps
+	 * 
+	 * @return  The size, in bytes, of the stops of all gamma ramps in the store
+	 */
+	public synchronized long size()
+	{
+		long size = 0;
+		for (GammaRamps<? extends Ramp> shared : this.references.keySet())
+			size += shared.byte_size();
+		return size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized String toString()
+	{
+		return "<GammaRampsStore: distinct = " + Integer.toString(this.references.size()) + ", " +
+		       "references = " + Long.toString(this.total) + ">";
+	}
+
+
+	/**
+	 * Remove a reference to shared gamma ramps
+	 * 
+	 * @param   shared  Shared gamma ramps from this store
+	 * @return          The entry of the gamma ramps in {@link #references}
+	 */
+	private long[] unreference(GammaRamps<? extends Ramp> shared)
+	{
+		long[] entry = this.references.get(shared);
+		if (entry == null)
+			throw new IllegalArgumentException("gamma ramps are not in the store");
+		entry[0]--;
+		this.total--;
+		return entry;
+	}
+
+	/**
+	 * Remove shared gamma ramps from the store
+	 * 
+	 * @param  shared  Shared gamma ramps from this store
+	 * @param  hash    The hash of the contents of <tt>shared</tt>
+	 */
+	private void remove(GammaRamps<? extends Ramp> shared, long hash)
+	{
+		this.references.remove(shared);
+		ArrayList<GammaRamps<? extends Ramp>> bucket = this.contents.get(hash);
+		for (int i = 0; i < bucket.size(); i++) {
+			if (bucket.get(i) == shared) {
+				bucket.remove(i);
+				break;
+			}
+		}
+		if (bucket.isEmpty())
+			this.contents.remove(hash);
+	}
+
+	/**
+	 * Copy gamma ramps
+	 * 
+	 * @param   ramps  The gamma ramps
+	 * @return         New gamma ramps with the same sizes, depth and stops
+	 */
+	private static GammaRamps<? extends Ramp> copy(GammaRamps<? extends Ramp> ramps) throws LibgammaException
+	{
+		GammaRamps<? extends Ramp> copy = GammaRamps.create(ramps.red.size, ramps.green.size, ramps.blue.size, ramps.depth);
+		ramps.convert_into(copy);
+		return copy;
+	}
+}
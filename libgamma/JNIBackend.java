@@ -0,0 +1,496 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * The calls into <tt>libgamma</tt>, through the JNI library <tt>libgamma-java</tt>
+ */
+final class JNIBackend extends Backend
+{
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_site_create(int method, String site, long[] out)
+	{
+		Site.libgamma_site_create(method, site, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_site_free(long address)
+	{
+		Site.libgamma_site_free(address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_site_restore(long address)
+	{
+		return Site.libgamma_site_restore(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_partition_create(long site, int partition, long[] out)
+	{
+		Partition.libgamma_partition_create(site, partition, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_partition_free(long address)
+	{
+		Partition.libgamma_partition_free(address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_partition_restore(long address)
+	{
+		return Partition.libgamma_partition_restore(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_crtc_create(long partition, int crtc, long[] out)
+	{
+		CRTC.libgamma_crtc_create(partition, crtc, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_crtc_free(long address)
+	{
+		CRTC.libgamma_crtc_free(address);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_restore(long address)
+	{
+		return CRTC.libgamma_crtc_restore(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps8(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_ramps8(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps8(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_ramps8(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps16(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_ramps16(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps16(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_ramps16(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps32(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_ramps32(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps32(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_ramps32(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_ramps64(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_ramps64(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_ramps64(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_ramps64(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_rampsf(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_rampsf(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_rampsf(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_rampsf(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_get_gamma_rampsd(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_get_gamma_rampsd(address, ramps);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_crtc_set_gamma_rampsd(long address, long ramps)
+	{
+		return CRTC.libgamma_crtc_set_gamma_rampsd(address, ramps);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_ramps8_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_free(long address)
+	{
+		GammaRamps.libgamma_gamma_ramps8_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_ramps16_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_free(long address)
+	{
+		GammaRamps.libgamma_gamma_ramps16_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_ramps32_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_free(long address)
+	{
+		GammaRamps.libgamma_gamma_ramps32_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_ramps64_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_free(long address)
+	{
+		GammaRamps.libgamma_gamma_ramps64_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_rampsf_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_free(long address)
+	{
+		GammaRamps.libgamma_gamma_rampsf_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_create(int red_size, int green_size, int blue_size, long[] out)
+	{
+		GammaRamps.libgamma_gamma_rampsd_create(red_size, green_size, blue_size, out);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_free(long address)
+	{
+		GammaRamps.libgamma_gamma_rampsd_free(address);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	short libgamma_gamma_ramps8_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_ramps8_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_set(long address, int stop, short value)
+	{
+		Ramp.libgamma_gamma_ramps8_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_get_region(long address, int from, byte[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps8_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps8_set_region(long address, int from, byte[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps8_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int libgamma_gamma_ramps16_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_ramps16_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_set(long address, int stop, int value)
+	{
+		Ramp.libgamma_gamma_ramps16_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_get_region(long address, int from, short[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps16_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps16_set_region(long address, int from, short[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps16_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	long libgamma_gamma_ramps32_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_ramps32_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_set(long address, int stop, long value)
+	{
+		Ramp.libgamma_gamma_ramps32_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_get_region(long address, int from, int[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps32_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps32_set_region(long address, int from, int[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps32_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	long libgamma_gamma_ramps64_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_ramps64_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_set(long address, int stop, long value)
+	{
+		Ramp.libgamma_gamma_ramps64_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_get_region(long address, int from, long[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps64_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_ramps64_set_region(long address, int from, long[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_ramps64_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	float libgamma_gamma_rampsf_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_rampsf_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_set(long address, int stop, float value)
+	{
+		Ramp.libgamma_gamma_rampsf_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_get_region(long address, int from, float[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_rampsf_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsf_set_region(long address, int from, float[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_rampsf_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	double libgamma_gamma_rampsd_get(long address, int stop)
+	{
+		return Ramp.libgamma_gamma_rampsd_get(address, stop);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_set(long address, int stop, double value)
+	{
+		Ramp.libgamma_gamma_rampsd_set(address, stop, value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_get_region(long address, int from, double[] dst, int off, int len)
+	{
+		Ramp.libgamma_gamma_rampsd_get_region(address, from, dst, off, len);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	void libgamma_gamma_rampsd_set_region(long address, int from, double[] src, int off, int len)
+	{
+		Ramp.libgamma_gamma_rampsd_set_region(address, from, src, off, len);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	ByteBuffer libgamma_gamma_ramp_buffer(long address, long capacity)
+	{
+		return Ramp.libgamma_gamma_ramp_buffer(address, capacity);
+	}
+}
@@ -0,0 +1,195 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+
+/**
+ * An accelerated implementation of the kernels of {@link RampKernels}
+ * <p>
+ * On Java 22 and newer, the multi-release jar may also contain an
+ * implementation that uses the incubating Vector API; it is only in
+ * the jar if it was built with <tt>VECTOR_CLASS</tt> set, see
+ * <tt>config.mk</tt>. Incubator modules are not resolved by default,
+ * so it is only used when the JVM is started with
+ * <tt>--add-modules jdk.incubator.vector</tt>, and unless the system
+ * property <tt>libgamma.kernels</tt> is set to <tt>scalar</tt>; in
+ * every other case, {@link #INSTANCE} is {@code null}, and the scalar
+ * loops of {@link RampKernels} are used.
+ * <p>
+ * Each method processes whole vectors from the beginning of the
+ * range, and returns the number of elements it has processed, so
+ * that {@link RampKernels} processes the remainder; the arguments
+ * have already been checked. A method may return zero if it cannot
+ * be used for its arguments, for example for a buffer that is not
+ * direct or not in native byte order.
+ */
+abstract class Kernels
+{
+	/**
+	 * The implementation in use, {@code null} if none is available
+	 */
+	static final Kernels INSTANCE = Kernels.select();
+
+
+	/**
+	 * Select the implementation to use
+	 * 
+	 * @return  The Vector API implementation if it is
+	 *          available and not disabled, {@code null} otherwise
+	 */
+	private static Kernels select()
+	{
+		if ("scalar".equals(System.getProperty("libgamma.kernels")))
+			return null;
+		if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+			return null;
+		try {
+			Class<?> vector = Class.forName("libgamma.VectorKernels");
+			return (Kernels)(vector.getDeclaredConstructor().newInstance());
+		} catch (Throwable err) {
+			/* Not running on Java 22 or newer, the implementation
+			 * is not in the jar, or the machine's vectors are too short. */
+			return null;
+		}
+	}
+
+
+	/**
+	 * See {@link RampKernels#transform(short[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(short[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(short[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(short[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(int[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(int[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(int[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(int[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(float[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(float[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(float[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(float[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(double[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(double[] channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(double[], int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(double[] channel, int off, int len, double gain, double offset, double exponent);
+
+
+	/**
+	 * See {@link RampKernels#transform(ShortBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(ShortBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(ShortBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(ShortBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(IntBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(IntBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(IntBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(IntBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(FloatBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(FloatBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(FloatBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(FloatBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#transform(DoubleBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been transformed
+	 */
+	abstract int transform(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+	/**
+	 * See {@link RampKernels#generate(DoubleBuffer, int, int, double, double, double)}
+	 * 
+	 * @return  The number of stops that have been generated
+	 */
+	abstract int generate(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent);
+
+
+	/**
+	 * See {@link RampKernels#quantise(double[], int, short[], int, int)}
+	 * 
+	 * @return  The number of stops that have been quantised
+	 */
+	abstract int quantise(double[] src, int src_off, short[] dst, int dst_off, int len);
+
+	/**
+	 * See {@link RampKernels#quantise(double[], int, int[], int, int)}
+	 * 
+	 * @return  The number of stops that have been quantised
+	 */
+	abstract int quantise(double[] src, int src_off, int[] dst, int dst_off, int len);
+
+	/**
+	 * See {@link RampKernels#quantise(double[], int, float[], int, int)}
+	 * 
+	 * @return  The number of stops that have been quantised
+	 */
+	abstract int quantise(double[] src, int src_off, float[] dst, int dst_off, int len);
+}
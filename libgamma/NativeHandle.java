@@ -0,0 +1,166 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Releases a native object, either when its owner is closed
+ * or, if it never is, when its owner becomes unreachable
+ * <p>
+ * The handle must not reference its owner, otherwise the
+ * owner would never become unreachable.
+ */
+final class NativeHandle implements Runnable
+{
+	/**
+	 * Kind of native object: site state
+	 */
+	static final int SITE = 0;
+
+	/**
+	 * Kind of native object: partition state
+	 */
+	static final int PARTITION = 1;
+
+	/**
+	 * Kind of native object: CRTC state
+	 */
+	static final int CRTC = 2;
+
+	/**
+	 * Kind of native object: 8-bit gamma ramps
+	 */
+	static final int GAMMA_RAMPS8 = 3;
+
+	/**
+	 * Kind of native object: 16-bit gamma ramps
+	 */
+	static final int GAMMA_RAMPS16 = 4;
+
+	/**
+	 * Kind of native object: 32-bit gamma ramps
+	 */
+	static final int GAMMA_RAMPS32 = 5;
+
+	/**
+	 * Kind of native object: 64-bit gamma ramps
+	 */
+	static final int GAMMA_RAMPS64 = 6;
+
+	/**
+	 * Kind of native object: single precision floating point gamma ramps
+	 */
+	static final int GAMMA_RAMPSF = 7;
+
+	/**
+	 * Kind of native object: double precision floating point gamma ramps
+	 */
+	static final int GAMMA_RAMPSD = 8;
+
+	/**
+	 * Kind of native object: the memory of a {@link GammaRampsArena}
+	 */
+	static final int ARENA = 9;
+
+
+	/**
+	 * The cleaner that releases native objects whose owners
+	 * have become unreachable without being closed
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	/**
+	 * The number of native objects that have not been released
+	 */
+	private static final AtomicLong live = new AtomicLong();
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  kind     The kind of the native object
+	 * @param  address  The address of the native object
+	 * @param  parent   An object that must stay reachable until the native
+	 *                  object has been released, {@code null} if none
+	 */
+	private NativeHandle(int kind, long address, Object parent)
+	{
+		this.kind = kind;
+		this.address = address;
+		this.parent = parent;
+	}
+
+
+	/**
+	 * The kind of the native object
+	 */
+	private final int kind;
+
+	/**
+	 * The address of the native object
+	 */
+	private final long address;
+
+	/**
+	 * An object that must stay reachable until the native object
+	 * has been released, such as the site of a partition, which
+	 * must not be released before the partition
+	 */
+	private final Object parent;
+
+
+	/**
+	 * Register a native object for release
+	 * <p>
+	 * Only a phantom reference to <tt>owner</tt> is kept, and it is never
+	 * called back, so constructors may register the object they construct
+	 * before a subclass has been initialised; they suppress the
+	 * <tt>this-escape</tt> lint warning for that reason.
+	 * 
+	 * @param   owner    The object that owns the native object
+	 * @param   kind     The kind of the native object
+	 * @param   address  The address of the native object
+	 * @param   parent   An object that must stay reachable until the native
+	 *                   object has been released, {@code null} if none
+	 * @return           The cleanable; calling its {@code clean} method releases
+	 *                   the native object, unless it already has been released
+	 */
+	static Cleaner.Cleanable register(Object owner, int kind, long address, Object parent)
+	{
+		live.incrementAndGet();
+		return CLEANER.register(owner, new NativeHandle(kind, address, parent));
+	}
+
+	/**
+	 * Get the number of native objects that have not been released
+	 * 
+	 * @return  The number of live native objects
+	 */
+	static long live()
+	{
+		return live.get();
+	}
+
+
+	/**
+	 * Release the native object, this is called at most once
+	 */
+	public void run()
+	{
+		switch (this.kind) {
+		case SITE:           Backend.INSTANCE.libgamma_site_free(this.address);          break;
+		case PARTITION:      Backend.INSTANCE.libgamma_partition_free(this.address);     break;
+		case CRTC:           Backend.INSTANCE.libgamma_crtc_free(this.address);          break;
+		case GAMMA_RAMPS8:   Backend.INSTANCE.libgamma_gamma_ramps8_free(this.address);  break;
+		case GAMMA_RAMPS16:  Backend.INSTANCE.libgamma_gamma_ramps16_free(this.address); break;
+		case GAMMA_RAMPS32:  Backend.INSTANCE.libgamma_gamma_ramps32_free(this.address); break;
+		case GAMMA_RAMPS64:  Backend.INSTANCE.libgamma_gamma_ramps64_free(this.address); break;
+		case GAMMA_RAMPSF:   Backend.INSTANCE.libgamma_gamma_rampsf_free(this.address);  break;
+		case GAMMA_RAMPSD:   Backend.INSTANCE.libgamma_gamma_rampsd_free(this.address);  break;
+		default:             GammaRampsArena.libgamma_arena_free(this.address);          break;
+		}
+		live.decrementAndGet();
+	}
+}
@@ -0,0 +1,177 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Applies gamma ramps to CRTC:s on multiple sites, or
+ * partitions, concurrently
+ * <p>
+ * The CRTC:s of each site are updated on the thread of the site,
+ * the same thread as the asynchronous operations of the site, see
+ * {@link CRTC#set_gamma_async}, so CRTC:s on different sites are
+ * updated at the same time, and the time to switch a scene is
+ * bounded by the slowest site rather than by their sum. Within a
+ * site, the CRTC:s of each partition are updated with one call
+ * to {@link Partition#set_gamma_all}.
+ * <p>
+ * Optionally, each partition instead gets its own worker thread,
+ * so that partitions of the same site are also updated at the
+ * same time. The workers are daemon threads that exit when they
+ * have been idle for a while, and they do not keep their
+ * partitions reachable.
+ * <p>
+ * While the applier is in use, the CRTC:s passed to it must not
+ * be used by any other thread. Instances are thread-safe.
+ */
+public final class ParallelApplier implements AutoCloseable
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  per_partition  Whether each partition, rather than each site, gets its own
+	 *                        worker; this must only be used with adjustment methods where
+	 *                        partitions are independent of each other, such as
+	 *                        {@link AdjustmentMethod#LINUX_DRM}, where each partition
+	 *                        is a graphics card, as calls for a site are then no longer
+	 *                        confined to the thread of the site
+	 */
+	public ParallelApplier(boolean per_partition)
+	{
+		this.per_partition = per_partition;
+	}
+
+
+	/**
+	 * Whether each partition, rather than each site, gets its own worker
+	 */
+	public final boolean per_partition;
+
+	/**
+	 * The workers of the partitions, if {@link #per_partition} is set
+	 */
+	private final WeakHashMap<Partition, SiteExecutor> workers = new WeakHashMap<Partition, SiteExecutor>();
+
+	/**
+	 * Whether {@link #close} has been called
+	 */
+	private boolean closed = false;
+
+
+	/**
+	 * Apply gamma ramps to CRTC:s
+	 * <p>
+	 * The returned future completes when all CRTC:s have been
+	 * updated, or have failed, with an array in which element
+	 * {@code i} is zero if {@code crtcs[i]} was updated successfully,
+	 * and an error code, see {@link LibgammaException#error_code},
+	 * otherwise. If a worker fails unexpectedly, or the work cannot
+	 * be given to one of the workers, for example because its site
+	 * has been closed, the future completes exceptionally; CRTC:s
+	 * that have already been given to other workers are still updated.
+	 * 
+	 * @param   crtcs  The CRTC:s
+	 * @param   ramps  The gamma ramps, {@code ramps[i]} is applied to {@code crtcs[i]}
+	 * @return         The completion of all CRTC:s, with their error codes
+	 * @throws  IllegalStateException  If the applier has been closed
+	 */
+	public CompletableFuture<int[]> apply(CRTC[] crtcs, GammaRamps<?>[] ramps)
+	{
+		if (ramps.length != crtcs.length)
+			throw new IllegalArgumentException("the arrays must have the same length");
+		synchronized (this) {
+			if (this.closed)
+				throw new IllegalStateException("the applier has been closed");
+		}
+		int[] errors = new int[crtcs.length];
+		CompletableFuture<int[]> result = new CompletableFuture<int[]>();
+
+		LinkedHashMap<Object, ArrayList<Integer>> groups = new LinkedHashMap<Object, ArrayList<Integer>>();
+		for (int i = 0; i < crtcs.length; i++) {
+			Object key = this.per_partition ? (Object)(crtcs[i].partition) : (Object)(crtcs[i].partition.site);
+			ArrayList<Integer> group = groups.get(key);
+			if (group == null)
+				groups.put(key, group = new ArrayList<Integer>());
+			group.add(i);
+		}
+		if (groups.isEmpty()) {
+			result.complete(errors);
+			return result;
+		}
+
+		AtomicInteger remaining = new AtomicInteger(groups.size());
+		try {
+			for (Object key : groups.keySet()) {
+				ArrayList<Integer> group = groups.get(key);
+				int[] indices = new int[group.size()];
+				for (int i = 0; i < indices.length; i++)
+					indices[i] = group.get(i);
+				ApplierTask task = new ApplierTask(crtcs, ramps, indices, errors, remaining, result);
+				if (this.per_partition)
+					this.worker((Partition)key).execute(task);
+				else
+					((Site)key).submit(task);
+			}
+		} catch (RuntimeException err) {
+			/* The groups that have not been given to a worker will never
+			 * count down remaining, so the result cannot complete normally. */
+			result.completeExceptionally(err);
+		}
+		return result;
+	}
+
+	/**
+	 * Stop the workers of the partitions, after they have finished the
+	 * work they have been given, and stop accepting new work
+	 * <p>
+	 * Calling this method more than once has no effect. Work given to
+	 * the threads of sites is not waited for.
+	 */
+	public void close()
+	{
+		ArrayList<SiteExecutor> workers;
+		synchronized (this) {
+			this.closed = true;
+			workers = new ArrayList<SiteExecutor>(this.workers.values());
+			this.workers.clear();
+		}
+		for (SiteExecutor worker : workers)
+			worker.shutdown();
+	}
+
+
+	/**
+	 * Get the number of workers of partitions
+	 * 
+	 * @return  The number of partitions that have a worker, always
+	 *          zero unless {@link #per_partition} is set
+	 */
+	public synchronized int workers()
+	{
+		return this.workers.size();
+	}
+
+
+	/**
+	 * Get the worker for a partition, creating it if needed
+	 * 
+	 * @param   partition  The partition
+	 * @return             The worker
+	 * @throws  IllegalStateException  If the applier has been closed
+	 */
+	private synchronized SiteExecutor worker(Partition partition)
+	{
+		if (this.closed)
+			throw new IllegalStateException("the applier has been closed");
+		SiteExecutor worker = this.workers.get(partition);
+		if (worker == null)
+			this.workers.put(partition, worker = new SiteExecutor("libgamma partition "
+			                                                      + Integer.toString(partition.partition)));
+		return worker;
+	}
+}
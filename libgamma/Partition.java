@@ -1,6 +1,9 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+
 
 /**
  * Partition state
@@ -14,7 +17,7 @@ package libgamma;
  * On hardware-level adjustment methods, such as Direct
  * Rendering Manager, a partition is a graphics card.
  */
-public class Partition
+public class Partition implements AutoCloseable
 {
 	/**
 	 * Type initialiser
@@ -31,15 +34,18 @@ public class Partition
 	 * @param  site       The site this partition belongs to
 	 * @param  partition  The index of the partition
 	 */
+	@SuppressWarnings("this-escape")
 	public Partition(Site site, int partition) throws LibgammaException
 	{
 		this.site = site;
 		this.partition = partition;
-		long[] r = libgamma_partition_create(site.address, partition);
+		long[] r = Backend.results();
+		Backend.INSTANCE.libgamma_partition_create(site.address, partition, r);
 		this.address = r[0];
 		this.crtcs_available = (int)(r[1]);
 		if (r[2] != 0)
 			throw new LibgammaException((int)(r[2]));
+		this.cleanable = NativeHandle.register(this, NativeHandle.PARTITION, this.address, site);
 	}
 
 
@@ -65,13 +71,28 @@ public class Partition
 	 */
 	final long address;
 
+	/**
+	 * Releases the native object
+	 */
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * The number of times {@link #restore} has been called, used by
+	 * {@link CRTC} to detect that its gamma ramps may have changed
+	 */
+	volatile int restores = 0;
+
 
 	/**
 	 * Release resources
+	 * <p>
+	 * Calling this method more than once has no effect. If it is
+	 * never called, the resources are released some time after the
+	 * object has become unreachable.
 	 */
 	public void close()
 	{
-		libgamma_partition_free(this.address);
+		this.cleanable.clean();
 	}
 
 	/**
@@ -79,9 +100,118 @@ public class Partition
 	 */
 	public void restore() throws LibgammaException
 	{
-		int r = libgamma_partition_restore(this.address);
-		if (r != 0)
-			throw new LibgammaException(r);
+		try {
+			this.restores++;
+			int r = Backend.INSTANCE.libgamma_partition_restore(this.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+
+	/**
+	 * Set the gamma ramps for multiple CRTC:s in the partition, in one native call
+	 * <p>
+	 * As with {@link CRTC#set_gamma}, gamma ramps that are already
+	 * applied to their CRTC, and have not been modified since, are
+	 * skipped. A failure for one CRTC does not stop the others.
+	 * 
+	 * @param   crtcs   The CRTC:s, they must belong to this partition
+	 * @param   ramps   The gamma ramps to apply, {@code ramps[i]} is applied to {@code crtcs[i]}
+	 * @param   errors  Output array, at least as long as <tt>crtcs</tt>, in which {@code errors[i]}
+	 *                  is set to zero if {@code crtcs[i]} was updated successfully, and to an
+	 *                  error code, see {@link LibgammaException#error_code}, otherwise
+	 * @return          The number of CRTC:s that could not be updated
+	 */
+	public int set_gamma_all(CRTC[] crtcs, GammaRamps<?>[] ramps, int[] errors)
+	{
+		int n = this.check_all(crtcs, ramps, errors);
+		long[] generations = new long[n];
+		long[] addresses = new long[n * 2];
+		int[] depths = new int[n];
+		for (int i = 0; i < n; i++) {
+			ramps[i].check_open();
+			generations[i] = ramps[i].generation();
+			if (crtcs[i].is_applied(ramps[i], generations[i])) {
+				depths[i] = 0;
+			} else {
+				addresses[2 * i + 0] = crtcs[i].address;
+				addresses[2 * i + 1] = ramps[i].address;
+				depths[i] = ramps[i].depth;
+			}
+		}
+		try {
+			libgamma_partition_set_gamma_all(addresses, depths, n, errors);
+		} finally {
+			/* The arrays keep the CRTC:s and gamma ramps reachable. */
+			Reference.reachabilityFence(crtcs);
+			Reference.reachabilityFence(ramps);
+		}
+		int failures = 0;
+		for (int i = 0; i < n; i++) {
+			if (depths[i] != 0)
+				crtcs[i].record_applied(ramps[i], generations[i], errors[i]);
+			if (errors[i] != 0)
+				failures++;
+		}
+		return failures;
+	}
+
+	/**
+	 * Get the current gamma ramps for multiple CRTC:s in the partition, in one native call
+	 * <p>
+	 * A failure for one CRTC does not stop the others.
+	 * 
+	 * @param   crtcs    The CRTC:s, they must belong to this partition
+	 * @param   outputs  The gamma ramps to fill, {@code outputs[i]} is filled from {@code crtcs[i]}
+	 * @param   errors   Output array, at least as long as <tt>crtcs</tt>, in which {@code errors[i]}
+	 *                   is set to zero if {@code outputs[i]} was filled successfully, and to an
+	 *                   error code, see {@link LibgammaException#error_code}, otherwise
+	 * @return           The number of CRTC:s that could not be read
+	 */
+	public int get_gamma_all(CRTC[] crtcs, GammaRamps<?>[] outputs, int[] errors)
+	{
+		int n = this.check_all(crtcs, outputs, errors);
+		long[] addresses = new long[n * 2];
+		int[] depths = new int[n];
+		for (int i = 0; i < n; i++) {
+			outputs[i].modified();
+			addresses[2 * i + 0] = crtcs[i].address;
+			addresses[2 * i + 1] = outputs[i].address;
+			depths[i] = outputs[i].depth;
+		}
+		try {
+			libgamma_partition_get_gamma_all(addresses, depths, n, errors);
+		} finally {
+			/* The arrays keep the CRTC:s and gamma ramps reachable. */
+			Reference.reachabilityFence(crtcs);
+			Reference.reachabilityFence(outputs);
+		}
+		int failures = 0;
+		for (int i = 0; i < n; i++)
+			if (errors[i] != 0)
+				failures++;
+		return failures;
+	}
+
+	/**
+	 * Check the arguments of {@link #set_gamma_all} and {@link #get_gamma_all}
+	 * 
+	 * @param   crtcs   The CRTC:s
+	 * @param   ramps   The gamma ramps
+	 * @param   errors  The output array for error codes
+	 * @return          The number of CRTC:s
+	 */
+	private int check_all(CRTC[] crtcs, GammaRamps<?>[] ramps, int[] errors)
+	{
+		if ((ramps.length != crtcs.length) || (errors.length < crtcs.length))
+			throw new IllegalArgumentException("the arrays must have the same length");
+		for (CRTC crtc : crtcs)
+			if (crtc.partition != this)
+				throw new IllegalArgumentException("all CRTC:s must belong to this partition");
+		return crtcs.length;
 	}
 
 
@@ -101,11 +231,11 @@ public class Partition
 	 * 
 	 * @param   site       The site state for the site that the partition belongs to
 	 * @param   partition  The index of the partition within the site
-	 * @return             Element 0: The value for {@link #address}<br>
+	 * @param   out        Element 0: The value for {@link #address}<br>
 	 *                     Element 1: The value for {@link #crtcs_available}<br>
 	 *                     Element 2: Error code, zero on success
 	 */
-	private static native long[] libgamma_partition_create(long site, int partition);
+	static native void libgamma_partition_create(long site, int partition, long[] out);
 
 	/**
 	 * Release all resources held by a partition state
@@ -113,7 +243,7 @@ public class Partition
 	 * 
 	 * @param  address  The partition state
 	 */
-	private static native void libgamma_partition_free(long address);
+	static native void libgamma_partition_free(long address);
 
 	/**
 	 * Restore the gamma ramps all CRTC:s within a partition to the system settings
@@ -121,5 +251,25 @@ public class Partition
 	 * @param   address  The partition state
 	 * @return           Zero on success, and error code on failure
 	 */
-	private static native int libgamma_partition_restore(long address);
+	static native int libgamma_partition_restore(long address);
+
+	/**
+	 * Set the gamma ramps for multiple CRTC:s
+	 * 
+	 * @param  addresses  For each CRTC, the CRTC state followed by the gamma ramps
+	 * @param  depths     For each CRTC, the depth of the gamma ramps, zero to skip the CRTC
+	 * @param  count      The number of CRTC:s
+	 * @param  errors     Output array for the error code of each CRTC, zero on success
+	 */
+	private static native void libgamma_partition_set_gamma_all(long[] addresses, int[] depths, int count, int[] errors);
+
+	/**
+	 * Get the current gamma ramps for multiple CRTC:s
+	 * 
+	 * @param  addresses  For each CRTC, the CRTC state followed by the gamma ramps to fill
+	 * @param  depths     For each CRTC, the depth of the gamma ramps
+	 * @param  count      The number of CRTC:s
+	 * @param  errors     Output array for the error code of each CRTC, zero on success
+	 */
+	private static native void libgamma_partition_get_gamma_all(long[] addresses, int[] depths, int count, int[] errors);
 }
@@ -1,6 +1,10 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 
 /**
  * A single gamma ramp
@@ -16,6 +20,24 @@ public abstract class Ramp
 	}
 
 
+	/**
+	 * Resampling method: each stop takes the value of the nearest source stop
+	 */
+	public static final int RESAMPLE_NEAREST = 0;
+
+	/**
+	 * Resampling method: linear interpolation between the source stops
+	 */
+	public static final int RESAMPLE_LINEAR = 1;
+
+	/**
+	 * Resampling method: monotone cubic interpolation between the source
+	 * stops; the result is smooth, and it does not overshoot, so it is
+	 * monotone wherever the source is
+	 */
+	public static final int RESAMPLE_CUBIC = 2;
+
+
 	/**
 	 * Constructor
 	 * 
@@ -39,6 +61,153 @@ public abstract class Ramp
 	 */
 	protected final long address;
 
+	/**
+	 * The number of times the stops have been modified through this object
+	 */
+	long modifications = 0;
+
+	/**
+	 * The gamma ramps that own the memory of the ramp,
+	 * referenced so that it is not released while the
+	 * ramp is reachable
+	 */
+	GammaRamps<? extends Ramp> owner = null;
+
+
+	/**
+	 * Get the size of each stop
+	 * 
+	 * @return  The size, in bytes, of each stop
+	 */
+	abstract int element_size();
+
+	/**
+	 * Get the depth of the stops
+	 * 
+	 * @return  The depth, as in {@link GammaRamps#depth}
+	 */
+	abstract int depth();
+
+	/**
+	 * Check that the native memory of the ramp has not been released
+	 * 
+	 * @throws  IllegalStateException  If the gamma ramps that own the ramp have been closed
+	 */
+	final void check_open()
+	{
+		if (this.owner != null)
+			this.owner.check_open();
+	}
+
+	/**
+	 * Count a modification of the stops through this object
+	 * 
+	 * @throws  IllegalStateException  If the gamma ramps that own the ramp are
+	 *                                 shared by a {@link GammaRampsStore}, or
+	 *                                 if they have been closed
+	 */
+	void modified()
+	{
+		if (this.owner != null)
+			this.owner.check_modifiable();
+		this.modifications++;
+	}
+
+	/**
+	 * Calculate a 64-bit hash of the stops, in one native call
+	 * <p>
+	 * Ramps of the same type with the same stops have the same hash.
+	 * The hash is calculated over the native memory of the ramp,
+	 * so it depends on the byte order of the machine.
+	 * 
+	 * @return  The hash of the stops
+	 */
+	public long content_hash()
+	{
+		try {
+			this.check_open();
+			return libgamma_gamma_ramp_hash(this.address, (long)(this.size) * this.element_size(), 0);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Check whether the ramp has the same stops as another ramp
+	 * 
+	 * @param   other  The other ramp
+	 * @return         Whether the ramps are of the same type and size,
+	 *                 and all their stops are equal bit for bit
+	 */
+	public boolean equals_contents(Ramp other)
+	{
+		try {
+			if (other == this)
+				return true;
+			if ((other == null) || (other.getClass() != this.getClass()) || (other.size != this.size))
+				return false;
+			this.check_open();
+			other.check_open();
+			return libgamma_gamma_ramp_equals(this.address, other.address, (long)(this.size) * this.element_size());
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(other);
+		}
+	}
+
+
+	/**
+	 * Set the stops by resampling another ramp, in one native call
+	 * <p>
+	 * The ramps may differ in both size and depth. The first and last
+	 * stops of this ramp are mapped to the first and last stops of
+	 * <tt>source</tt>, and the values are converted to the depth of this ramp.
+	 * 
+	 * @param  source  The ramp to read from
+	 * @param  method  The resampling method: {@link #RESAMPLE_NEAREST},
+	 *                 {@link #RESAMPLE_LINEAR} or {@link #RESAMPLE_CUBIC}
+	 */
+	public void resample_from(Ramp source, int method)
+	{
+		try {
+			check_method(method);
+			if (source.size == 0)
+				throw new IllegalArgumentException("source must not be empty");
+			source.check_open();
+			if (source == this)
+				return;
+			this.modified();
+			libgamma_gamma_ramp_resample(this.address, this.depth(), this.size, source.address, source.depth(), source.size, method);
+		} finally {
+			Reference.reachabilityFence(this);
+			Reference.reachabilityFence(source);
+		}
+	}
+
+	/**
+	 * Set the stops by resampling values in [0, 1], in one native call
+	 * <p>
+	 * The first and last stops of this ramp are mapped to the first
+	 * and last elements of <tt>values</tt>. Values outside [0, 1] are
+	 * clamped after the interpolation.
+	 * 
+	 * @param  values  The values to read from, typically a curve computed at high resolution
+	 * @param  method  The resampling method: {@link #RESAMPLE_NEAREST},
+	 *                 {@link #RESAMPLE_LINEAR} or {@link #RESAMPLE_CUBIC}
+	 */
+	public void resample_from(double[] values, int method)
+	{
+		try {
+			check_method(method);
+			if (values.length == 0)
+				throw new IllegalArgumentException("values must not be empty");
+			this.modified();
+			libgamma_gamma_ramp_resample_values(this.address, this.depth(), this.size, values, method);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
 
 	/**
 	 * {@inheritDoc}
@@ -49,6 +218,111 @@ public abstract class Ramp
 	}
 
 
+	/**
+	 * Check that a range of stops is within both the
+	 * ramp and the array it is copied to or from
+	 * 
+	 * @param   from          The index of the first stop
+	 * @param   array_length  The length of the array
+	 * @param   off           The index in the array of the first stop's value
+	 * @param   len           The number of stops
+	 * @throws  IndexOutOfBoundsException  If the range is outside the ramp or the array
+	 */
+	protected final void check_region(int from, int array_length, int off, int len)
+	{
+		if (((from | off | len) < 0) || (from > this.size - len) || (off > array_length - len))
+			throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Check that a resampling method is valid
+	 * 
+	 * @param   method  The resampling method
+	 * @throws  IllegalArgumentException  If <tt>method</tt> is not a valid resampling method
+	 */
+	private static void check_method(int method)
+	{
+		if ((method != RESAMPLE_NEAREST) && (method != RESAMPLE_LINEAR) && (method != RESAMPLE_CUBIC))
+			throw new IllegalArgumentException("method must be either of: RESAMPLE_NEAREST, RESAMPLE_LINEAR, RESAMPLE_CUBIC.");
+	}
+
+	/**
+	 * Create a direct buffer over the native memory of the ramp
+	 * 
+	 * @param   element_size  The size, in bytes, of each stop
+	 * @return                A buffer, in native byte order, that
+	 *                        aliases the stops of the ramp
+	 */
+	protected final ByteBuffer byte_buffer(int element_size)
+	{
+		try {
+			this.check_open();
+			ByteBuffer buffer = Backend.INSTANCE.libgamma_gamma_ramp_buffer(this.address, (long)(this.size) * element_size);
+			if (buffer == null)
+				throw new UnsupportedOperationException("direct buffer access is not supported by the JVM");
+			return buffer.order(ByteOrder.nativeOrder());
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+
+	/**
+	 * Create a direct byte buffer over the memory of a ramp
+	 * 
+	 * @param   address   The address of the ramp
+	 * @param   capacity  The size of the ramp, in bytes
+	 * @return            The buffer, {@code null} if the JVM does
+	 *                    not support direct buffer access
+	 */
+	static native ByteBuffer libgamma_gamma_ramp_buffer(long address, long capacity);
+
+	/**
+	 * Calculate the xxHash64 hash of the memory of a ramp
+	 * 
+	 * @param   address  The address of the ramp
+	 * @param   length   The size of the ramp, in bytes
+	 * @param   seed     The seed of the hash
+	 * @return           The hash
+	 */
+	private static native long libgamma_gamma_ramp_hash(long address, long length, long seed);
+
+	/**
+	 * Compare the memory of two ramps
+	 * 
+	 * @param   address  The address of the first ramp
+	 * @param   other    The address of the second ramp
+	 * @param   length   The size of each ramp, in bytes
+	 * @return           Whether the memory of the ramps is equal
+	 */
+	private static native boolean libgamma_gamma_ramp_equals(long address, long other, long length);
+
+	/**
+	 * Resample a ramp into another ramp
+	 * 
+	 * @param  address       The address of the ramp to write to
+	 * @param  depth         The depth of the ramp to write to
+	 * @param  size          The number of stops in the ramp to write to
+	 * @param  source        The address of the ramp to read from
+	 * @param  source_depth  The depth of the ramp to read from
+	 * @param  source_size   The number of stops in the ramp to read from, at least 1
+	 * @param  method        The resampling method
+	 */
+	private static native void libgamma_gamma_ramp_resample(long address, int depth, int size,
+	                                                        long source, int source_depth, int source_size, int method);
+
+	/**
+	 * Resample values in [0, 1] into a ramp
+	 * 
+	 * @param  address  The address of the ramp to write to
+	 * @param  depth    The depth of the ramp to write to
+	 * @param  size     The number of stops in the ramp to write to
+	 * @param  values   The values to read from, at least 1
+	 * @param  method   The resampling method
+	 */
+	private static native void libgamma_gamma_ramp_resample_values(long address, int depth, int size, double[] values, int method);
+
+
 	/**
 	 * Read the value of a stop in an 8-bit ramp
 	 * 
@@ -157,4 +431,138 @@ public abstract class Ramp
 	 * @param  value    The value of the stop
 	 */
 	protected static native void libgamma_gamma_rampsd_set(long address, int stop, double value);
+
+
+	/**
+	 * Read the values of a range of stops in an 8-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps8_get_region(long address, int from, byte[] dst, int off, int len);
+
+	/**
+	 * Read the values of a range of stops in a 16-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps16_get_region(long address, int from, short[] dst, int off, int len);
+
+	/**
+	 * Read the values of a range of stops in a 32-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps32_get_region(long address, int from, int[] dst, int off, int len);
+
+	/**
+	 * Read the values of a range of stops in a 64-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps64_get_region(long address, int from, long[] dst, int off, int len);
+
+	/**
+	 * Read the values of a range of stops in a single precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_rampsf_get_region(long address, int from, float[] dst, int off, int len);
+
+	/**
+	 * Read the values of a range of stops in a double precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  dst      The array to store the values in
+	 * @param  off      The index in <tt>dst</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_rampsd_get_region(long address, int from, double[] dst, int off, int len);
+
+
+	/**
+	 * Set the values of a range of stops in an 8-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps8_set_region(long address, int from, byte[] src, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 16-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps16_set_region(long address, int from, short[] src, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 32-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps32_set_region(long address, int from, int[] src, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a 64-bit ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_ramps64_set_region(long address, int from, long[] src, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a single precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_rampsf_set_region(long address, int from, float[] src, int off, int len);
+
+	/**
+	 * Set the values of a range of stops in a double precision floating point ramp
+	 * 
+	 * @param  address  The address of the ramp
+	 * @param  from     The index of the first stop
+	 * @param  src      The array to read the values from
+	 * @param  off      The index in <tt>src</tt> of the first stop's value
+	 * @param  len      The number of stops
+	 */
+	protected static native void libgamma_gamma_rampsd_set_region(long address, int from, double[] src, int off, int len);
 }
@@ -1,6 +1,9 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Reference;
+import java.nio.LongBuffer;
+
 
 /**
  * A single 64-bit gamma ramp
@@ -18,6 +21,22 @@ public class Ramp64 extends Ramp
 		super(address, size);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	int element_size()
+	{
+		return 8;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int depth()
+	{
+		return 64;
+	}
+
 	/**
 	 * Read the value of a stop
 	 * 
@@ -26,7 +45,12 @@ public class Ramp64 extends Ramp
 	 */
 	public long get(int stop)
 	{
-		return libgamma_gamma_ramps64_get(this.address, stop);
+		try {
+			this.check_open();
+			return Backend.INSTANCE.libgamma_gamma_ramps64_get(this.address, stop);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
@@ -38,7 +62,73 @@ public class Ramp64 extends Ramp
 	 */
 	public long set(int stop, long value)
 	{
-		libgamma_gamma_ramps64_set(this.address, stop, value);
-		return value;
+		try {
+			this.modified();
+			Backend.INSTANCE.libgamma_gamma_ramps64_set(this.address, stop, value);
+			return value;
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Read the values of a range of stops
+	 * <p>
+	 * Values are unsigned but stored in signed integers.
+	 * 
+	 * @param  from  The index of the first stop
+	 * @param  dst   The array to store the values in
+	 * @param  off   The index in <tt>dst</tt> of the first stop's value
+	 * @param  len   The number of stops
+	 */
+	public void get(int from, long[] dst, int off, int len)
+	{
+		try {
+			this.check_open();
+			check_region(from, dst.length, off, len);
+			Backend.INSTANCE.libgamma_gamma_ramps64_get_region(this.address, from, dst, off, len);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Set the values of a range of stops
+	 * <p>
+	 * Values are unsigned but stored in signed integers.
+	 * 
+	 * @param  from  The index of the first stop
+	 * @param  src   The array to read the values from
+	 * @param  off   The index in <tt>src</tt> of the first stop's value
+	 * @param  len   The number of stops
+	 */
+	public void set(int from, long[] src, int off, int len)
+	{
+		try {
+			check_region(from, src.length, off, len);
+			this.modified();
+			Backend.INSTANCE.libgamma_gamma_ramps64_set_region(this.address, from, src, off, len);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Create a buffer that aliases the native memory of the ramp
+	 * <p>
+	 * Writes to the buffer modify the ramp directly, without any native
+	 * call, and are therefore not counted by {@link GammaRamps#generation};
+	 * call {@link GammaRamps#touch} after writing to the buffer. The buffer
+	 * does not keep the {@link GammaRamps} the ramp belongs to reachable,
+	 * so the caller must hold a strong reference to them, and not close
+	 * them, for as long as the buffer is used; otherwise their memory may
+	 * be released, when they are garbage collected, while the buffer still
+	 * refers to it.
+	 * 
+	 * @return  A direct buffer, in native byte order, over the stops
+	 */
+	public LongBuffer buffer()
+	{
+		return byte_buffer(8).asLongBuffer();
 	}
 }
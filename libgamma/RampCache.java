@@ -0,0 +1,198 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+
+/**
+ * Bounded cache of generated gamma ramp contents
+ * <p>
+ * Entries are keyed by the sizes and depth of the gamma ramps and
+ * by the parameters the contents were generated from, for example
+ * a colour temperature and a brightness. The least recently used
+ * entries are evicted when the total size of the cached contents
+ * exceeds the capacity. Typical use is
+ * <pre>
+ * if (!cache.get(ramps, kelvin, brightness)) {
+ *     ramps.fill_temperature(kelvin, brightness);
+ *     cache.put(ramps, kelvin, brightness);
+ * }
+ * </pre>
+ * The parameters must describe the contents completely; gamma
+ * ramps that were generated differently must use different
+ * parameters, for example by including a number that
+ * identifies the generator.
+ * <p>
+ * Instances are thread-safe.
+ */
+public final class RampCache
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  capacity  The maximum total size, in bytes, of the cached contents
+	 */
+	public RampCache(long capacity)
+	{
+		if (capacity < 0)
+			throw new IllegalArgumentException("capacity must not be negative");
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * The maximum total size, in bytes, of the cached contents
+	 */
+	public final long capacity;
+
+	/**
+	 * The cached contents, in order of use, least recently used first
+	 */
+	private final LinkedHashMap<RampCacheKey, byte[]> entries = new LinkedHashMap<RampCacheKey, byte[]>(16, 0.75f, true);
+
+	/**
+	 * The total size, in bytes, of the cached contents
+	 */
+	private long size = 0;
+
+	/**
+	 * The number of successful lookups
+	 */
+	private long hits = 0;
+
+	/**
+	 * The number of failed lookups
+	 */
+	private long misses = 0;
+
+	/**
+	 * The number of evicted entries
+	 */
+	private long evictions = 0;
+
+
+	/**
+	 * Copy cached contents into gamma ramps
+	 * 
+	 * @param   ramps   The gamma ramps, their sizes and depth are part of the key
+	 * @param   params  The parameters the contents were generated from
+	 * @return          Whether the contents were cached; if not, {@code ramps} is unmodified
+	 */
+	public boolean get(GammaRamps<? extends Ramp> ramps, double... params)
+	{
+		RampCacheKey key = new RampCacheKey(ramps, params);
+		byte[] data;
+		synchronized (this) {
+			data = this.entries.get(key);
+			if (data == null) {
+				this.misses++;
+				return false;
+			}
+			this.hits++;
+		}
+		/* Cached arrays are never modified, so they can be read without the lock. */
+		ramps.load(data);
+		return true;
+	}
+
+	/**
+	 * Cache the contents of gamma ramps
+	 * 
+	 * @param  ramps   The gamma ramps, their sizes and depth are part of the key
+	 * @param  params  The parameters the contents were generated from
+	 */
+	public void put(GammaRamps<? extends Ramp> ramps, double... params)
+	{
+		byte[] data = new byte[ramps.byte_size()];
+		if (data.length > this.capacity)
+			return;
+		ramps.store(data);
+		RampCacheKey key = new RampCacheKey(ramps, params.clone());
+		synchronized (this) {
+			byte[] old = this.entries.put(key, data);
+			if (old != null)
+				this.size -= old.length;
+			this.size += data.length;
+			Iterator<byte[]> eldest = this.entries.values().iterator();
+			while (this.size > this.capacity) {
+				this.size -= eldest.next().length;
+				eldest.remove();
+				this.evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Remove all entries, the counters are not reset
+	 */
+	public synchronized void clear()
+	{
+		this.entries.clear();
+		this.size = 0;
+	}
+
+
+	/**
+	 * Get the number of successful lookups
+	 * 
+	 * @return  The number of calls to {@link #get} that returned {@code true}
+	 */
+	public synchronized long hits()
+	{
+		return this.hits;
+	}
+
+	/**
+	 * Get the number of failed lookups
+	 * 
+	 * @return  The number of calls to {@link #get} that returned {@code false}
+	 */
+	public synchronized long misses()
+	{
+		return this.misses;
+	}
+
+	/**
+	 * Get the number of evicted entries
+	 * 
+	 * @return  The number of entries that have been removed to make room for new entries
+	 */
+	public synchronized long evictions()
+	{
+		return this.evictions;
+	}
+
+	/**
+	 * Get the number of cached entries
+	 * 
+	 * @return  The number of cached entries
+	 */
+	public synchronized int entries()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Get the total size of the cached contents
+	 * 
+	 * @return  The total size, in bytes, of the cached contents
+	 */
+	public synchronized long size()
+	{
+		return this.size;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized String toString()
+	{
+		return "<RampCache: capacity = " + Long.toString(this.capacity) + ", " +
+		       "size = " + Long.toString(this.size) + ", " +
+		       "entries = " + Integer.toString(this.entries.size()) + ", " +
+		       "hits = " + Long.toString(this.hits) + ", " +
+		       "misses = " + Long.toString(this.misses) + ">";
+	}
+}
@@ -0,0 +1,102 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.Arrays;
+
+
+/**
+ * Key for an entry in a {@link RampCache} or a {@link GammaRampsPool}
+ */
+final class RampCacheKey
+{
+	/**
+	 * Constructor
+	 * 
+	 * @param  ramps   Gamma ramps with the sizes and depth of the entry
+	 * @param  params  The parameters the contents were generated from, not copied
+	 */
+	RampCacheKey(GammaRamps<? extends Ramp> ramps, double[] params)
+	{
+		this(ramps.red.size, ramps.green.size, ramps.blue.size, ramps.depth, params);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  red_size    The size of the encoding axis of the red gamma ramp
+	 * @param  green_size  The size of the encoding axis of the green gamma ramp
+	 * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+	 * @param  depth       The bit-depth of the value axes of gamma ramps
+	 * @param  params      The parameters the contents were generated from, not copied
+	 */
+	RampCacheKey(int red_size, int green_size, int blue_size, short depth, double[] params)
+	{
+		this.red_size = red_size;
+		this.green_size = green_size;
+		this.blue_size = blue_size;
+		this.depth = depth;
+		this.params = params;
+		int hash = Arrays.hashCode(params);
+		hash = hash * 31 + this.red_size;
+		hash = hash * 31 + this.green_size;
+		hash = hash * 31 + this.blue_size;
+		hash = hash * 31 + this.depth;
+		this.hash = hash;
+	}
+
+
+	/**
+	 * The size of the encoding axis of the red gamma ramp
+	 */
+	private final int red_size;
+
+	/**
+	 * The size of the encoding axis of the green gamma ramp
+	 */
+	private final int green_size;
+
+	/**
+	 * The size of the encoding axis of the blue gamma ramp
+	 */
+	private final int blue_size;
+
+	/**
+	 * The bit-depth of the value axes of gamma ramps
+	 */
+	private final short depth;
+
+	/**
+	 * The parameters the contents were generated from
+	 */
+	private final double[] params;
+
+	/**
+	 * The hash code, computed once
+	 */
+	private final int hash;
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode()
+	{
+		return this.hash;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object other)
+	{
+		if (!(other instanceof RampCacheKey))
+			return false;
+		RampCacheKey key = (RampCacheKey)other;
+		return (this.hash == key.hash)
+		    && (this.red_size == key.red_size)
+		    && (this.green_size == key.green_size)
+		    && (this.blue_size == key.blue_size)
+		    && (this.depth == key.depth)
+		    && Arrays.equals(this.params, key.params);
+	}
+}
@@ -0,0 +1,899 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+
+
+/**
+ * Whole-channel arithmetic on gamma ramps held in Java arrays,
+ * such as those filled by the bulk <tt>get</tt> methods of the
+ * ramp classes
+ * <p>
+ * The arrays have the same element types as the bulk methods:
+ * <tt>byte[]</tt>, <tt>short[]</tt>, <tt>int[]</tt> and <tt>long[]</tt>
+ * hold unsigned values that span the full range of the type, and
+ * <tt>float[]</tt> and <tt>double[]</tt> hold values in [0, 1]. Results
+ * are clamped to [0, 1] and rounded to the nearest value of the depth,
+ * the same way as by the native functions of this library. The kernels
+ * also work on the channels of gamma ramps in place, through the
+ * buffers returned by <tt>buffer()</tt> on the ramps.
+ * <p>
+ * The kernels for 16-bit, 32-bit and floating point channels use the
+ * Vector API when it is available, see {@link Kernels}; otherwise,
+ * and for the stops that do not fill a whole vector, every kernel is
+ * a plain scalar loop over the range, without any allocation, and
+ * the exponentiation is skipped when the exponent is 1. The Vector
+ * API may calculate powers up to one unit in the last place apart
+ * from {@link Math#pow}, so when the exponent is not 1, a stop may
+ * occasionally be rounded differently by the two implementations.
+ */
+public final class RampKernels
+{
+	/**
+	 * This class cannot be instantiated
+	 */
+	private RampKernels()
+	{
+	}
+
+
+	/**
+	 * Check that a range is within an array
+	 * 
+	 * @param   array_length  The length of the array
+	 * @param   off           The index of the first element in the range
+	 * @param   len           The number of elements in the range
+	 * @throws  IndexOutOfBoundsException  If the range is outside the array
+	 */
+	private static void check_region(int array_length, int off, int len)
+	{
+		if (((off | len) < 0) || (off > array_length - len))
+			throw new IndexOutOfBoundsException();
+	}
+
+	/**
+	 * Clamp a value to [0, 1]
+	 * 
+	 * @param   value  The value
+	 * @return         The value clamped to [0, 1], 0 if it is NaN
+	 */
+	private static double clamp(double value)
+	{
+		return value > 0 ? Math.min(value, 1) : 0;
+	}
+
+
+	/**
+	 * Convert an 8-bit stop to [0, 1]
+	 * 
+	 * @param   value  The stop
+	 * @return         The value of the stop in [0, 1]
+	 */
+	private static double decode(byte value)
+	{
+		return (value & 0xFF) * (1. / 0xFF);
+	}
+
+	/**
+	 * Convert a 16-bit stop to [0, 1]
+	 * 
+	 * @param   value  The stop
+	 * @return         The value of the stop in [0, 1]
+	 */
+	private static double decode(short value)
+	{
+		return (value & 0xFFFF) * (1. / 0xFFFF);
+	}
+
+	/**
+	 * Convert a 32-bit stop to [0, 1]
+	 * 
+	 * @param   value  The stop
+	 * @return         The value of the stop in [0, 1]
+	 */
+	private static double decode(int value)
+	{
+		return (value & 0xFFFFFFFFL) * (1. / 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Convert a 64-bit stop to [0, 1]
+	 * 
+	 * @param   value  The stop
+	 * @return         The value of the stop in [0, 1]
+	 */
+	private static double decode(long value)
+	{
+		/* As in the native library: convert as unsigned, rounding to nearest, which
+		 * halving with the lowest bit kept as a sticky bit preserves, and divide by
+		 * 2^64 - 1, which is 2^64 as a double. */
+		double v = value >= 0 ? (double)value : (double)((value >>> 1) | (value & 1)) * 2;
+		return v * 0x1p-64;
+	}
+
+
+	/**
+	 * Convert a value in [0, 1] to an 8-bit stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static byte encode8(double value)
+	{
+		return (byte)(int)(clamp(value) * 0xFF + 0.5);
+	}
+
+	/**
+	 * Convert a value in [0, 1] to a 16-bit stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static short encode16(double value)
+	{
+		return (short)(int)(clamp(value) * 0xFFFF + 0.5);
+	}
+
+	/**
+	 * Convert a value in [0, 1] to a 32-bit stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static int encode32(double value)
+	{
+		return (int)(long)(clamp(value) * 0xFFFFFFFFL + 0.5);
+	}
+
+	/**
+	 * Convert a value in [0, 1] to a 64-bit stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static long encode64(double value)
+	{
+		/* As in the native library: scale by 2^64 - 1, which is 2^64 as a double, and
+		 * round; the conversion is split as a long only holds values below 2^63. */
+		double v = clamp(value) * 0x1p64 + 0.5;
+		if (v >= 0x1p64)
+			return -1L;
+		return v >= 0x1p63 ? (long)(v - 0x1p63) ^ Long.MIN_VALUE : (long)v;
+	}
+
+	/**
+	 * Convert a value in [0, 1] to a single precision floating point stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static float encodef(double value)
+	{
+		return (float)clamp(value);
+	}
+
+	/**
+	 * Convert a value in [0, 1] to a double precision floating point stop
+	 * 
+	 * @param   value  The value, will be clamped
+	 * @return         The stop
+	 */
+	private static double encoded(double value)
+	{
+		return clamp(value);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of an 8-bit channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(byte[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		if (exponent == 1)
+			for (int i = off, end = off + len; i < end; i++)
+				channel[i] = encode8(decode(channel[i]) * gain + offset);
+		else
+			for (int i = off, end = off + len; i < end; i++)
+				channel[i] = encode8(Math.pow(decode(channel[i]), exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of an 8-bit channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(byte[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = 0; i < len; i++)
+				channel[off + i] = encode8(i * step * gain + offset);
+		else
+			for (int i = 0; i < len; i++)
+				channel[off + i] = encode8(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 16-bit channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(short[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encode16(decode(channel[i]) * gain + offset);
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encode16(Math.pow(decode(channel[i]), exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of a 16-bit channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(short[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel[off + i] = encode16(i * step * gain + offset);
+		else
+			for (int i = done; i < len; i++)
+				channel[off + i] = encode16(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 32-bit channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(int[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encode32(decode(channel[i]) * gain + offset);
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encode32(Math.pow(decode(channel[i]), exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of a 32-bit channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(int[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel[off + i] = encode32(i * step * gain + offset);
+		else
+			for (int i = done; i < len; i++)
+				channel[off + i] = encode32(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 64-bit channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(long[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		if (exponent == 1)
+			for (int i = off, end = off + len; i < end; i++)
+				channel[i] = encode64(decode(channel[i]) * gain + offset);
+		else
+			for (int i = off, end = off + len; i < end; i++)
+				channel[i] = encode64(Math.pow(decode(channel[i]), exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of a 64-bit channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(long[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = 0; i < len; i++)
+				channel[off + i] = encode64(i * step * gain + offset);
+		else
+			for (int i = 0; i < len; i++)
+				channel[off + i] = encode64(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a single precision floating point channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(float[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encodef((double)channel[i] * gain + offset);
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encodef(Math.pow((double)channel[i], exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of a single precision floating point channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(float[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel[off + i] = encodef(i * step * gain + offset);
+		else
+			for (int i = done; i < len; i++)
+				channel[off + i] = encodef(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a double precision floating point channel with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(double[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encoded(channel[i] * gain + offset);
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel[i] = encoded(Math.pow(channel[i], exponent) * gain + offset);
+	}
+
+	/**
+	 * Fill a range of a double precision floating point channel with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * 
+	 * @param  channel   The stops
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(double[] channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.length, off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel[off + i] = encoded(i * step * gain + offset);
+		else
+			for (int i = done; i < len; i++)
+				channel[off + i] = encoded(Math.pow(i * step, exponent) * gain + offset);
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of an 8-bit channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(ByteBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		if (exponent == 1)
+			for (int i = off, end = off + len; i < end; i++)
+				channel.put(i, encode8(decode(channel.get(i)) * gain + offset));
+		else
+			for (int i = off, end = off + len; i < end; i++)
+				channel.put(i, encode8(Math.pow(decode(channel.get(i)), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of an 8-bit channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(ByteBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = 0; i < len; i++)
+				channel.put(off + i, encode8(i * step * gain + offset));
+		else
+			for (int i = 0; i < len; i++)
+				channel.put(off + i, encode8(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 16-bit channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(ShortBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encode16(decode(channel.get(i)) * gain + offset));
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encode16(Math.pow(decode(channel.get(i)), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of a 16-bit channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(ShortBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encode16(i * step * gain + offset));
+		else
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encode16(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 32-bit channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(IntBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encode32(decode(channel.get(i)) * gain + offset));
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encode32(Math.pow(decode(channel.get(i)), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of a 32-bit channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(IntBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encode32(i * step * gain + offset));
+		else
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encode32(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a 64-bit channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(LongBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		if (exponent == 1)
+			for (int i = off, end = off + len; i < end; i++)
+				channel.put(i, encode64(decode(channel.get(i)) * gain + offset));
+		else
+			for (int i = off, end = off + len; i < end; i++)
+				channel.put(i, encode64(Math.pow(decode(channel.get(i)), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of a 64-bit channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(LongBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = 0; i < len; i++)
+				channel.put(off + i, encode64(i * step * gain + offset));
+		else
+			for (int i = 0; i < len; i++)
+				channel.put(off + i, encode64(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a single precision floating point channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(FloatBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encodef((double)channel.get(i) * gain + offset));
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encodef(Math.pow((double)channel.get(i), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of a single precision floating point channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(FloatBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encodef(i * step * gain + offset));
+		else
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encodef(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Replace each stop <tt>x</tt> in a range of a double precision floating point channel in a buffer with
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1]
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for none
+	 */
+	public static void transform(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.transform(channel, off, len, gain, offset, exponent);
+		if (exponent == 1)
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encoded(channel.get(i) * gain + offset));
+		else
+			for (int i = off + done, end = off + len; i < end; i++)
+				channel.put(i, encoded(Math.pow(channel.get(i), exponent) * gain + offset));
+	}
+
+	/**
+	 * Fill a range of a double precision floating point channel in a buffer with the curve
+	 * <tt>x<sup>exponent</sup> × gain + offset</tt>, clamped to [0, 1],
+	 * where <tt>x</tt> runs from 0 at the first stop to 1 at the last stop
+	 * <p>
+	 * The indices are absolute, and the position of the buffer is neither
+	 * used nor changed.
+	 * 
+	 * @param  channel   The stops, such as a buffer returned by <tt>buffer()</tt> on a ramp
+	 * @param  off       The index of the first stop
+	 * @param  len       The number of stops, the range must be within the limit of the buffer
+	 * @param  gain      The multiplier
+	 * @param  offset    The value to add after the multiplication
+	 * @param  exponent  The exponent, 1 for a straight line
+	 */
+	public static void generate(DoubleBuffer channel, int off, int len, double gain, double offset, double exponent)
+	{
+		check_region(channel.limit(), off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.generate(channel, off, len, gain, offset, exponent);
+		double step = len > 1 ? 1. / (len - 1) : 0;
+		if (exponent == 1)
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encoded(i * step * gain + offset));
+		else
+			for (int i = done; i < len; i++)
+				channel.put(off + i, encoded(Math.pow(i * step, exponent) * gain + offset));
+	}
+
+
+	/**
+	 * Clamp values to [0, 1] and quantise them to an 8-bit channel
+	 * 
+	 * @param  src      The values
+	 * @param  src_off  The index in <tt>src</tt> of the first value
+	 * @param  dst      The stops
+	 * @param  dst_off  The index in <tt>dst</tt> of the first stop
+	 * @param  len      The number of stops
+	 */
+	public static void quantise(double[] src, int src_off, byte[] dst, int dst_off, int len)
+	{
+		check_region(src.length, src_off, len);
+		check_region(dst.length, dst_off, len);
+		for (int i = 0; i < len; i++)
+			dst[dst_off + i] = encode8(src[src_off + i]);
+	}
+
+
+	/**
+	 * Clamp values to [0, 1] and quantise them to a 16-bit channel
+	 * 
+	 * @param  src      The values
+	 * @param  src_off  The index in <tt>src</tt> of the first value
+	 * @param  dst      The stops
+	 * @param  dst_off  The index in <tt>dst</tt> of the first stop
+	 * @param  len      The number of stops
+	 */
+	public static void quantise(double[] src, int src_off, short[] dst, int dst_off, int len)
+	{
+		check_region(src.length, src_off, len);
+		check_region(dst.length, dst_off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.quantise(src, src_off, dst, dst_off, len);
+		for (int i = done; i < len; i++)
+			dst[dst_off + i] = encode16(src[src_off + i]);
+	}
+
+
+	/**
+	 * Clamp values to [0, 1] and quantise them to a 32-bit channel
+	 * 
+	 * @param  src      The values
+	 * @param  src_off  The index in <tt>src</tt> of the first value
+	 * @param  dst      The stops
+	 * @param  dst_off  The index in <tt>dst</tt> of the first stop
+	 * @param  len      The number of stops
+	 */
+	public static void quantise(double[] src, int src_off, int[] dst, int dst_off, int len)
+	{
+		check_region(src.length, src_off, len);
+		check_region(dst.length, dst_off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.quantise(src, src_off, dst, dst_off, len);
+		for (int i = done; i < len; i++)
+			dst[dst_off + i] = encode32(src[src_off + i]);
+	}
+
+
+	/**
+	 * Clamp values to [0, 1] and quantise them to a 64-bit channel
+	 * 
+	 * @param  src      The values
+	 * @param  src_off  The index in <tt>src</tt> of the first value
+	 * @param  dst      The stops
+	 * @param  dst_off  The index in <tt>dst</tt> of the first stop
+	 * @param  len      The number of stops
+	 */
+	public static void quantise(double[] src, int src_off, long[] dst, int dst_off, int len)
+	{
+		check_region(src.length, src_off, len);
+		check_region(dst.length, dst_off, len);
+		for (int i = 0; i < len; i++)
+			dst[dst_off + i] = encode64(src[src_off + i]);
+	}
+
+
+	/**
+	 * Clamp values to [0, 1] and quantise them to a single precision floating point channel
+	 * 
+	 * @param  src      The values
+	 * @param  src_off  The index in <tt>src</tt> of the first value
+	 * @param  dst      The stops
+	 * @param  dst_off  The index in <tt>dst</tt> of the first stop
+	 * @param  len      The number of stops
+	 */
+	public static void quantise(double[] src, int src_off, float[] dst, int dst_off, int len)
+	{
+		check_region(src.length, src_off, len);
+		check_region(dst.length, dst_off, len);
+		int done = Kernels.INSTANCE == null ? 0 : Kernels.INSTANCE.quantise(src, src_off, dst, dst_off, len);
+		for (int i = done; i < len; i++)
+			dst[dst_off + i] = encodef(src[src_off + i]);
+	}
+}
@@ -0,0 +1,340 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+
+/**
+ * A stack of colour adjustments that is rendered into gamma ramps
+ * <p>
+ * The adjustments, or stages, are added in the order they are applied,
+ * starting from the identity curve, for example
+ * <pre>
+ * pipeline.clear().curve(calibration, calibration, calibration).temperature(3500).brightness(0.8);
+ * pipeline.render(ramps);
+ * crtc.set_gamma(ramps);
+ * </pre>
+ * All stages are pure functions of the stop value, so rendering folds
+ * the whole stack into one table per channel, evaluated in a single pass
+ * over the stops, and writes the tables into the gamma ramps in one native
+ * call. The tables are kept until the stack is changed, so rendering an
+ * unchanged pipeline again, or into other gamma ramps of the same size,
+ * only writes the tables.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class RampPipeline
+{
+	/**
+	 * Stage: map the values through lookup tables
+	 */
+	private static final int CURVE = 0;
+
+	/**
+	 * Stage: multiply the values
+	 */
+	private static final int SCALE = 1;
+
+	/**
+	 * Stage: raise the values to the reciprocal of the parameters
+	 */
+	private static final int GAMMA = 2;
+
+	/**
+	 * Stage: scale the values around 0.5
+	 */
+	private static final int CONTRAST = 3;
+
+	/**
+	 * Stage: subtract the values from 1
+	 */
+	private static final int INVERT = 4;
+
+
+	/**
+	 * Constructor
+	 */
+	public RampPipeline()
+	{
+	}
+
+
+	/**
+	 * The kind of each stage
+	 */
+	private int[] kinds = new int[8];
+
+	/**
+	 * The parameters of each stage, 3 per stage: red, green, blue
+	 */
+	private double[] params = new double[8 * 3];
+
+	/**
+	 * The lookup tables of each stage, 3 per stage: red, green, blue
+	 */
+	private double[][] tables = new double[8 * 3][];
+
+	/**
+	 * The number of stages
+	 */
+	private int stages = 0;
+
+	/**
+	 * Whether the stack has changed since {@link #red_values},
+	 * {@link #green_values} and {@link #blue_values} were evaluated
+	 */
+	private boolean modified = true;
+
+	/**
+	 * The rendered values of the red channel
+	 */
+	private double[] red_values = null;
+
+	/**
+	 * The rendered values of the green channel
+	 */
+	private double[] green_values = null;
+
+	/**
+	 * The rendered values of the blue channel
+	 */
+	private double[] blue_values = null;
+
+	/**
+	 * Scratch array for {@link GammaRamps#whitepoint}
+	 */
+	private final double[] rgb = new double[3];
+
+
+	/**
+	 * Remove all stages
+	 * 
+	 * @return  This object
+	 */
+	public RampPipeline clear()
+	{
+		for (int i = 0; i < this.stages * 3; i++)
+			this.tables[i] = null;
+		this.stages = 0;
+		this.modified = true;
+		return this;
+	}
+
+	/**
+	 * Map the values through lookup tables, such as calibration curves
+	 * <p>
+	 * A lookup table samples a function over [0, 1] at evenly spaced
+	 * points, the first element is the output for 0 and the last element
+	 * is the output for 1; values between the points are interpolated
+	 * linearly, and values outside [0, 1] are clamped before the lookup.
+	 * The tables are not copied and must not be modified while they
+	 * are in the pipeline.
+	 * 
+	 * @param   red    The lookup table for the red channel, {@code null} to leave it unchanged
+	 * @param   green  The lookup table for the green channel, {@code null} to leave it unchanged
+	 * @param   blue   The lookup table for the blue channel, {@code null} to leave it unchanged
+	 * @return         This object
+	 */
+	public RampPipeline curve(double[] red, double[] green, double[] blue)
+	{
+		if (((red != null) && (red.length == 0)) || ((green != null) && (green.length == 0)) || ((blue != null) && (blue.length == 0)))
+			throw new IllegalArgumentException("lookup tables must not be empty");
+		int i = this.add(CURVE, 0, 0, 0);
+		this.tables[i + 0] = red;
+		this.tables[i + 1] = green;
+		this.tables[i + 2] = blue;
+		return this;
+	}
+
+	/**
+	 * Scale the channels to the white point of a blackbody
+	 * at a colour temperature, see {@link GammaRamps#fill_temperature(double, double)}
+	 * 
+	 * @param   kelvin  The colour temperature, in kelvins, 6500 for neutral
+	 * @return          This object
+	 */
+	public RampPipeline temperature(double kelvin)
+	{
+		GammaRamps.whitepoint(kelvin, this.rgb);
+		return this.scale(this.rgb[0], this.rgb[1], this.rgb[2]);
+	}
+
+	/**
+	 * Multiply the values of all channels
+	 * 
+	 * @param   brightness  The multiplier, 1 for unadjusted
+	 * @return              This object
+	 */
+	public RampPipeline brightness(double brightness)
+	{
+		return this.scale(brightness, brightness, brightness);
+	}
+
+	/**
+	 * Multiply the values of each channel
+	 * 
+	 * @param   red    The multiplier for the red channel
+	 * @param   green  The multiplier for the green channel
+	 * @param   blue   The multiplier for the blue channel
+	 * @return         This object
+	 */
+	public RampPipeline scale(double red, double green, double blue)
+	{
+		this.add(SCALE, red, green, blue);
+		return this;
+	}
+
+	/**
+	 * Apply the same gamma correction, <tt>x<sup>1/gamma</sup></tt>, to all channels
+	 * 
+	 * @param   gamma  The gamma correction, 1 for unadjusted
+	 * @return         This object
+	 */
+	public RampPipeline gamma(double gamma)
+	{
+		return this.gamma(gamma, gamma, gamma);
+	}
+
+	/**
+	 * Apply gamma correction, <tt>x<sup>1/gamma</sup></tt>, to each channel
+	 * 
+	 * @param   red    The gamma correction for the red channel
+	 * @param   green  The gamma correction for the green channel
+	 * @param   blue   The gamma correction for the blue channel
+	 * @return         This object
+	 */
+	public RampPipeline gamma(double red, double green, double blue)
+	{
+		this.add(GAMMA, 1 / red, 1 / green, 1 / blue);
+		return this;
+	}
+
+	/**
+	 * Scale the values of all channels around 0.5,
+	 * <tt>(x - 0.5) × contrast + 0.5</tt>
+	 * 
+	 * @param   contrast  The contrast, 1 for unadjusted
+	 * @return            This object
+	 */
+	public RampPipeline contrast(double contrast)
+	{
+		this.add(CONTRAST, contrast, contrast, contrast);
+		return this;
+	}
+
+	/**
+	 * Invert all channels, <tt>1 - x</tt>
+	 * 
+	 * @return  This object
+	 */
+	public RampPipeline invert()
+	{
+		this.add(INVERT, 0, 0, 0);
+		return this;
+	}
+
+
+	/**
+	 * Render the pipeline into gamma ramps
+	 * 
+	 * @param  target  The gamma ramps to write to
+	 */
+	public <T extends Ramp> void render(GammaRamps<T> target)
+	{
+		if (this.modified || (this.red_values.length != target.red.size)
+		                  || (this.green_values.length != target.green.size)
+		                  || (this.blue_values.length != target.blue.size)) {
+			this.red_values   = this.evaluate(0, this.red_values,   target.red.size);
+			this.green_values = this.evaluate(1, this.green_values, target.green.size);
+			this.blue_values  = this.evaluate(2, this.blue_values,  target.blue.size);
+			this.modified = false;
+		}
+		target.set_values(this.red_values, this.green_values, this.blue_values);
+	}
+
+
+	/**
+	 * Append a stage
+	 * 
+	 * @param   kind   The kind of the stage
+	 * @param   red    The parameter for the red channel
+	 * @param   green  The parameter for the green channel
+	 * @param   blue   The parameter for the blue channel
+	 * @return         The index of the stage's red parameter and table
+	 */
+	private int add(int kind, double red, double green, double blue)
+	{
+		if (this.stages == this.kinds.length) {
+			int[] kinds = new int[this.stages * 2];
+			double[] params = new double[this.stages * 2 * 3];
+			double[][] tables = new double[this.stages * 2 * 3][];
+			System.arraycopy(this.kinds, 0, kinds, 0, this.stages);
+			System.arraycopy(this.params, 0, params, 0, this.stages * 3);
+			System.arraycopy(this.tables, 0, tables, 0, this.stages * 3);
+			this.kinds = kinds;
+			this.params = params;
+			this.tables = tables;
+		}
+		int i = this.stages * 3;
+		this.kinds[this.stages++] = kind;
+		this.params[i + 0] = red;
+		this.params[i + 1] = green;
+		this.params[i + 2] = blue;
+		this.modified = true;
+		return i;
+	}
+
+	/**
+	 * Evaluate all stages for one channel, in one pass over the stops
+	 * 
+	 * @param   channel  0 for red, 1 for green, 2 for blue
+	 * @param   values   The array to reuse if it has the right size, may be {@code null}
+	 * @param   size     The number of stops
+	 * @return           The values of the stops
+	 */
+	private double[] evaluate(int channel, double[] values, int size)
+	{
+		if ((values == null) || (values.length != size))
+			values = new double[size];
+		double step = size > 1 ? 1. / (size - 1) : 0;
+		for (int i = 0; i < size; i++) {
+			double x = i * step;
+			for (int s = 0, p = channel; s < this.stages; s++, p += 3) {
+				int kind = this.kinds[s];
+				if (kind == CURVE) {
+					if (this.tables[p] != null)
+						x = lookup(this.tables[p], x);
+				} else if (kind == SCALE) {
+					x *= this.params[p];
+				} else if (kind == GAMMA) {
+					x = x > 0 ? Math.pow(x, this.params[p]) : 0;
+				} else if (kind == CONTRAST) {
+					x = (x - 0.5) * this.params[p] + 0.5;
+				} else {
+					x = 1 - x;
+				}
+			}
+			values[i] = x;
+		}
+		return values;
+	}
+
+	/**
+	 * Look up a value in a table with linear interpolation
+	 * 
+	 * @param   table  The table, sampling a function uniformly over [0, 1]
+	 * @param   x      The value to look up, clamped to [0, 1]
+	 * @return         The interpolated value of the function
+	 */
+	private static double lookup(double[] table, double x)
+	{
+		int last = table.length - 1;
+		if (!(x > 0))
+			return table[0];
+		if (x >= 1)
+			return table[last];
+		double position = x * last;
+		int i = (int)position;
+		if (i >= last)
+			return table[last];
+		return table[i] + (table[i + 1] - table[i]) * (position - i);
+	}
+}
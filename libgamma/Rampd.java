@@ -1,6 +1,9 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Reference;
+import java.nio.DoubleBuffer;
+
 
 /**
  * A single double percision floating point gamma ramp
@@ -27,6 +30,22 @@ public class Rampd extends Ramp
 		super(address, size);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	int element_size()
+	{
+		return 8;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	int depth()
+	{
+		return -2;
+	}
+
 	/**
 	 * Read the value of a stop
 	 * 
@@ -35,7 +54,12 @@ public class Rampd extends Ramp
 	 */
 	public double get(int stop)
 	{
-		return libgamma_gamma_rampsd_get(this.address, stop);
+		try {
+			this.check_open();
+			return Backend.INSTANCE.libgamma_gamma_rampsd_get(this.address, stop);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
@@ -47,8 +71,13 @@ public class Rampd extends Ramp
 	 */
 	public float set(int stop, float value)
 	{
-		libgamma_gamma_rampsd_set(this.address, stop, value);
-		return value;
+		try {
+			this.modified();
+			Backend.INSTANCE.libgamma_gamma_rampsd_set(this.address, stop, value);
+			return value;
+		} finally {
+			Reference.reachabilityFence(this);
+		}
 	}
 
 	/**
@@ -60,7 +89,69 @@ public class Rampd extends Ramp
 	 */
 	public double set(int stop, double value)
 	{
-		libgamma_gamma_rampsd_set(this.address, stop, value);
-		return value;
+		try {
+			this.modified();
+			Backend.INSTANCE.libgamma_gamma_rampsd_set(this.address, stop, value);
+			return value;
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Read the values of a range of stops
+	 * 
+	 * @param  from  The index of the first stop
+	 * @param  dst   The array to store the values in
+	 * @param  off   The index in <tt>dst</tt> of the first stop's value
+	 * @param  len   The number of stops
+	 */
+	public void get(int from, double[] dst, int off, int len)
+	{
+		try {
+			this.check_open();
+			check_region(from, dst.length, off, len);
+			Backend.INSTANCE.libgamma_gamma_rampsd_get_region(this.address, from, dst, off, len);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Set the values of a range of stops
+	 * 
+	 * @param  from  The index of the first stop
+	 * @param  src   The array to read the values from
+	 * @param  off   The index in <tt>src</tt> of the first stop's value
+	 * @param  len   The number of stops
+	 */
+	public void set(int from, double[] src, int off, int len)
+	{
+		try {
+			check_region(from, src.length, off, len);
+			this.modified();
+			Backend.INSTANCE.libgamma_gamma_rampsd_set_region(this.address, from, src, off, len);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Create a buffer that aliases the native memory of the ramp
+	 * <p>
+	 * Writes to the buffer modify the ramp directly, without any native
+	 * call, and are therefore not counted by {@link GammaRamps#generation};
+	 * call {@link GammaRamps#touch} after writing to the buffer. The buffer
+	 * does not keep the {@link GammaRamps} the ramp belongs to reachable,
+	 * so the caller must hold a strong reference to them, and not close
+	 * them, for as long as the buffer is used; otherwise their memory may
+	 * be released, when they are garbage collected, while the buffer still
+	 * refers to it.
+	 * 
+	 * @return  A direct buffer, in native byte order, over the stops
+	 */
+	public DoubleBuffer buffer()
+	{
+		return byte_buffer(8).asDoubleBuffer();
 	}
 }
@@ -1,6 +1,9 @@
 /* See LICENSE file for copyright and license details. */
 package libgamma;
 
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+
 
 /**
  * Site state
@@ -11,7 +14,7 @@ package libgamma;
  * and the BSD:s, there can usually be any (feasible) number of
  * sites. In X.org parlance they are called displays.
  */
-public class Site
+public class Site implements AutoCloseable
 {
 	/**
 	 * Type initialiser
@@ -28,15 +31,18 @@ public class Site
 	 * @param  method  The adjustmet method
 	 * @param  site    The site identifier
 	 */
+	@SuppressWarnings("this-escape")
 	public Site(AdjustmentMethod method, String site) throws LibgammaException
 	{
 		this.method = method;
 		this.site = site;
-		long[] r = libgamma_site_create(method.value, site);
+		long[] r = Backend.results();
+		Backend.INSTANCE.libgamma_site_create(method.value, site, r);
 		this.address = r[0];
 		this.partitions_available = (int)(r[1]);
 		if (r[2] != 0)
 			throw new LibgammaException((int)(r[2]));
+		this.cleanable = NativeHandle.register(this, NativeHandle.SITE, this.address, null);
 	}
 
 
@@ -74,13 +80,63 @@ public class Site
 	 */
 	final long address;
 
+	/**
+	 * Releases the native object
+	 */
+	private final Cleaner.Cleanable cleanable;
+
+	/**
+	 * The number of times {@link #restore} has been called, used by
+	 * {@link CRTC} to detect that its gamma ramps may have changed
+	 */
+	volatile int restores = 0;
+
+	/**
+	 * The thread of the asynchronous operations, {@code null} until the first one
+	 */
+	private SiteExecutor executor = null;
+
+	/**
+	 * Whether {@link #close} has been called
+	 */
+	private boolean closed = false;
+
 
 	/**
 	 * Release resources
+	 * <p>
+	 * Calling this method more than once has no effect. If it is
+	 * never called, the resources are released some time after the
+	 * object has become unreachable.
+	 * <p>
+	 * Asynchronous operations that have been submitted are
+	 * completed first, except if this method is called from
+	 * one of them, in which case those that have not yet been
+	 * started complete with a
+	 * {@link java.util.concurrent.CancellationException}.
 	 */
 	public void close()
 	{
-		libgamma_site_free(this.address);
+		SiteExecutor executor;
+		synchronized (this) {
+			this.closed = true;
+			executor = this.executor;
+		}
+		if (executor != null)
+			executor.shutdown();
+		this.cleanable.clean();
+	}
+
+	/**
+	 * Get the number of native objects, sites, partitions, CRTC:s
+	 * and gamma ramps, that have been created by this library and
+	 * have not yet been released
+	 * 
+	 * @return  The number of live native objects
+	 */
+	public static long live_handles()
+	{
+		return NativeHandle.live();
 	}
 
 	/**
@@ -88,9 +144,30 @@ public class Site
 	 */
 	public void restore() throws LibgammaException
 	{
-		int r = libgamma_site_restore(this.address);
-		if (r != 0)
-			throw new LibgammaException(r);
+		try {
+			this.restores++;
+			int r = Backend.INSTANCE.libgamma_site_restore(this.address);
+			if (r != 0)
+				throw new LibgammaException(r);
+		} finally {
+			Reference.reachabilityFence(this);
+		}
+	}
+
+	/**
+	 * Run an asynchronous operation on the thread of the site
+	 * 
+	 * @param   task  The operation
+	 * @throws  IllegalStateException  If the site has been closed
+	 */
+	synchronized void submit(Runnable task)
+	{
+		if (this.closed)
+			throw new IllegalStateException("the site has been closed");
+		if (this.executor == null)
+			this.executor = new SiteExecutor("libgamma site " + this.method.toString() + " "
+			                                 + (this.site == null ? "(null)" : this.site));
+		this.executor.execute(task);
 	}
 
 
@@ -109,11 +186,11 @@ public class Site
 	 * 
 	 * @param   method  The adjustment method (display server and protocol)
 	 * @param   site    The site identifier
-	 * @return          Element 0: The value for {@link #address}<br>
+	 * @param   out     Element 0: The value for {@link #address}<br>
 	 *                  Element 1: The value for {@link #partitions_available}<br>
 	 *                  Element 2: Error code, zero on success
 	 */
-	private static native long[] libgamma_site_create(int method, String site);
+	static native void libgamma_site_create(int method, String site, long[] out);
 
 	/**
 	 * Release all resources held by a site state
@@ -121,7 +198,7 @@ public class Site
 	 * 
 	 * @param  address  The site state
 	 */
-	private static native void libgamma_site_free(long address);
+	static native void libgamma_site_free(long address);
 
 	/**
 	 * Restore the gamma ramps all CRTC:s within a site to the system settings
@@ -129,5 +206,5 @@ public class Site
 	 * @param   address  The site state
 	 * @return           Zero on success, and error code on failure
 	 */
-	private static native int libgamma_site_restore(long address);
+	static native int libgamma_site_restore(long address);
 }
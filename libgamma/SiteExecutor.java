@@ -0,0 +1,120 @@
+/* See LICENSE file for copyright and license details. */
+package libgamma;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The thread to which all asynchronous operations on a {@link Site},
+ * and its partitions and CRTC:s, are confined
+ * <p>
+ * The executor runs at most one thread, so operations are run
+ * one at a time, in the order they were submitted. The thread
+ * exits after it has been idle for {@link #KEEP_ALIVE} milliseconds,
+ * and a new one is started when needed, so a site that is never
+ * closed does not keep a thread alive. {@link ParallelApplier}
+ * also uses it for the workers of partitions.
+ */
+final class SiteExecutor implements ThreadFactory
+{
+	/**
+	 * The number of milliseconds the thread may be idle before it exits
+	 */
+	private static final long KEEP_ALIVE = 1000;
+
+
+	/**
+	 * Constructor
+	 * 
+	 * @param  name  The name of the thread
+	 */
+	SiteExecutor(String name)
+	{
+		this.name = name;
+		this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE, TimeUnit.MILLISECONDS,
+		                                       new LinkedBlockingQueue<Runnable>(), this);
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+
+	/**
+	 * The name of the thread
+	 */
+	private final String name;
+
+	/**
+	 * The executor
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The current, or last, thread of the executor
+	 */
+	private volatile Thread thread = null;
+
+
+	/**
+	 * Create the thread of the executor
+	 * 
+	 * @param   task  The task the thread shall run
+	 * @return        The thread, a daemon thread
+	 */
+	public Thread newThread(Runnable task)
+	{
+		Thread thread = new Thread(task, this.name);
+		thread.setDaemon(true);
+		this.thread = thread;
+		return thread;
+	}
+
+	/**
+	 * Run a task on the thread of the executor
+	 * 
+	 * @param   task  The task
+	 * @throws  java.util.concurrent.RejectedExecutionException  If the executor has been shut down
+	 */
+	void execute(Runnable task)
+	{
+		this.executor.execute(task);
+	}
+
+	/**
+	 * Stop accepting tasks, and wait until all submitted tasks have
+	 * been run, or, if called from a task, drop the tasks that
+	 * have not yet been started, cancelling those that are
+	 * {@link CRTCTask}:s, {@link ApplierTask}:s or {@link CoalescingTask}:s,
+	 * see {@link CRTCTask#cancel}, {@link ApplierTask#cancel} and
+	 * {@link CoalescingTask#cancel}
+	 */
+	void shutdown()
+	{
+		boolean interrupted = false;
+		this.executor.shutdown();
+		if (Thread.currentThread() == this.thread) {
+			ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+			this.executor.getQueue().drainTo(tasks);
+			for (Runnable task : tasks)
+				if (task instanceof CRTCTask)
+					((CRTCTask<?>)task).cancel();
+				else if (task instanceof ApplierTask)
+					((ApplierTask)task).cancel();
+				else if (task instanceof CoalescingTask)
+					((CoalescingTask)task).cancel();
+		} else {
+			for (;;) {
+				try {
+					if (this.executor.awaitTermination(1, TimeUnit.DAYS))
+						break;
+				} catch (InterruptedException err) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+	}
+}
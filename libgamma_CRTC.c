@@ -1,44 +1,116 @@
 /* See LICENSE file for copyright and license details. */
 #include "libgamma_CRTC.h"
 #include <errno.h>
+#include <math.h>
 #include <stdlib.h>
 
 #include <libgamma.h>
 
+#include "common.h"
+
+
+/**
+ * The descriptor of the constructor of {@link CRTCInformation}
+ * that takes the fields of `struct libgamma_crtc_information`
+ */
+#define CRTC_INFORMATION_INIT\
+	"([BLjava/lang/String;FFF" "IIIIIIIIII" "IIIIIIIIII" "IIIII" ")V"
+
+
+/**
+ * Global reference to the class {@link CRTCInformation},
+ * resolved once when the library is loaded
+ */
+static jclass crtc_information_class;
+
+/**
+ * The constructor of {@link CRTCInformation}
+ * with the descriptor `CRTC_INFORMATION_INIT`
+ */
+static jmethodID crtc_information_init;
+
+
+/**
+ * Resolve the classes and methods that are used from native
+ * code, called by the JVM when the library is loaded
+ * 
+ * @param   vm        The virtual machine
+ * @param   reserved  Reserved for future use
+ * @return            The required JNI version, `JNI_ERR` on failure
+ */
+jint
+JNI_OnLoad(JavaVM *vm, void *reserved)
+{
+	JNIEnv *env;
+	jclass class;
+
+	if ((*vm)->GetEnv(vm, (void **)&env, JNI_VERSION_1_6) != JNI_OK)
+		return JNI_ERR;
+
+	class = (*env)->FindClass(env, "libgamma/CRTCInformation");
+	if (!class)
+		return JNI_ERR;
+	crtc_information_class = (*env)->NewGlobalRef(env, class);
+	(*env)->DeleteLocalRef(env, class);
+	if (!crtc_information_class)
+		return JNI_ERR;
+
+	crtc_information_init = (*env)->GetMethodID(env, crtc_information_class, "<init>", CRTC_INFORMATION_INIT);
+	if (!crtc_information_init)
+		return JNI_ERR;
+
+	return JNI_VERSION_1_6;
+	(void) reserved;
+}
+
+/**
+ * Release the global references, called by the
+ * JVM when the library is unloaded
+ * 
+ * @param  vm        The virtual machine
+ * @param  reserved  Reserved for future use
+ */
+void
+JNI_OnUnload(JavaVM *vm, void *reserved)
+{
+	JNIEnv *env;
+	if ((*vm)->GetEnv(vm, (void **)&env, JNI_VERSION_1_6) != JNI_OK)
+		return;
+	(*env)->DeleteGlobalRef(env, crtc_information_class);
+	crtc_information_class = NULL;
+	(void) reserved;
+}
+
 
 /**
  * Make a failure-return
  * 
+ * @param   out         Output array for the return
  * @param   error_code  The error code returned from the failing function or zero to read `errno`
- * @return              The object to return
  */
-static jlongArray
-fail(JNIEnv *env, int error_code)
+static void
+fail(JNIEnv *env, jlongArray out, int error_code)
 {
-	jlongArray rc = (*env)->NewLongArray(env, 2);
-	jlong e, z = 0;
+	jlong rc[2] = {0, 0};
 	if ((error_code == LIBGAMMA_ERRNO_SET) || !error_code)
 		error_code = errno;
-	e = (jlong)error_code;
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &e);
-	return rc;
+	rc[1] = (jlong)error_code;
+	(*env)->SetLongArrayRegion(env, out, 0, 2, rc);
 }
 
 /**
  * Make a success-return
  * 
+ * @param   out    Output array for the return
  * @param   state  The native object
- * @return         The object to return
  */
-static jlongArray
-ok(JNIEnv *env, void *state)
+static void
+ok(JNIEnv *env, jlongArray out, void *state)
 {
-	jlong a = (jlong)(uintptr_t)state, z = 0;
-	jlongArray rc = (*env)->NewLongArray(env, 2);
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &a);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &z);
-	return rc;
+	jlong rc[2];
+	rc[0] = (jlong)(uintptr_t)state;
+	rc[1] = 0;
+	(*env)->SetLongArrayRegion(env, out, 0, 2, rc);
 }
 
 /**
@@ -46,21 +118,25 @@ ok(JNIEnv *env, void *state)
  * 
  * @param   partition  The partition state for the partition that the CRTC belongs to
  * @param   crtc       The index of the CRTC within the partition
- * @return             Element 0: The value for {@link #address}
+ * @param   out        Element 0: The value for {@link #address}
  *                     Element 1: Error code, zero on success
  */
-jlongArray
-Java_libgamma_CRTC_libgamma_1crtc_1create(JNIEnv *env, jclass class, jlong partition, jint crtc)
+void
+Java_libgamma_CRTC_libgamma_1crtc_1create(JNIEnv *env, jclass class, jlong partition, jint crtc, jlongArray out)
 {
 	struct libgamma_crtc_state *state = malloc(sizeof(*state));
 	void *super = (void *)(uintptr_t)partition;
 	int r;
-	if (!state)
-		return fail(env, 0);
+	if (!state) {
+		fail(env, out, 0);
+		return;
+	}
 	r = libgamma_crtc_initialise(state, super, (size_t)crtc);
-	if (r)
-		return fail(env, r);
-	return ok(env, state);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, state);
 	(void) class;
 }
 
@@ -103,73 +179,64 @@ Java_libgamma_CRTC_libgamma_1crtc_1restore(JNIEnv *env, jclass class, jlong addr
  * 
  * @param   crtc    The state of the CRTC whose information should be read
  * @param   fields  OR:ed identifiers for the information about the CRTC that should be read
- * @return          Input parameters for the constructor of {@link CRTCInformation}
+ * @return          Information about the CRTC
  */
-jobjectArray
+jobject
 Java_libgamma_CRTC_libgamma_1get_1crtc_1information(JNIEnv *env, jclass class, jlong crtc, jint fields)
 {
 	void *this_voidp = (void *)(uintptr_t)crtc;
 	struct libgamma_crtc_state *this = this_voidp;
 	jbyteArray edid = NULL;
 	jstring connector_name = NULL;
-	jclass class_of_jobject = (*env)->FindClass(env, "java/lang/Object");
-	jintArray ints_ = (*env)->NewIntArray(env, 25);
-	jfloatArray gamma_ = (*env)->NewFloatArray(env, 3);
-	jobjectArray rc = (*env)->NewObjectArray(env, 4, class_of_jobject, NULL);
 	struct libgamma_crtc_information info;
-	jint ints[25];
-	jfloat gamma[3];
 
 	libgamma_get_crtc_information(&info, sizeof(info), this, fields);
 
 	if (info.edid) {
 		edid = (*env)->NewByteArray(env, (jsize)info.edid_length);
-		(*env)->SetByteArrayRegion(env, edid, 0, (jsize)info.edid_length, (const jbyte*)(info.edid));
+		if (edid)
+			(*env)->SetByteArrayRegion(env, edid, 0, (jsize)info.edid_length, (const jbyte*)(info.edid));
 		free(info.edid);
 	}
 
-	if (connector_name)
+	if (info.connector_name) {
 		connector_name = (*env)->NewStringUTF(env, info.connector_name);
+		free(info.connector_name);
+	}
+
+	if ((*env)->ExceptionCheck(env))
+		return NULL;
 
-	gamma[0] = (jfloat)info.gamma_red;
-	gamma[1] = (jfloat)info.gamma_green;
-	gamma[2] = (jfloat)info.gamma_blue;
-
-	ints[0] = (jint)info.edid_error;
-	ints[1] = (jint)info.width_mm;
-	ints[2] = (jint)info.width_mm_error;
-	ints[3] = (jint)info.height_mm;
-	ints[4] = (jint)info.height_mm_error;
-	ints[5] = (jint)info.width_mm_edid;
-	ints[6] = (jint)info.width_mm_edid_error;
-	ints[7] = (jint)info.height_mm_edid;
-	ints[8] = (jint)info.height_mm_edid_error;
-	ints[9] = (jint)info.red_gamma_size;
-	ints[10] = (jint)info.green_gamma_size;
-	ints[11] = (jint)info.blue_gamma_size;
-	ints[12] = (jint)info.gamma_size_error;
-	ints[13] = (jint)info.gamma_depth;
-	ints[14] = (jint)info.gamma_depth_error;
-	ints[15] = (jint)info.gamma_support;
-	ints[16] = (jint)info.gamma_support_error;
-	ints[17] = (jint)info.subpixel_order;
-	ints[18] = (jint)info.subpixel_order_error;
-	ints[19] = (jint)info.active;
-	ints[20] = (jint)info.active_error;
-	ints[21] = (jint)info.connector_name_error;
-	ints[22] = (jint)info.connector_type;
-	ints[23] = (jint)info.connector_type_error;
-	ints[24] = (jint)info.gamma_error;
-
-	(*env)->SetIntArrayRegion(env, ints_, 0, 25, ints);
-	(*env)->SetFloatArrayRegion(env, gamma_, 0, 3, gamma);
-
-	(*env)->SetObjectArrayElement(env, rc, 0, edid);
-	(*env)->SetObjectArrayElement(env, rc, 1, connector_name);
-	(*env)->SetObjectArrayElement(env, rc, 2, gamma_);
-	(*env)->SetObjectArrayElement(env, rc, 3, ints_);
-
-	return rc;
+	return (*env)->NewObject(env, crtc_information_class, crtc_information_init,
+	                         edid, connector_name,
+	                         (jfloat)info.gamma_red,
+	                         (jfloat)info.gamma_green,
+	                         (jfloat)info.gamma_blue,
+	                         (jint)info.edid_error,
+	                         (jint)info.width_mm,
+	                         (jint)info.width_mm_error,
+	                         (jint)info.height_mm,
+	                         (jint)info.height_mm_error,
+	                         (jint)info.width_mm_edid,
+	                         (jint)info.width_mm_edid_error,
+	                         (jint)info.height_mm_edid,
+	                         (jint)info.height_mm_edid_error,
+	                         (jint)info.red_gamma_size,
+	                         (jint)info.green_gamma_size,
+	                         (jint)info.blue_gamma_size,
+	                         (jint)info.gamma_size_error,
+	                         (jint)info.gamma_depth,
+	                         (jint)info.gamma_depth_error,
+	                         (jint)info.gamma_support,
+	                         (jint)info.gamma_support_error,
+	                         (jint)info.subpixel_order,
+	                         (jint)info.subpixel_order_error,
+	                         (jint)info.active,
+	                         (jint)info.active_error,
+	                         (jint)info.connector_name_error,
+	                         (jint)info.connector_type,
+	                         (jint)info.connector_type_error,
+	                         (jint)info.gamma_error);
 	(void) class;
 }
 
@@ -412,3 +479,170 @@ Java_libgamma_CRTC_libgamma_1crtc_1set_1gamma_1rampsd(JNIEnv *env, jclass class,
 	(void) env;
 	(void) class;
 }
+
+
+
+/**
+ * Define a function that transforms the stops of one
+ * channel of a gamma ramp, either by the function
+ * `value -> pow(value, exponent) * multiplier + offset`, or
+ * through a lookup table if one is specified; the channel
+ * is left unchanged if neither is specified
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_TRANSFORM_CHANNEL(SUFFIX, TYPE)\
+	static void\
+	transform_channel##SUFFIX(TYPE *ramp, size_t size, const jdouble *params, const jdouble *table, jsize length)\
+	{\
+		size_t i;\
+		if (table)\
+			for (i = 0; i < size; i++)\
+				ramp[i] = encode##SUFFIX(lookup(table, length, decode##SUFFIX(ramp[i])));\
+		else if (params)\
+			for (i = 0; i < size; i++)\
+				ramp[i] = encode##SUFFIX(pow(decode##SUFFIX(ramp[i]), params[2]) * params[0] + params[1]);\
+	}
+
+DEFINE_TRANSFORM_CHANNEL(8,  uint8_t)
+DEFINE_TRANSFORM_CHANNEL(16, uint16_t)
+DEFINE_TRANSFORM_CHANNEL(32, uint32_t)
+DEFINE_TRANSFORM_CHANNEL(64, uint64_t)
+DEFINE_TRANSFORM_CHANNEL(f,  float)
+DEFINE_TRANSFORM_CHANNEL(d,  double)
+
+#undef DEFINE_TRANSFORM_CHANNEL
+
+
+/**
+ * Read the gamma ramps of a CRTC, transform them, and apply them
+ * 
+ * @param   crtc     The CRTC state
+ * @param   ramps    The gamma ramps, used as working memory, and with
+ *                   the applied values on successful return
+ * @param   depth    The depth of `ramps`
+ * @param   params   For each channel: multiplier, offset, and exponent,
+ *                   `NULL` to leave channels without a table unchanged
+ * @param   tables   For each channel: the lookup table to use instead
+ *                   of `params`, `NULL` to use `params`
+ * @param   lengths  For each channel: the number of elements in the
+ *                   lookup table, ignored if the table is `NULL`
+ * @return           Zero on success, an error code on failure
+ */
+static int
+transform(struct libgamma_crtc_state *crtc, void *ramps, jint depth,
+          const jdouble *params, const jdouble *const *tables, const jsize *lengths)
+{
+	int r;
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = ramps;\
+		r = libgamma_crtc_get_gamma_ramps##SUFFIX(crtc, this);\
+		if (r)\
+			break;\
+		transform_channel##SUFFIX(this->red,   this->red_size,   params ? params + 0 : NULL, tables[0], lengths[0]);\
+		transform_channel##SUFFIX(this->green, this->green_size, params ? params + 3 : NULL, tables[1], lengths[1]);\
+		transform_channel##SUFFIX(this->blue,  this->blue_size,  params ? params + 6 : NULL, tables[2], lengths[2]);\
+		r = libgamma_crtc_set_gamma_ramps##SUFFIX(crtc, this);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+
+	return r == LIBGAMMA_ERRNO_SET ? errno : r;
+}
+
+/**
+ * Read the gamma ramps of a CRTC, transform each stop with the function
+ * `value -> pow(value, exponent) * multiplier + offset`, and apply them
+ * 
+ * @param   address  The CRTC state
+ * @param   ramps    The gamma ramps, used as working memory
+ * @param   depth    The depth of the gamma ramps
+ * @param   rm       The multiplier for the red channel
+ * @param   ro       The offset for the red channel
+ * @param   re       The exponent for the red channel
+ * @param   gm       The multiplier for the green channel
+ * @param   go       The offset for the green channel
+ * @param   ge       The exponent for the green channel
+ * @param   bm       The multiplier for the blue channel
+ * @param   bo       The offset for the blue channel
+ * @param   be       The exponent for the blue channel
+ * @return           Zero on success, an error code on failure
+ */
+jint
+Java_libgamma_CRTC_libgamma_1crtc_1transform_1gamma(JNIEnv *env, jclass class, jlong address, jlong ramps, jint depth,
+                                                    jdouble rm, jdouble ro, jdouble re,
+                                                    jdouble gm, jdouble go, jdouble ge,
+                                                    jdouble bm, jdouble bo, jdouble be)
+{
+	void *crtc_voidp = (void *)(uintptr_t)address;
+	void *ramps_voidp = (void *)(uintptr_t)ramps;
+	const jdouble params[9] = {rm, ro, re, gm, go, ge, bm, bo, be};
+	const jdouble *tables[3] = {NULL, NULL, NULL};
+	jsize lengths[3] = {0, 0, 0};
+	return transform(crtc_voidp, ramps_voidp, depth, params, tables, lengths);
+	(void) env;
+	(void) class;
+}
+
+/**
+ * Read the gamma ramps of a CRTC, map each stop through
+ * a lookup table, and apply them
+ * 
+ * @param   address  The CRTC state
+ * @param   ramps    The gamma ramps, used as working memory
+ * @param   depth    The depth of the gamma ramps
+ * @param   red      The lookup table for the red channel, {@code null} to leave it unchanged
+ * @param   green    The lookup table for the green channel, {@code null} to leave it unchanged
+ * @param   blue     The lookup table for the blue channel, {@code null} to leave it unchanged
+ * @return           Zero on success, an error code on failure
+ */
+jint
+Java_libgamma_CRTC_libgamma_1crtc_1transform_1gamma_1table(JNIEnv *env, jclass class, jlong address, jlong ramps, jint depth,
+                                                          jdoubleArray red, jdoubleArray green, jdoubleArray blue)
+{
+	void *crtc_voidp = (void *)(uintptr_t)address;
+	void *ramps_voidp = (void *)(uintptr_t)ramps;
+	jdoubleArray arrays[3];
+	jdouble *tables[3];
+	jsize lengths[3];
+	int i, r;
+
+	arrays[0] = red;
+	arrays[1] = green;
+	arrays[2] = blue;
+	for (i = 0; i < 3; i++) {
+		tables[i] = NULL;
+		lengths[i] = arrays[i] ? (*env)->GetArrayLength(env, arrays[i]) : 0;
+	}
+
+	for (i = 0; i < 3; i++) {
+		if (!arrays[i])
+			continue;
+		tables[i] = (*env)->GetDoubleArrayElements(env, arrays[i], NULL);
+		if (!tables[i]) {
+			r = ENOMEM;
+			goto out;
+		}
+	}
+
+	r = transform(crtc_voidp, ramps_voidp, depth, NULL, (const jdouble *const *)tables, lengths);
+
+out:
+	for (i = 0; i < 3; i++)
+		if (tables[i])
+			(*env)->ReleaseDoubleArrayElements(env, arrays[i], tables[i], JNI_ABORT);
+	return r;
+	(void) class;
+}
@@ -1,56 +1,50 @@
 /* See LICENSE file for copyright and license details. */
 #include "libgamma_GammaRamps.h"
 #include <errno.h>
+#include <math.h>
 #include <stdlib.h>
+#include <string.h>
 
 #include <libgamma.h>
 
+#include "common.h"
+
 
 /**
  * Make a failure-return
  * 
+ * @param   out         Output array for the return
  * @param   error_code  The error code returned from the failing function or zero to read `errno`
- * @return              The object to return
  */
-static jlongArray
-fail(JNIEnv *env, int error_code)
+static void
+fail(JNIEnv *env, jlongArray out, int error_code)
 {
-	jlongArray rc = (*env)->NewLongArray(env, 5);
-	jlong e, z = 0;
+	jlong rc[5] = {0, 0, 0, 0, 0};
 	if ((error_code == LIBGAMMA_ERRNO_SET) || !error_code)
 		error_code = errno;
-	e = (jlong)error_code;
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 3, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 4, 1, &e);
-	return rc;
+	rc[4] = (jlong)error_code;
+	(*env)->SetLongArrayRegion(env, out, 0, 5, rc);
 }
 
 /**
  * Make a success-return
  * 
+ * @param   out    Output array for the return
  * @param   ramps  The native object
  * @param   red    The red gamma ramp
  * @param   green  The green gamma ramp
  * @param   blue   The blue gamma ramp
- * @return         The object to return
  */
-static jlongArray
-ok(JNIEnv *env, void *ramps, void *red, void *green, void *blue)
+static void
+ok(JNIEnv *env, jlongArray out, void *ramps, void *red, void *green, void *blue)
 {
-	jlong a = (jlong)(uintptr_t)ramps;
-	jlong b = (jlong)(uintptr_t)red;
-	jlong c = (jlong)(uintptr_t)green;
-	jlong d = (jlong)(uintptr_t)blue, z = 0;
-	jlongArray rc = (*env)->NewLongArray(env, 5);
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &a);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &b);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &c);
-	(*env)->SetLongArrayRegion(env, rc, 3, 1, &d);
-	(*env)->SetLongArrayRegion(env, rc, 4, 1, &z);
-	return rc;
+	jlong rc[5];
+	rc[0] = (jlong)(uintptr_t)ramps;
+	rc[1] = (jlong)(uintptr_t)red;
+	rc[2] = (jlong)(uintptr_t)green;
+	rc[3] = (jlong)(uintptr_t)blue;
+	rc[4] = 0;
+	(*env)->SetLongArrayRegion(env, out, 0, 5, rc);
 }
 
 /**
@@ -60,26 +54,30 @@ ok(JNIEnv *env, void *ramps, void *red, void *green, void *blue)
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0:  The address of the native object
+ * @param   out         Element 0:  The address of the native object
  *                      Element 1:  The address of the red gamma ramp
  *                      Element 2:  The address of the green gamma ramp
  *                      Element 3:  The address of the blue gamma ramp
  *                      Element 4:  Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1ramps8_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps8_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_ramps8 *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_ramps8_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -90,26 +88,30 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1ramps8_1create(JNIEnv *env, jclass cla
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0: The address of the native object
+ * @param   out         Element 0: The address of the native object
  *                      Element 1: The address of the red gamma ramp
  *                      Element 2: The address of the green gamma ramp
  *                      Element 3: The address of the blue gamma ramp
  *                      Element 4: Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1ramps16_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps16_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_ramps16 *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_ramps16_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -120,26 +122,30 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1ramps16_1create(JNIEnv *env, jclass cl
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0: The address of the native object
+ * @param   out         Element 0: The address of the native object
  *                      Element 1: The address of the red gamma ramp
  *                      Element 2: The address of the green gamma ramp
  *                      Element 3: The address of the blue gamma ramp
  *                      Element 4: Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1ramps32_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps32_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_ramps32 *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_ramps32_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -150,26 +156,30 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1ramps32_1create(JNIEnv *env, jclass cl
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0: The address of the native object
+ * @param   out         Element 0: The address of the native object
  *                      Element 1: The address of the red gamma ramp
  *                      Element 2: The address of the green gamma ramp
  *                      Element 3: The address of the blue gamma ramp
  *                      Element 4: Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1ramps64_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps64_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_ramps64 *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_ramps64_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -180,26 +190,30 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1ramps64_1create(JNIEnv *env, jclass cl
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0: The address of the native object
+ * @param   out         Element 0: The address of the native object
  *                      Element 1: The address of the red gamma ramp
  *                      Element 2: The address of the green gamma ramp
  *                      Element 3: The address of the blue gamma ramp
  *                      Element 4: Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1rampsf_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1rampsf_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_rampsf *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_rampsf_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -210,26 +224,30 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1rampsf_1create(JNIEnv *env, jclass cla
  * @param   red_size    The size of the encoding axis of the red gamma ramp
  * @param   green_size  The size of the encoding axis of the green gamma ramp
  * @param   blue_size   The size of the encoding axis of the blue gamma ramp
- * @return              Element 0: The address of the native object
+ * @param   out         Element 0: The address of the native object
  *                      Element 1: The address of the red gamma ramp
  *                      Element 2: The address of the green gamma ramp
  *                      Element 3: The address of the blue gamma ramp
  *                      Element 4: Zero on success, an error code on error
  */
-jlongArray
-Java_libgamma_GammaRamps_libgamma_1gamma_1rampsd_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size)
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1rampsd_1create(JNIEnv *env, jclass class, jint red_size, jint green_size, jint blue_size, jlongArray out)
 {
 	struct libgamma_gamma_rampsd *ramps = malloc(sizeof(*ramps));
 	int r;
-	if (!ramps)
-		return fail(env, 0);
+	if (!ramps) {
+		fail(env, out, 0);
+		return;
+	}
 	ramps->red_size = (size_t)red_size;
 	ramps->green_size = (size_t)green_size;
 	ramps->blue_size = (size_t)blue_size;
 	r = libgamma_gamma_rampsd_initialise(ramps);
-	if (r)
-		return fail(env, r);
-	return ok(env, ramps, ramps->red, ramps->green, ramps->blue);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, ramps, ramps->red, ramps->green, ramps->blue);
 	(void) class;
 }
 
@@ -334,3 +352,622 @@ Java_libgamma_GammaRamps_libgamma_1gamma_1rampsd_1free(JNIEnv *env, jclass class
 	(void) env;
 	(void) class;
 }
+
+
+
+/**
+ * Curve: `min + (max - min) * x`, parameters: min, max
+ */
+#define CURVE_LINEAR 0
+
+/**
+ * Curve: `min + (max - min) * pow(x, 1 / gamma)`, parameters: min, max, gamma
+ */
+#define CURVE_POWER 1
+
+/**
+ * Curve: `((x - 0.5) * contrast + 0.5) * brightness`, parameters: brightness, contrast
+ */
+#define CURVE_BRIGHTNESS_CONTRAST 2
+
+/**
+ * Curve: `min + (max - min) * srgb(x)` where `srgb` is the sRGB
+ * transfer function from linear to encoded values, parameters: min, max
+ */
+#define CURVE_SRGB 3
+
+
+/**
+ * The sRGB transfer function, from linear values to encoded values
+ * 
+ * @param   x  The linear value
+ * @return     The encoded value
+ */
+static inline double
+srgb(double x)
+{
+	return x <= 0.0031308 ? 12.92 * x : 1.055 * pow(x, 1 / 2.4) - 0.055;
+}
+
+/**
+ * Fill a ramp with the values of an expression of `x`, which
+ * runs from 0 at the first stop to 1 at the last stop
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  EXPR    The expression
+ */
+#define FILL_LOOP(SUFFIX, EXPR)\
+	for (i = 0; i < size; i++) {\
+		x = (double)i * step;\
+		ramp[i] = encode##SUFFIX(EXPR);\
+	}
+
+/**
+ * Define a function that fills one channel of a gamma ramp with a curve
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_FILL_CHANNEL(SUFFIX, TYPE)\
+	static void\
+	fill_channel##SUFFIX(TYPE *ramp, size_t size, jint curve, const jdouble *p)\
+	{\
+		double step = size > 1 ? 1 / (double)(size - 1) : 0;\
+		double x, inv;\
+		size_t i;\
+		switch (curve) {\
+		case CURVE_LINEAR:\
+			FILL_LOOP(SUFFIX, p[0] + (p[1] - p[0]) * x);\
+			break;\
+		case CURVE_POWER:\
+			inv = 1 / p[2];\
+			FILL_LOOP(SUFFIX, p[0] + (p[1] - p[0]) * pow(x, inv));\
+			break;\
+		case CURVE_BRIGHTNESS_CONTRAST:\
+			FILL_LOOP(SUFFIX, ((x - 0.5) * p[1] + 0.5) * p[0]);\
+			break;\
+		default:\
+			FILL_LOOP(SUFFIX, p[0] + (p[1] - p[0]) * srgb(x));\
+			break;\
+		}\
+	}
+
+DEFINE_FILL_CHANNEL(8,  uint8_t)
+DEFINE_FILL_CHANNEL(16, uint16_t)
+DEFINE_FILL_CHANNEL(32, uint32_t)
+DEFINE_FILL_CHANNEL(64, uint64_t)
+DEFINE_FILL_CHANNEL(f,  float)
+DEFINE_FILL_CHANNEL(d,  double)
+
+#undef DEFINE_FILL_CHANNEL
+#undef FILL_LOOP
+
+
+/**
+ * Fill the gamma ramps with a curve
+ * 
+ * @param  address  The gamma ramps
+ * @param  depth    The depth of the gamma ramps
+ * @param  curve    The curve, one of the `CURVE_*` values
+ * @param  r0       The first parameter of the curve for the red channel
+ * @param  r1       The second parameter of the curve for the red channel
+ * @param  r2       The third parameter of the curve for the red channel
+ * @param  g0       The first parameter of the curve for the green channel
+ * @param  g1       The second parameter of the curve for the green channel
+ * @param  g2       The third parameter of the curve for the green channel
+ * @param  b0       The first parameter of the curve for the blue channel
+ * @param  b1       The second parameter of the curve for the blue channel
+ * @param  b2       The third parameter of the curve for the blue channel
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1fill(JNIEnv *env, jclass class, jlong address, jint depth, jint curve,
+                                                     jdouble r0, jdouble r1, jdouble r2,
+                                                     jdouble g0, jdouble g1, jdouble g2,
+                                                     jdouble b0, jdouble b1, jdouble b2)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	const jdouble params[9] = {r0, r1, r2, g0, g1, g2, b0, b1, b2};
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		fill_channel##SUFFIX(this->red,   this->red_size,   curve, params + 0);\
+		fill_channel##SUFFIX(this->green, this->green_size, curve, params + 3);\
+		fill_channel##SUFFIX(this->blue,  this->blue_size,  curve, params + 6);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+
+	(void) env;
+	(void) class;
+}
+
+
+/**
+ * Define a function that sets the stops of one
+ * channel of a gamma ramp from values in [0, 1]
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_SET_CHANNEL(SUFFIX, TYPE)\
+	static void\
+	set_channel##SUFFIX(TYPE *ramp, size_t size, const jdouble *values)\
+	{\
+		size_t i;\
+		for (i = 0; i < size; i++)\
+			ramp[i] = encode##SUFFIX(values[i]);\
+	}
+
+DEFINE_SET_CHANNEL(8,  uint8_t)
+DEFINE_SET_CHANNEL(16, uint16_t)
+DEFINE_SET_CHANNEL(32, uint32_t)
+DEFINE_SET_CHANNEL(64, uint64_t)
+DEFINE_SET_CHANNEL(f,  float)
+DEFINE_SET_CHANNEL(d,  double)
+
+#undef DEFINE_SET_CHANNEL
+
+
+/**
+ * Set the stops of gamma ramps from values in [0, 1]
+ * 
+ * @param  address  The gamma ramps
+ * @param  depth    The depth of the gamma ramps
+ * @param  red      The values for the red channel
+ * @param  green    The values for the green channel
+ * @param  blue     The values for the blue channel
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1set_1values(JNIEnv *env, jclass class, jlong address, jint depth,
+                                                            jdoubleArray red, jdoubleArray green, jdoubleArray blue)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	jdouble *r = (*env)->GetPrimitiveArrayCritical(env, red, NULL);
+	jdouble *g = (*env)->GetPrimitiveArrayCritical(env, green, NULL);
+	jdouble *b = (*env)->GetPrimitiveArrayCritical(env, blue, NULL);
+
+	if (!r || !g || !b)
+		goto out;
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		set_channel##SUFFIX(this->red,   this->red_size,   r);\
+		set_channel##SUFFIX(this->green, this->green_size, g);\
+		set_channel##SUFFIX(this->blue,  this->blue_size,  b);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+
+out:
+	if (b)
+		(*env)->ReleasePrimitiveArrayCritical(env, blue, b, JNI_ABORT);
+	if (g)
+		(*env)->ReleasePrimitiveArrayCritical(env, green, g, JNI_ABORT);
+	if (r)
+		(*env)->ReleasePrimitiveArrayCritical(env, red, r, JNI_ABORT);
+	(void) class;
+}
+
+
+/**
+ * Copy the stops of all channels of gamma ramps to or from
+ * an array, the channels are stored back to back in the
+ * array, in the order red, green, blue
+ * 
+ * @param  env      The JNI environment
+ * @param  address  The gamma ramps
+ * @param  depth    The depth of the gamma ramps
+ * @param  data     The array, it must be large enough
+ * @param  load     Non-zero to copy from the array to the
+ *                  gamma ramps, zero for the other direction
+ */
+static void
+copy_ramps(JNIEnv *env, jlong address, jint depth, jbyteArray data, int load)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	char *array = (*env)->GetPrimitiveArrayCritical(env, data, NULL);
+	char *cursor = array;
+	size_t n;
+	if (!array)
+		return;
+
+#define COPY(CHANNEL)\
+	do {\
+		n = this->CHANNEL##_size * sizeof(*this->CHANNEL);\
+		if (load)\
+			memcpy(this->CHANNEL, cursor, n);\
+		else\
+			memcpy(cursor, this->CHANNEL, n);\
+		cursor += n;\
+	} while (0)
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		COPY(red);\
+		COPY(green);\
+		COPY(blue);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef COPY
+
+	(*env)->ReleasePrimitiveArrayCritical(env, data, array, load ? JNI_ABORT : 0);
+}
+
+/**
+ * Copy the stops of all channels of gamma ramps to an array
+ * 
+ * @param  address  The gamma ramps
+ * @param  depth    The depth of the gamma ramps
+ * @param  data     The array, the channels are stored back to back
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1store(JNIEnv *env, jclass class, jlong address, jint depth, jbyteArray data)
+{
+	copy_ramps(env, address, depth, data, 0);
+	(void) class;
+}
+
+/**
+ * Copy the stops of all channels of gamma ramps from an array
+ * 
+ * @param  address  The gamma ramps
+ * @param  depth    The depth of the gamma ramps
+ * @param  data     The array, the channels are stored back to back
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1load(JNIEnv *env, jclass class, jlong address, jint depth, jbyteArray data)
+{
+	copy_ramps(env, address, depth, data, 1);
+	(void) class;
+}
+
+
+/**
+ * Calculate the xxHash64 hash of the stops of all channels of gamma ramps
+ * 
+ * The channels are hashed in the order red, green, blue, each
+ * seeded with the hash of the previous channel; the red channel
+ * is seeded with the depth
+ * 
+ * @param   address  The gamma ramps
+ * @param   depth    The depth of the gamma ramps
+ * @return           The hash
+ */
+jlong
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1hash(JNIEnv *env, jclass class, jlong address, jint depth)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint64_t hash = (uint64_t)(int64_t)depth;
+
+#define HASH(CHANNEL)\
+	(hash = hash64(this->CHANNEL, this->CHANNEL##_size * sizeof(*this->CHANNEL), hash))
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		HASH(red);\
+		HASH(green);\
+		HASH(blue);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef HASH
+
+	return (jlong)hash;
+	(void) env;
+	(void) class;
+}
+
+/**
+ * Compare the stops of all channels of two gamma ramps
+ * 
+ * @param   address  The first gamma ramps
+ * @param   other    The second gamma ramps, with the same depth and sizes
+ * @param   depth    The depth of the gamma ramps
+ * @return           Whether the stops are equal
+ */
+jboolean
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1equals(JNIEnv *env, jclass class, jlong address, jlong other, jint depth)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	void *that_voidp = (void *)(uintptr_t)other;
+	int equal;
+
+#define EQUAL(CHANNEL)\
+	!memcmp(this->CHANNEL, that->CHANNEL, this->CHANNEL##_size * sizeof(*this->CHANNEL))
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		struct libgamma_gamma_ramps##SUFFIX *that = that_voidp;\
+		equal = EQUAL(red) && EQUAL(green) && EQUAL(blue);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef EQUAL
+
+	return equal ? JNI_TRUE : JNI_FALSE;
+	(void) env;
+	(void) class;
+}
+
+
+/**
+ * Get the maximum value of an unsigned integer
+ * 
+ * @param   bits  The number of bits in the integer, 1 to 64
+ * @return        The maximum value
+ */
+static inline uint64_t
+max_value(int bits)
+{
+	return bits == 64 ? UINT64_MAX : ((uint64_t)1 << bits) - 1;
+}
+
+/**
+ * Convert an integer stop from one depth to another, with
+ * rounding to nearest; this is exact because the maximum
+ * value of the larger depth is a multiple of the maximum
+ * value of the smaller depth
+ * 
+ * @param   value  The stop
+ * @param   from   The number of bits in the depth of `value`
+ * @param   to     The number of bits in the depth to convert to
+ * @return         The converted stop
+ */
+static inline uint64_t
+rescale(uint64_t value, int from, int to)
+{
+	uint64_t factor;
+	if (to >= from)
+		return value * (max_value(to) / max_value(from));
+	/* `factor` is odd, so the remainder is never exactly half of it */
+	factor = max_value(from) / max_value(to);
+	return value / factor + (value % factor > factor / 2);
+}
+
+/**
+ * Define a function that converts one channel of a
+ * gamma ramp to another depth
+ * 
+ * Integer stops are rescaled exactly, other stops are
+ * converted through values in [0, 1] and clamped
+ * 
+ * @param  SRC       The suffix of the depth to convert from
+ * @param  SRC_TYPE  The type of the stops to convert from
+ * @param  SRC_BITS  The number of bits in `SRC_TYPE`, 0 if it is a floating point type
+ * @param  DST       The suffix of the depth to convert to
+ * @param  DST_TYPE  The type of the stops to convert to
+ * @param  DST_BITS  The number of bits in `DST_TYPE`, 0 if it is a floating point type
+ */
+#define DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, DST, DST_TYPE, DST_BITS)\
+	static void\
+	convert_channel##SRC##_##DST(const SRC_TYPE *src, DST_TYPE *dst, size_t size)\
+	{\
+		size_t i;\
+		for (i = 0; i < size; i++) {\
+			if ((SRC_BITS) && (DST_BITS))\
+				dst[i] = (DST_TYPE)rescale((uint64_t)src[i], (SRC_BITS), (DST_BITS));\
+			else\
+				dst[i] = encode##DST(decode##SRC(src[i]));\
+		}\
+	}
+
+/**
+ * Define functions that convert one channel of a
+ * gamma ramp from a depth to each depth
+ * 
+ * @param  SRC       The suffix of the depth to convert from
+ * @param  SRC_TYPE  The type of the stops to convert from
+ * @param  SRC_BITS  The number of bits in `SRC_TYPE`, 0 if it is a floating point type
+ */
+#define DEFINE_CONVERT_CHANNELS(SRC, SRC_TYPE, SRC_BITS)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, 8,  uint8_t,  8)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, 16, uint16_t, 16)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, 32, uint32_t, 32)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, 64, uint64_t, 64)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, f,  float,    0)\
+	DEFINE_CONVERT_CHANNEL(SRC, SRC_TYPE, SRC_BITS, d,  double,   0)
+
+DEFINE_CONVERT_CHANNELS(8,  uint8_t,  8)
+DEFINE_CONVERT_CHANNELS(16, uint16_t, 16)
+DEFINE_CONVERT_CHANNELS(32, uint32_t, 32)
+DEFINE_CONVERT_CHANNELS(64, uint64_t, 64)
+DEFINE_CONVERT_CHANNELS(f,  float,    0)
+DEFINE_CONVERT_CHANNELS(d,  double,   0)
+
+#undef DEFINE_CONVERT_CHANNELS
+#undef DEFINE_CONVERT_CHANNEL
+
+
+/**
+ * Convert the stops of all channels of gamma ramps to
+ * gamma ramps, of the same sizes, with another depth
+ * 
+ * Gamma ramps of the same depth are copied unmodified
+ * 
+ * @param  address       The gamma ramps to convert from
+ * @param  depth         The depth of the gamma ramps to convert from
+ * @param  target        The gamma ramps to convert to
+ * @param  target_depth  The depth of the gamma ramps to convert to
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1convert(JNIEnv *env, jclass class, jlong address, jint depth,
+                                                        jlong target, jint target_depth)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	void *that_voidp = (void *)(uintptr_t)target;
+
+#define COPY(CHANNEL)\
+	memcpy(that->CHANNEL, this->CHANNEL, this->CHANNEL##_size * sizeof(*this->CHANNEL))
+
+#define CONVERT(SRC, DST)\
+	do {\
+		struct libgamma_gamma_ramps##SRC *this = this_voidp;\
+		struct libgamma_gamma_ramps##DST *that = that_voidp;\
+		if (depth == target_depth) {\
+			COPY(red);\
+			COPY(green);\
+			COPY(blue);\
+		} else {\
+			convert_channel##SRC##_##DST(this->red,   that->red,   this->red_size);\
+			convert_channel##SRC##_##DST(this->green, that->green, this->green_size);\
+			convert_channel##SRC##_##DST(this->blue,  that->blue,  this->blue_size);\
+		}\
+	} while (0)
+
+#define X(SRC)\
+	do {\
+		switch (target_depth) {\
+		case 8:   CONVERT(SRC, 8);  break;\
+		case 16:  CONVERT(SRC, 16); break;\
+		case 32:  CONVERT(SRC, 32); break;\
+		case 64:  CONVERT(SRC, 64); break;\
+		case -1:  CONVERT(SRC, f);  break;\
+		default:  CONVERT(SRC, d);  break;\
+		}\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef CONVERT
+#undef COPY
+
+	(void) env;
+	(void) class;
+}
+
+
+/**
+ * Define a function that sets one channel of a gamma
+ * ramp to the linear interpolation of two other channels
+ * 
+ * @param  SUFFIX  The suffix of the depth
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_MIX_CHANNEL(SUFFIX, TYPE)\
+	static void\
+	mix_channel##SUFFIX(TYPE *dst, const TYPE *from, const TYPE *to, size_t size, double t)\
+	{\
+		size_t i;\
+		double a, b;\
+		for (i = 0; i < size; i++) {\
+			a = decode##SUFFIX(from[i]);\
+			b = decode##SUFFIX(to[i]);\
+			dst[i] = encode##SUFFIX(a + (b - a) * t);\
+		}\
+	}
+
+DEFINE_MIX_CHANNEL(8,  uint8_t)
+DEFINE_MIX_CHANNEL(16, uint16_t)
+DEFINE_MIX_CHANNEL(32, uint32_t)
+DEFINE_MIX_CHANNEL(64, uint64_t)
+DEFINE_MIX_CHANNEL(f,  float)
+DEFINE_MIX_CHANNEL(d,  double)
+
+#undef DEFINE_MIX_CHANNEL
+
+
+/**
+ * Set the stops of all channels of gamma ramps to the linear
+ * interpolation of the stops of two other gamma ramps
+ * 
+ * @param  address  The gamma ramps to write to
+ * @param  from     The gamma ramps to interpolate from, with the same depth and sizes
+ * @param  to       The gamma ramps to interpolate to, with the same depth and sizes
+ * @param  depth    The depth of the gamma ramps
+ * @param  t        The position between `from`, at 0, and `to`, at 1
+ */
+void
+Java_libgamma_GammaRamps_libgamma_1gamma_1ramps_1mix(JNIEnv *env, jclass class, jlong address, jlong from,
+                                                    jlong to, jint depth, jdouble t)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	void *from_voidp = (void *)(uintptr_t)from;
+	void *to_voidp = (void *)(uintptr_t)to;
+
+#define MIX(SUFFIX, CHANNEL)\
+	mix_channel##SUFFIX(this->CHANNEL, a->CHANNEL, b->CHANNEL, this->CHANNEL##_size, t)
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *this = this_voidp;\
+		struct libgamma_gamma_ramps##SUFFIX *a = from_voidp;\
+		struct libgamma_gamma_ramps##SUFFIX *b = to_voidp;\
+		MIX(SUFFIX, red);\
+		MIX(SUFFIX, green);\
+		MIX(SUFFIX, blue);\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef MIX
+
+	(void) env;
+	(void) class;
+}
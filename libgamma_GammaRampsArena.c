@@ -0,0 +1,138 @@
+/* See LICENSE file for copyright and license details. */
+#include "libgamma_GammaRampsArena.h"
+#include <errno.h>
+#include <stdlib.h>
+
+#include <libgamma.h>
+
+
+/**
+ * The alignment of each allocation in an arena
+ */
+#define ARENA_ALIGNMENT 16
+
+
+/**
+ * Round an offset up to the alignment of allocations
+ * 
+ * @param   offset  The offset
+ * @return          The aligned offset
+ */
+static inline size_t
+align(size_t offset)
+{
+	return (offset + (ARENA_ALIGNMENT - 1)) & ~(size_t)(ARENA_ALIGNMENT - 1);
+}
+
+
+/**
+ * Allocate the native memory of an arena
+ * 
+ * @param  capacity  The size of the memory, in bytes
+ * @param  out       Element 0: The address of the memory
+ *                   Element 4: Zero on success, an error code on error
+ */
+void
+Java_libgamma_GammaRampsArena_libgamma_1arena_1create(JNIEnv *env, jclass class, jlong capacity, jlongArray out)
+{
+	jlong rc[5] = {0, 0, 0, 0, 0};
+	void *memory = malloc(capacity ? (size_t)capacity : 1);
+	if (!memory)
+		rc[4] = (jlong)errno;
+	rc[0] = (jlong)(uintptr_t)memory;
+	(*env)->SetLongArrayRegion(env, out, 0, 5, rc);
+	(void) class;
+}
+
+/**
+ * Release the native memory of an arena
+ * 
+ * @param  address  The address of the memory
+ */
+void
+Java_libgamma_GammaRampsArena_libgamma_1arena_1free(JNIEnv *env, jclass class, jlong address)
+{
+	void *memory = (void *)(uintptr_t)address;
+	free(memory);
+	(void) env;
+	(void) class;
+}
+
+/**
+ * Allocate gamma ramps from the native memory of an arena
+ * 
+ * The gamma ramp structure and each of its ramps are placed
+ * one after another, each aligned to `ARENA_ALIGNMENT` bytes
+ * 
+ * @param  address     The address of the memory
+ * @param  capacity    The size of the memory, in bytes
+ * @param  offset      The number of bytes that have been allocated
+ * @param  depth       The depth of the gamma ramps
+ * @param  red_size    The size of the encoding axis of the red gamma ramp
+ * @param  green_size  The size of the encoding axis of the green gamma ramp
+ * @param  blue_size   The size of the encoding axis of the blue gamma ramp
+ * @param  out         Element 0: The address of the native object
+ *                     Element 1: The address of the red gamma ramp
+ *                     Element 2: The address of the green gamma ramp
+ *                     Element 3: The address of the blue gamma ramp
+ *                     Element 4: The new number of bytes that have been
+ *                                allocated, -1 if the memory is too small
+ */
+void
+Java_libgamma_GammaRampsArena_libgamma_1arena_1gamma_1ramps(JNIEnv *env, jclass class, jlong address, jlong capacity, jlong offset,
+                                                           jint depth, jint red_size, jint green_size, jint blue_size, jlongArray out)
+{
+	char *memory = (void *)(uintptr_t)address;
+	jlong rc[5] = {0, 0, 0, 0, -1};
+	size_t n = align((size_t)offset);
+
+#define PLACE(CHANNEL)\
+	do {\
+		n = align(n);\
+		offsets[CHANNEL] = n;\
+		n += sizes[CHANNEL] * element_size;\
+	} while (0)
+
+#define X(SUFFIX)\
+	do {\
+		struct libgamma_gamma_ramps##SUFFIX *ramps;\
+		size_t element_size = sizeof(*ramps->red);\
+		size_t sizes[3], offsets[3];\
+		sizes[0] = (size_t)red_size;\
+		sizes[1] = (size_t)green_size;\
+		sizes[2] = (size_t)blue_size;\
+		ramps = (void *)(memory + n);\
+		n += sizeof(*ramps);\
+		PLACE(0);\
+		PLACE(1);\
+		PLACE(2);\
+		if (n > (size_t)capacity)\
+			break;\
+		ramps->red_size = sizes[0];\
+		ramps->green_size = sizes[1];\
+		ramps->blue_size = sizes[2];\
+		ramps->red = (void *)(memory + offsets[0]);\
+		ramps->green = (void *)(memory + offsets[1]);\
+		ramps->blue = (void *)(memory + offsets[2]);\
+		rc[0] = (jlong)(uintptr_t)ramps;\
+		rc[1] = (jlong)(uintptr_t)ramps->red;\
+		rc[2] = (jlong)(uintptr_t)ramps->green;\
+		rc[3] = (jlong)(uintptr_t)ramps->blue;\
+		rc[4] = (jlong)n;\
+	} while (0)
+
+	switch (depth) {
+	case 8:   X(8);  break;
+	case 16:  X(16); break;
+	case 32:  X(32); break;
+	case 64:  X(64); break;
+	case -1:  X(f);  break;
+	default:  X(d);  break;
+	}
+
+#undef X
+#undef PLACE
+
+	(*env)->SetLongArrayRegion(env, out, 0, 5, rc);
+	(void) class;
+}
@@ -9,40 +9,34 @@
 /**
  * Make a failure-return
  * 
+ * @param   out         Output array for the return
  * @param   error_code  The error code returned from the failing function or zero to read `errno`
- * @return              The object to return
  */
-static jlongArray
-fail(JNIEnv *env, int error_code)
+static void
+fail(JNIEnv *env, jlongArray out, int error_code)
 {
-	jlongArray rc = (*env)->NewLongArray(env, 3);
-	jlong e, z = 0;
+	jlong rc[3] = {0, 0, 0};
 	if ((error_code == LIBGAMMA_ERRNO_SET) || !error_code)
 		error_code = errno;
-	e = (jlong)error_code;
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &e);
-	return rc;
+	rc[2] = (jlong)error_code;
+	(*env)->SetLongArrayRegion(env, out, 0, 3, rc);
 }
 
 /**
  * Make a success-return
  * 
+ * @param   out    Output array for the return
  * @param   state  The native object
  * @param   count  The subelement count
- * @return         The object to return
  */
-static jlongArray
-ok(JNIEnv *env, void *state, size_t count)
+static void
+ok(JNIEnv *env, jlongArray out, void *state, size_t count)
 {
-	jlong a = (jlong)(uintptr_t)state;
-	jlong b = (jlong)count, z = 0;
-	jlongArray rc = (*env)->NewLongArray(env, 3);
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &a);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &b);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &z);
-	return rc;
+	jlong rc[3];
+	rc[0] = (jlong)(uintptr_t)state;
+	rc[1] = (jlong)count;
+	rc[2] = 0;
+	(*env)->SetLongArrayRegion(env, out, 0, 3, rc);
 }
 
 /**
@@ -50,22 +44,26 @@ ok(JNIEnv *env, void *state, size_t count)
  * 
  * @param   site       The site state for the site that the partition belongs to
  * @param   partition  The index of the partition within the site
- * @return             Element 0: The value for {@link #address}
+ * @param   out        Element 0: The value for {@link #address}
  *                     Element 1: The value for {@link #crtcs_available}
  *                     Element 2: Error code, zero on success
  */
-jlongArray
-Java_libgamma_Partition_libgamma_1partition_1create(JNIEnv *env, jclass class, jlong site, jint partition)
+void
+Java_libgamma_Partition_libgamma_1partition_1create(JNIEnv *env, jclass class, jlong site, jint partition, jlongArray out)
 {
 	struct libgamma_partition_state *state = malloc(sizeof(*state));
 	void *super = (void *)(uintptr_t)site;
 	int r;
-	if (state == NULL)
-		return fail(env, 0);
+	if (state == NULL) {
+		fail(env, out, 0);
+		return;
+	}
 	r = libgamma_partition_initialise(state, super, (size_t)partition);
-	if (r)
-		return fail(env, r);
-	return ok(env, state, state->crtcs_available);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, state, state->crtcs_available);
 	(void) class;
 }
 
@@ -101,3 +99,89 @@ Java_libgamma_Partition_libgamma_1partition_1restore(JNIEnv *env, jclass class,
 	(void) env;
 	(void) class;
 }
+
+
+/**
+ * Set or get the gamma ramps for multiple CRTC:s
+ * 
+ * @param  env        The JNI environment
+ * @param  addresses  For each CRTC, the CRTC state followed by the gamma ramps
+ * @param  depths     For each CRTC, the depth of the gamma ramps, zero to skip the CRTC
+ * @param  count      The number of CRTC:s
+ * @param  errors     Output array for the error code of each CRTC, zero on success
+ * @param  set        Non-zero to set the gamma ramps, zero to get them
+ */
+static void
+gamma_all(JNIEnv *env, jlongArray addresses, jintArray depths, jint count, jintArray errors, int set)
+{
+	jlong *address = (*env)->GetLongArrayElements(env, addresses, NULL);
+	jint *depth = (*env)->GetIntArrayElements(env, depths, NULL);
+	jint *error = (*env)->GetIntArrayElements(env, errors, NULL);
+	struct libgamma_crtc_state *crtc;
+	void *ramps;
+	jint i;
+	int r;
+
+	if (!address || !depth || !error)
+		goto out;
+
+#define X(SUFFIX)\
+	(set ? libgamma_crtc_set_gamma_ramps##SUFFIX(crtc, ramps) : libgamma_crtc_get_gamma_ramps##SUFFIX(crtc, ramps))
+
+	for (i = 0; i < count; i++) {
+		crtc = (void *)(uintptr_t)address[2 * i + 0];
+		ramps = (void *)(uintptr_t)address[2 * i + 1];
+		switch (depth[i]) {
+		case 0:   r = 0;     break;
+		case 8:   r = X(8);  break;
+		case 16:  r = X(16); break;
+		case 32:  r = X(32); break;
+		case 64:  r = X(64); break;
+		case -1:  r = X(f);  break;
+		default:  r = X(d);  break;
+		}
+		error[i] = r == LIBGAMMA_ERRNO_SET ? errno : r;
+	}
+
+#undef X
+
+out:
+	if (error)
+		(*env)->ReleaseIntArrayElements(env, errors, error, 0);
+	if (depth)
+		(*env)->ReleaseIntArrayElements(env, depths, depth, JNI_ABORT);
+	if (address)
+		(*env)->ReleaseLongArrayElements(env, addresses, address, JNI_ABORT);
+}
+
+/**
+ * Set the gamma ramps for multiple CRTC:s
+ * 
+ * @param  addresses  For each CRTC, the CRTC state followed by the gamma ramps
+ * @param  depths     For each CRTC, the depth of the gamma ramps, zero to skip the CRTC
+ * @param  count      The number of CRTC:s
+ * @param  errors     Output array for the error code of each CRTC, zero on success
+ */
+void
+Java_libgamma_Partition_libgamma_1partition_1set_1gamma_1all(JNIEnv *env, jclass class, jlongArray addresses,
+                                                             jintArray depths, jint count, jintArray errors)
+{
+	gamma_all(env, addresses, depths, count, errors, 1);
+	(void) class;
+}
+
+/**
+ * Get the current gamma ramps for multiple CRTC:s
+ * 
+ * @param  addresses  For each CRTC, the CRTC state followed by the gamma ramps to fill
+ * @param  depths     For each CRTC, the depth of the gamma ramps
+ * @param  count      The number of CRTC:s
+ * @param  errors     Output array for the error code of each CRTC, zero on success
+ */
+void
+Java_libgamma_Partition_libgamma_1partition_1get_1gamma_1all(JNIEnv *env, jclass class, jlongArray addresses,
+                                                             jintArray depths, jint count, jintArray errors)
+{
+	gamma_all(env, addresses, depths, count, errors, 0);
+	(void) class;
+}
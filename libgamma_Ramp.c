@@ -1,7 +1,11 @@
 /* See LICENSE file for copyright and license details. */
 #include "libgamma_Ramp.h"
+#include <string.h>
+
 #include <libgamma.h>
 
+#include "common.h"
+
 
 /**
  * Read the value of a stop in an 8-bit ramp
@@ -208,3 +212,480 @@ Java_libgamma_Ramp_libgamma_1gamma_1rampsd_1set(JNIEnv *env, jclass class, jlong
 	(void) env;
 	(void) class;
 }
+
+/**
+ * Read the values of a range of stops in an 8-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps8_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jbyteArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint8_t *this = this_voidp;
+	(*env)->SetByteArrayRegion(env, dst, off, len, (const jbyte *)(this + from));
+	(void) class;
+}
+
+/**
+ * Read the values of a range of stops in a 16-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps16_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jshortArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint16_t *this = this_voidp;
+	(*env)->SetShortArrayRegion(env, dst, off, len, (const jshort *)(this + from));
+	(void) class;
+}
+
+/**
+ * Read the values of a range of stops in a 32-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps32_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jintArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint32_t *this = this_voidp;
+	(*env)->SetIntArrayRegion(env, dst, off, len, (const jint *)(this + from));
+	(void) class;
+}
+
+/**
+ * Read the values of a range of stops in a 64-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps64_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jlongArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint64_t *this = this_voidp;
+	(*env)->SetLongArrayRegion(env, dst, off, len, (const jlong *)(this + from));
+	(void) class;
+}
+
+/**
+ * Read the values of a range of stops in a single precision floating point ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1rampsf_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jfloatArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	float *this = this_voidp;
+	(*env)->SetFloatArrayRegion(env, dst, off, len, (const jfloat *)(this + from));
+	(void) class;
+}
+
+/**
+ * Read the values of a range of stops in a double precision floating point ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  dst      The array to store the values in
+ * @param  off      The index in `dst` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1rampsd_1get_1region(JNIEnv *env, jclass class, jlong address, jint from, jdoubleArray dst, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	double *this = this_voidp;
+	(*env)->SetDoubleArrayRegion(env, dst, off, len, (const jdouble *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in an 8-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps8_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jbyteArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint8_t *this = this_voidp;
+	(*env)->GetByteArrayRegion(env, src, off, len, (jbyte *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in a 16-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps16_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jshortArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint16_t *this = this_voidp;
+	(*env)->GetShortArrayRegion(env, src, off, len, (jshort *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in a 32-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps32_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jintArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint32_t *this = this_voidp;
+	(*env)->GetIntArrayRegion(env, src, off, len, (jint *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in a 64-bit ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramps64_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jlongArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	uint64_t *this = this_voidp;
+	(*env)->GetLongArrayRegion(env, src, off, len, (jlong *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in a single precision floating point ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1rampsf_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jfloatArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	float *this = this_voidp;
+	(*env)->GetFloatArrayRegion(env, src, off, len, (jfloat *)(this + from));
+	(void) class;
+}
+
+/**
+ * Set the values of a range of stops in a double precision floating point ramp
+ * 
+ * @param  address  The address of the ramp
+ * @param  from     The index of the first stop
+ * @param  src      The array to read the values from
+ * @param  off      The index in `src` of the first stop's value
+ * @param  len      The number of stops
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1rampsd_1set_1region(JNIEnv *env, jclass class, jlong address, jint from, jdoubleArray src, jint off, jint len)
+{
+	void *this_voidp = (void *)(uintptr_t)address;
+	double *this = this_voidp;
+	(*env)->GetDoubleArrayRegion(env, src, off, len, (jdouble *)(this + from));
+	(void) class;
+}
+
+/**
+ * Create a direct byte buffer over the memory of a ramp
+ * 
+ * @param   address   The address of the ramp
+ * @param   capacity  The size of the ramp, in bytes
+ * @return            The buffer, `NULL` if the JVM does
+ *                    not support direct buffer access
+ */
+jobject
+Java_libgamma_Ramp_libgamma_1gamma_1ramp_1buffer(JNIEnv *env, jclass class, jlong address, jlong capacity)
+{
+	void *this = (void *)(uintptr_t)address;
+	return (*env)->NewDirectByteBuffer(env, this, capacity);
+	(void) class;
+}
+
+/**
+ * Calculate the xxHash64 hash of the memory of a ramp
+ * 
+ * @param   address  The address of the ramp
+ * @param   length   The size of the ramp, in bytes
+ * @param   seed     The seed of the hash
+ * @return           The hash
+ */
+jlong
+Java_libgamma_Ramp_libgamma_1gamma_1ramp_1hash(JNIEnv *env, jclass class, jlong address, jlong length, jlong seed)
+{
+	void *this = (void *)(uintptr_t)address;
+	return (jlong)hash64(this, (size_t)length, (uint64_t)seed);
+	(void) env;
+	(void) class;
+}
+
+/**
+ * Compare the memory of two ramps
+ * 
+ * @param   address  The address of the first ramp
+ * @param   other    The address of the second ramp
+ * @param   length   The size of each ramp, in bytes
+ * @return           Whether the memory of the ramps is equal
+ */
+jboolean
+Java_libgamma_Ramp_libgamma_1gamma_1ramp_1equals(JNIEnv *env, jclass class, jlong address, jlong other, jlong length)
+{
+	void *this = (void *)(uintptr_t)address;
+	void *that = (void *)(uintptr_t)other;
+	return !memcmp(this, that, (size_t)length) ? JNI_TRUE : JNI_FALSE;
+	(void) env;
+	(void) class;
+}
+
+
+/**
+ * Resampling method: the nearest source stop
+ */
+#define RESAMPLE_NEAREST 0
+
+/**
+ * Resampling method: linear interpolation
+ */
+#define RESAMPLE_LINEAR 1
+
+/**
+ * Resampling method: monotone cubic interpolation
+ */
+#define RESAMPLE_CUBIC 2
+
+
+/**
+ * Function that reads a stop of a ramp as a value in [0, 1]
+ * 
+ * @param   ramp  The ramp
+ * @param   i     The index of the stop
+ * @return        The value of the stop
+ */
+typedef double sample_func(const void *ramp, size_t i);
+
+/**
+ * Define a `sample_func` for a depth
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_SAMPLE(SUFFIX, TYPE)\
+	static double\
+	sample##SUFFIX(const void *ramp, size_t i)\
+	{\
+		return decode##SUFFIX(((const TYPE *)ramp)[i]);\
+	}
+
+DEFINE_SAMPLE(8,  uint8_t)
+DEFINE_SAMPLE(16, uint16_t)
+DEFINE_SAMPLE(32, uint32_t)
+DEFINE_SAMPLE(64, uint64_t)
+DEFINE_SAMPLE(f,  float)
+DEFINE_SAMPLE(d,  double)
+
+#undef DEFINE_SAMPLE
+
+
+/**
+ * Get the tangent of a ramp at a stop for monotone cubic
+ * interpolation: the harmonic mean of the slopes on either
+ * side of the stop, or zero at local extrema, which keeps
+ * the interpolation monotone wherever the stops are
+ * 
+ * @param   src     The ramp
+ * @param   n       The number of stops in `src`, at least 2
+ * @param   sample  Function that reads a stop of `src`
+ * @param   i       The index of the stop
+ * @return          The tangent, per stop
+ */
+static double
+tangent(const void *src, size_t n, sample_func *sample, size_t i)
+{
+	double left, right;
+	if (i == 0)
+		return sample(src, 1) - sample(src, 0);
+	if (i == n - 1)
+		return sample(src, n - 1) - sample(src, n - 2);
+	left = sample(src, i) - sample(src, i - 1);
+	right = sample(src, i + 1) - sample(src, i);
+	if (left * right <= 0)
+		return 0;
+	return 2 * left * right / (left + right);
+}
+
+/**
+ * Interpolate a ramp at a position between its stops
+ * 
+ * @param   src       The ramp
+ * @param   n         The number of stops in `src`, at least 1
+ * @param   sample    Function that reads a stop of `src`
+ * @param   position  The position, in stops, in [0, `n` - 1]
+ * @param   method    The resampling method, one of the `RESAMPLE_*` values
+ * @return            The interpolated value
+ */
+static double
+interpolate(const void *src, size_t n, sample_func *sample, double position, jint method)
+{
+	size_t i = (size_t)position;
+	double t = position - (double)i;
+	double p0, p1, t2, t3;
+	if (method == RESAMPLE_NEAREST)
+		return sample(src, t < 0.5 ? i : i + 1);
+	if (i >= n - 1)
+		return sample(src, n - 1);
+	p0 = sample(src, i);
+	p1 = sample(src, i + 1);
+	if (method == RESAMPLE_LINEAR || t == 0)
+		return p0 + (p1 - p0) * t;
+	t2 = t * t;
+	t3 = t2 * t;
+	return (2 * t3 - 3 * t2 + 1) * p0 + (t3 - 2 * t2 + t) * tangent(src, n, sample, i)
+	     + (3 * t2 - 2 * t3) * p1 + (t3 - t2) * tangent(src, n, sample, i + 1);
+}
+
+/**
+ * Define a function that resamples a ramp into a ramp of a depth
+ * 
+ * @param  SUFFIX  The suffix of the depth, as used in the libgamma function names
+ * @param  TYPE    The type of the stops
+ */
+#define DEFINE_RESAMPLE(SUFFIX, TYPE)\
+	static void\
+	resample##SUFFIX(TYPE *dst, size_t m, const void *src, size_t n, sample_func *sample, jint method)\
+	{\
+		double step = m > 1 ? (double)(n - 1) / (double)(m - 1) : 0;\
+		size_t i;\
+		for (i = 0; i < m; i++)\
+			dst[i] = encode##SUFFIX(interpolate(src, n, sample, (double)i * step, method));\
+	}
+
+DEFINE_RESAMPLE(8,  uint8_t)
+DEFINE_RESAMPLE(16, uint16_t)
+DEFINE_RESAMPLE(32, uint32_t)
+DEFINE_RESAMPLE(64, uint64_t)
+DEFINE_RESAMPLE(f,  float)
+DEFINE_RESAMPLE(d,  double)
+
+#undef DEFINE_RESAMPLE
+
+
+/**
+ * Resample a ramp into a ramp of any depth
+ * 
+ * @param  dst     The ramp to write to
+ * @param  depth   The depth of `dst`
+ * @param  m       The number of stops in `dst`
+ * @param  src     The ramp to read from
+ * @param  n       The number of stops in `src`, at least 1
+ * @param  sample  Function that reads a stop of `src`
+ * @param  method  The resampling method, one of the `RESAMPLE_*` values
+ */
+static void
+resample(void *dst, jint depth, size_t m, const void *src, size_t n, sample_func *sample, jint method)
+{
+	switch (depth) {
+	case 8:   resample8 (dst, m, src, n, sample, method);  break;
+	case 16:  resample16(dst, m, src, n, sample, method);  break;
+	case 32:  resample32(dst, m, src, n, sample, method);  break;
+	case 64:  resample64(dst, m, src, n, sample, method);  break;
+	case -1:  resamplef (dst, m, src, n, sample, method);  break;
+	default:  resampled (dst, m, src, n, sample, method);  break;
+	}
+}
+
+/**
+ * Resample a ramp into another ramp
+ * 
+ * @param  address        The address of the ramp to write to
+ * @param  depth          The depth of the ramp to write to
+ * @param  size           The number of stops in the ramp to write to
+ * @param  source         The address of the ramp to read from
+ * @param  source_depth   The depth of the ramp to read from
+ * @param  source_size    The number of stops in the ramp to read from, at least 1
+ * @param  method         The resampling method
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramp_1resample(JNIEnv *env, jclass class, jlong address, jint depth, jint size,
+                                                   jlong source, jint source_depth, jint source_size, jint method)
+{
+	void *this = (void *)(uintptr_t)address;
+	const void *src = (const void *)(uintptr_t)source;
+	sample_func *sample;
+	switch (source_depth) {
+	case 8:   sample = sample8;  break;
+	case 16:  sample = sample16; break;
+	case 32:  sample = sample32; break;
+	case 64:  sample = sample64; break;
+	case -1:  sample = samplef;  break;
+	default:  sample = sampled;  break;
+	}
+	resample(this, depth, (size_t)size, src, (size_t)source_size, sample, method);
+	(void) env;
+	(void) class;
+}
+
+/**
+ * Resample values in [0, 1] into a ramp
+ * 
+ * @param  address  The address of the ramp to write to
+ * @param  depth    The depth of the ramp to write to
+ * @param  size     The number of stops in the ramp to write to
+ * @param  values   The values to read from, at least 1
+ * @param  method   The resampling method
+ */
+void
+Java_libgamma_Ramp_libgamma_1gamma_1ramp_1resample_1values(JNIEnv *env, jclass class, jlong address, jint depth, jint size,
+                                                           jdoubleArray values, jint method)
+{
+	void *this = (void *)(uintptr_t)address;
+	jsize n = (*env)->GetArrayLength(env, values);
+	jdouble *src = (*env)->GetPrimitiveArrayCritical(env, values, NULL);
+	if (!src)
+		return;
+	resample(this, depth, (size_t)size, src, (size_t)n, sampled, method);
+	(*env)->ReleasePrimitiveArrayCritical(env, values, src, JNI_ABORT);
+	(void) class;
+}
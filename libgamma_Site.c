@@ -10,40 +10,34 @@
 /**
  * Make a failure-return
  * 
+ * @param   out         Output array for the return
  * @param   error_code  The error code returned from the failing function or zero to read `errno`
- * @return              The object to return
  */
-static jlongArray
-fail(JNIEnv *env, int error_code)
+static void
+fail(JNIEnv *env, jlongArray out, int error_code)
 {
-	jlongArray rc = (*env)->NewLongArray(env, 3);
-	jlong e, z = 0;
+	jlong rc[3] = {0, 0, 0};
 	if ((error_code == LIBGAMMA_ERRNO_SET) || !error_code)
 		error_code = errno;
-	e = (jlong)error_code;
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &z);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &e);
-	return rc;
+	rc[2] = (jlong)error_code;
+	(*env)->SetLongArrayRegion(env, out, 0, 3, rc);
 }
 
 /**
  * Make a success-return
  * 
+ * @param   out    Output array for the return
  * @param   state  The native object
  * @param   count  The subelement count
- * @return         The object to return
  */
-static jlongArray
-ok(JNIEnv *env, void *state, size_t count)
+static void
+ok(JNIEnv *env, jlongArray out, void *state, size_t count)
 {
-	jlong a = (jlong)(uintptr_t)state;
-	jlong b = (jlong)count, z = 0;
-	jlongArray rc = (*env)->NewLongArray(env, 3);
-	(*env)->SetLongArrayRegion(env, rc, 0, 1, &a);
-	(*env)->SetLongArrayRegion(env, rc, 1, 1, &b);
-	(*env)->SetLongArrayRegion(env, rc, 2, 1, &z);
-	return rc;
+	jlong rc[3];
+	rc[0] = (jlong)(uintptr_t)state;
+	rc[1] = (jlong)count;
+	rc[2] = 0;
+	(*env)->SetLongArrayRegion(env, out, 0, 3, rc);
 }
 
 /**
@@ -51,12 +45,12 @@ ok(JNIEnv *env, void *state, size_t count)
  * 
  * @param   method  The adjustment method (display server and protocol)
  * @param   site    The site identifier
- * @return          Element 0: The value for {@link #address}
+ * @param   out     Element 0: The value for {@link #address}
  *                  Element 1: The value for {@link #partitions_available}
  *                  Element 2: Error code, zero on success
  */
-jlongArray
-Java_libgamma_Site_libgamma_1site_1create(JNIEnv *env, jclass class, jint method, jstring site)
+void
+Java_libgamma_Site_libgamma_1site_1create(JNIEnv *env, jclass class, jint method, jstring site, jlongArray out)
 {
 	struct libgamma_site_state *state = malloc(sizeof(*state));
 	const char *site_chars;
@@ -73,17 +67,23 @@ Java_libgamma_Site_libgamma_1site_1create(JNIEnv *env, jclass class, jint method
 		else
 			memcpy(site_, site_chars, n * sizeof(char));
 		(*env)->ReleaseStringUTFChars(env, site, site_chars);
-		if (saved_errno)
-			return fail(env, errno);
+		if (saved_errno) {
+			fail(env, out, saved_errno);
+			return;
+		}
 	} else {
 		site_ = NULL;
 	}
-	if (!state)
-		return fail(env, 0);
+	if (!state) {
+		fail(env, out, 0);
+		return;
+	}
 	r = libgamma_site_initialise(state, method, site_);
-	if (r)
-		return fail(env, r);
-	return ok(env, state, state->partitions_available);
+	if (r) {
+		fail(env, out, r);
+		return;
+	}
+	ok(env, out, state, state->partitions_available);
 	(void) class;
 }
 